@@ -0,0 +1,73 @@
+package com.checkmarx.cxconsole.clients.utils;
+
+import com.checkmarx.cxconsole.clients.general.dto.ProjectDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a project list response as the REST clients did, with a new mapper and a string of the joined lines of the response, and with
+ * the shared reader of {@link JsonMappers} directly from the response stream
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonMappersBenchmark {
+
+    @Param({"1", "50000"})
+    private int numOfProjects;
+
+    private byte[] response;
+    private CollectionType projectListType;
+
+    @Setup(Level.Trial)
+    public void createResponse() throws IOException {
+        List<ProjectDTO> projects = new ArrayList<>();
+        for (int i = 0; i < numOfProjects; i++) {
+            ProjectDTO project = new ProjectDTO("Project " + i);
+            project.setId(i);
+            projects.add(project);
+        }
+        response = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsBytes(projects);
+        projectListType = TypeFactory.defaultInstance().constructCollectionType(List.class, ProjectDTO.class);
+    }
+
+    @Benchmark
+    public List<ProjectDTO> newMapperPerResponse() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(response)));
+        StringBuilder result = new StringBuilder();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            result.append(line);
+        }
+        return new ObjectMapper().readValue(result.toString(), projectListType);
+    }
+
+    @Benchmark
+    public List<ProjectDTO> sharedReader() throws IOException {
+        return JsonMappers.readerFor(projectListType).readValue(new ByteArrayInputStream(response));
+    }
+}
@@ -0,0 +1,126 @@
+package com.checkmarx.cxconsole.packaging;
+
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches the paths of a generated source tree against the default exclusions, path by path like the Ant DirectoryScanner of the Zipper
+ * component, and directory by directory with an {@link ExclusionMatcher} like the {@link ParallelFileWalker}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExclusionMatcherBenchmark {
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**/*"};
+    //The default exclusions of cx_console.properties, formatted as FilesUtils formats them
+    private static final String[] EXCLUDE_PATTERNS = {
+            "**/_cvs/**/*", "**/.svn/**/*", "**/.hg/**/*", "**/.git/**/*", "**/.bzr/**/*", "**/bin/**/*", "**/obj/**/*", "**/backup/**/*",
+            "**/node_modules/**/*", "**/*.DS_Store", "**/*.ipr", "**/*.iws", "**/*.bak", "**/*.tmp", "**/*.aac", "**/*.aif", "**/*.iff",
+            "**/*.m3u", "**/*.mid", "**/*.mp3", "**/*.mpa", "**/*.ra", "**/*.wav", "**/*.wma", "**/*.3g2", "**/*.3gp", "**/*.asf", "**/*.asx",
+            "**/*.avi", "**/*.flv", "**/*.mov", "**/*.mp4", "**/*.mpg", "**/*.rm", "**/*.swf", "**/*.vob", "**/*.wmv", "**/*.bmp", "**/*.gif",
+            "**/*.jpg", "**/*.png", "**/*.psd", "**/*.tif", "**/*.jar", "**/*.zip", "**/*.rar", "**/*.exe", "**/*.dll", "**/*.pdb", "**/*.7z",
+            "**/*.gz", "**/*.tar.gz", "**/*.tar", "**/*.class", "**/*.iml", "Checkmarx/Reports/*.*"};
+
+    private static final int NUM_OF_FILES = 50000;
+
+    //Directory path -> file names, in sorted order
+    private Map<String, List<String>> directories;
+    private ExclusionMatcher matcher;
+
+    @Setup(Level.Trial)
+    public void createPaths() {
+        String[] directoryNames = {"src", "main", "java", "com", "acme", "service", "impl", "test", "resources", "web", "js", "node_modules", "bin"};
+        String[] extensions = {".java", ".js", ".xml", ".properties", ".class", ".png", ".md"};
+        Random random = new Random(NUM_OF_FILES);
+        directories = new HashMap<>();
+        for (int i = 0; i < NUM_OF_FILES; i++) {
+            StringBuilder directory = new StringBuilder();
+            int depth = 2 + random.nextInt(6);
+            for (int j = 0; j < depth; j++) {
+                directory.append(directoryNames[random.nextInt(directoryNames.length)]).append('/');
+            }
+            directories.computeIfAbsent(directory.toString(), key -> new ArrayList<>()).add("File" + i + extensions[random.nextInt(extensions.length)]);
+        }
+        matcher = ExclusionMatcher.compile(INCLUDE_ALL_PATTERNS, EXCLUDE_PATTERNS);
+    }
+
+    @Benchmark
+    public int directoryScannerPatterns() {
+        int numOfIncludedFiles = 0;
+        for (Map.Entry<String, List<String>> directory : directories.entrySet()) {
+            for (String fileName : directory.getValue()) {
+                String path = directory.getKey() + fileName;
+                if (matchesAny(INCLUDE_ALL_PATTERNS, path) && !matchesAny(EXCLUDE_PATTERNS, path)) {
+                    numOfIncludedFiles++;
+                }
+            }
+        }
+        return numOfIncludedFiles;
+    }
+
+    @Benchmark
+    public int exclusionMatcher() {
+        Map<String, ExclusionMatcher.MatchState> directoryStates = new HashMap<>();
+        int numOfIncludedFiles = 0;
+        for (Map.Entry<String, List<String>> directory : directories.entrySet()) {
+            ExclusionMatcher.MatchState state = enterDirectory(directoryStates, directory.getKey());
+            if (state == null) {
+                continue;
+            }
+            for (String fileName : directory.getValue()) {
+                if (matcher.isFileIncluded(state, fileName)) {
+                    numOfIncludedFiles++;
+                }
+            }
+        }
+        return numOfIncludedFiles;
+    }
+
+    /**
+     * Every directory is entered once, like the walker does
+     */
+    private ExclusionMatcher.MatchState enterDirectory(Map<String, ExclusionMatcher.MatchState> directoryStates, String directoryPath) {
+        if (directoryPath.isEmpty()) {
+            return matcher.getRootState();
+        }
+        if (directoryStates.containsKey(directoryPath)) {
+            return directoryStates.get(directoryPath);
+        }
+        int nameStart = directoryPath.lastIndexOf('/', directoryPath.length() - 2) + 1;
+        ExclusionMatcher.MatchState parentState = enterDirectory(directoryStates, directoryPath.substring(0, nameStart));
+        ExclusionMatcher.MatchState state = parentState != null
+                ? matcher.enterDirectory(parentState, directoryPath.substring(nameStart, directoryPath.length() - 1)) : null;
+        directoryStates.put(directoryPath, state);
+        return state;
+    }
+
+    private static boolean matchesAny(String[] patterns, String path) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.matchPath(pattern, path, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,104 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.components.zipper.ZipListener;
+import com.checkmarx.components.zipper.Zipper;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zips a generated source tree with the single threaded {@link Zipper} and with the {@link ParallelZipper}, on a small heap.
+ * The tree has many small source files and a few files which are too big to be compressed in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx128m")
+public class ParallelZipperBenchmark {
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**/*"};
+    private static final String[] NO_PATTERNS = {};
+    private static final ZipListener NO_LISTENER = (fileName, size) -> {
+    };
+
+    @Param({"1", "4", "8"})
+    private int numOfThreads;
+
+    @Param({"2000"})
+    private int numOfFiles;
+
+    private File sourceFolder;
+
+    @Setup(Level.Trial)
+    public void createSources() throws IOException {
+        sourceFolder = Files.createTempDirectory("cx-zip-benchmark").toFile();
+        Random random = new Random(numOfFiles);
+        for (int i = 0; i < numOfFiles; i++) {
+            File file = new File(sourceFolder, "module" + i % 50 + "/src/Source" + i + ".java");
+            FileUtils.writeStringToFile(file, generateSource(random, 2 * 1024 + random.nextInt(30 * 1024)), StandardCharsets.UTF_8);
+        }
+        for (int i = 0; i < 4; i++) {
+            FileUtils.writeStringToFile(new File(sourceFolder, "generated/Big" + i + ".js"), generateSource(random, 6 * 1024 * 1024), StandardCharsets.UTF_8);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSources() {
+        FileUtils.deleteQuietly(sourceFolder);
+    }
+
+    @Benchmark
+    public long zipper() throws IOException {
+        CountingOutputStream outputStream = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        new Zipper().zip(sourceFolder, NO_PATTERNS, INCLUDE_ALL_PATTERNS, outputStream, Long.MAX_VALUE, NO_LISTENER);
+        return outputStream.getByteCount();
+    }
+
+    @Benchmark
+    public long parallelZipper() throws IOException {
+        CountingOutputStream outputStream = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        new ParallelZipper(numOfThreads, numOfThreads, CompressionPolicy.defaultPolicy(), Collections.emptyList(), null, null, null, false)
+                .zip(SourceRoots.of(sourceFolder), NO_PATTERNS, INCLUDE_ALL_PATTERNS, outputStream, Long.MAX_VALUE, NO_LISTENER);
+        return outputStream.getByteCount();
+    }
+
+    /**
+     * @return lines of identifiers and keywords, which compress about as well as source code
+     */
+    private static String generateSource(Random random, int size) {
+        String[] words = {"public", "private", "static", "final", "class", "return", "if", "else", "for", "new", "int", "String", "value", "count",
+                "result", "name", "index", "(", ")", "{", "}", ";", "=", "+", "."};
+        StringBuilder source = new StringBuilder(size + 64);
+        while (source.length() < size) {
+            int numOfWords = 3 + random.nextInt(10);
+            for (int i = 0; i < numOfWords; i++) {
+                source.append(words[random.nextInt(words.length)]).append(i % 3 == 0 ? random.nextInt(100) : "").append(' ');
+            }
+            source.append('\n');
+        }
+        return source.toString();
+    }
+}
@@ -1,6 +1,8 @@
 package com.checkmarx.cxconsole;
 
 import com.checkmarx.cxconsole.clients.login.CxRestLoginClientImpl;
+import com.checkmarx.cxconsole.clients.utils.HttpConnectionPool;
+import com.checkmarx.cxconsole.clients.utils.MetadataCache;
 import com.checkmarx.cxconsole.clients.login.utils.SSLUtilities;
 import com.checkmarx.cxconsole.commands.CLICommand;
 import com.checkmarx.cxconsole.commands.CommandFactory;
@@ -96,6 +98,8 @@ public class CxConsoleLauncher {
             return errorCodeResolver(e.getMessage());
         }
 
+        MetadataCache.setEnabled(!cliScanParametersSingleton.getCliSharedParameters().isNoCache());
+
         if(cliScanParametersSingleton.getCliSharedParameters().isTrustAllCertificates()) {
             SSLUtilities.trustAllHostnames();
             SSLUtilities.trustAllHttpsCertificates();
@@ -109,6 +113,8 @@ public class CxConsoleLauncher {
         } catch (CLICommandException e) {
             log.error(e.getMessage());
             return errorCodeResolver(e.getMessage());
+        } finally {
+            HttpConnectionPool.logStats();
         }
     }
 
@@ -146,4 +152,4 @@ public class CxConsoleLauncher {
     public static String[] getArgumentsLessCommandName() {
         return argumentsLessCommandName;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -11,9 +11,15 @@ import java.util.List;
  */
 public interface CxRestGeneralClient {
 
-    List<TeamDTO> getTeams() throws CxRestGeneralClientException;
-
-    List<ProjectDTO> getProjects() throws CxRestGeneralClientException;
+    /**
+     * @param mustRevalidate cached teams are used only if they were validated with the server in this run
+     */
+    List<TeamDTO> getTeams(boolean mustRevalidate) throws CxRestGeneralClientException;
+
+    /**
+     * @param mustRevalidate cached projects are used only if they were validated with the server in this run
+     */
+    List<ProjectDTO> getProjects(boolean mustRevalidate) throws CxRestGeneralClientException;
 
     int createNewProject(ProjectDTO projectToCreate) throws CxRestGeneralClientException;
 
@@ -8,6 +8,7 @@ import com.checkmarx.cxconsole.clients.general.utils.GeneralHttpEntityBuilder;
 import com.checkmarx.cxconsole.clients.general.utils.GeneralResourceURIBuilder;
 import com.checkmarx.cxconsole.clients.login.CxRestLoginClient;
 import com.checkmarx.cxconsole.clients.sast.utils.SastResourceURIBuilder;
+import com.checkmarx.cxconsole.clients.utils.MetadataCache;
 import com.checkmarx.cxconsole.clients.utils.RestClientUtils;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import org.apache.http.Header;
@@ -25,8 +26,6 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.List;
 
-import static com.checkmarx.cxconsole.clients.utils.RestClientUtils.parseJsonListFromResponse;
-
 /**
  * Created by nirli on 27/02/2018.
  */
@@ -36,6 +35,7 @@ public class CxRestGeneralClientImpl implements CxRestGeneralClient {
 
     private HttpClient client;
     private String hostName;
+    private final MetadataCache metadataCache;
     private static final Header CLI_CONTENT_TYPE_AND_VERSION_HEADER = new BasicHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.getMimeType() + ";v=1.0");
     private static final Header CLI_ACCEPT_AND_VERSION_HEADER = new BasicHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.getMimeType() + ";v=1.0");
 
@@ -43,47 +43,34 @@ public class CxRestGeneralClientImpl implements CxRestGeneralClient {
     public CxRestGeneralClientImpl(CxRestLoginClient restClient) {
         this.client = restClient.getClient();
         this.hostName = restClient.getHostName();
+        this.metadataCache = MetadataCache.open(hostName, restClient.getUserKey());
     }
 
     @Override
-    public List<TeamDTO> getTeams() throws CxRestGeneralClientException {
-        HttpResponse response = null;
-        HttpUriRequest getRequest;
-
+    public List<TeamDTO> getTeams(boolean mustRevalidate) throws CxRestGeneralClientException {
         try {
-            getRequest = RequestBuilder.get()
+            HttpUriRequest getRequest = RequestBuilder.get()
                     .setUri(String.valueOf(GeneralResourceURIBuilder.buildGetTeamsURL(new URL(hostName))))
                     .setHeader(CLI_ACCEPT_AND_VERSION_HEADER)
                     .build();
-            response = client.execute(getRequest);
-
-            RestClientUtils.validateClientResponse(response, 200, "Failed to get teams");
-            return parseJsonListFromResponse(response, TypeFactory.defaultInstance().constructCollectionType(List.class, TeamDTO.class));
+            return metadataCache.readJson(client, getRequest, TypeFactory.defaultInstance().constructCollectionType(List.class, TeamDTO.class),
+                    "Failed to get teams", mustRevalidate);
         } catch (IOException | CxValidateResponseException e) {
             throw new CxRestGeneralClientException("Failed to get teams: " + e.getMessage());
-        } finally {
-            HttpClientUtils.closeQuietly(response);
         }
     }
 
     @Override
-    public List<ProjectDTO> getProjects() throws CxRestGeneralClientException {
-        HttpResponse response = null;
-        HttpUriRequest getRequest;
-
+    public List<ProjectDTO> getProjects(boolean mustRevalidate) throws CxRestGeneralClientException {
         try {
-            getRequest = RequestBuilder.get()
+            HttpUriRequest getRequest = RequestBuilder.get()
                     .setUri(String.valueOf(GeneralResourceURIBuilder.buildProjectsURL(new URL(hostName))))
                     .setHeader(CLI_ACCEPT_AND_VERSION_HEADER)
                     .build();
-            response = client.execute(getRequest);
-
-            RestClientUtils.validateClientResponse(response, 200, "Failed to get projects");
-            return parseJsonListFromResponse(response, TypeFactory.defaultInstance().constructCollectionType(List.class, ProjectDTO.class));
+            return metadataCache.readJson(client, getRequest, TypeFactory.defaultInstance().constructCollectionType(List.class, ProjectDTO.class),
+                    "Failed to get projects", mustRevalidate);
         } catch (IOException | CxValidateResponseException e) {
             throw new CxRestGeneralClientException("Failed to get projects: " + e.getMessage());
-        } finally {
-            HttpClientUtils.closeQuietly(response);
         }
     }
 
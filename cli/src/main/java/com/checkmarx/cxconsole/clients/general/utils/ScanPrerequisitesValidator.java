@@ -16,6 +16,10 @@ import java.util.List;
 
 /**
  * Created by nirli on 26/02/2018.
+ * The teams, presets and engine configurations may come from the metadata cache, so a lookup which does not find its value looks it up
+ * again in metadata which is revalidated with the server, before the value counts as missing. A value which was found in the cache may
+ * have been deleted or recreated since, so a scan whose set up fails revalidates them and tries once more.
+ * The projects are always revalidated, since whether the project exists decides whether it is created.
  */
 public class ScanPrerequisitesValidator {
 
@@ -55,9 +59,9 @@ public class ScanPrerequisitesValidator {
 
     private void validateSASTScanPrerequisites() throws CxScanPrerequisitesValidatorException {
         try {
-            validateScanTeam();
-            validateScanPreset();
-            validateScanEngineConfiguration();
+            validateScanTeam(false);
+            validateScanPreset(false);
+            validateScanEngineConfiguration(false);
             isProjectExists = findProjectOnServer();
         } catch (CxRestGeneralClientException | CxRestSASTClientException e) {
             throw new CxScanPrerequisitesValidatorException(e);
@@ -65,9 +69,27 @@ public class ScanPrerequisitesValidator {
         log.info("SAST scan prerequisites were validated successfully");
     }
 
+    /**
+     * Looks up the team, preset and engine configuration again, in metadata which is revalidated with the server
+     */
+    public void revalidateSASTScanPrerequisites() throws CxScanPrerequisitesValidatorException {
+        projectInput.setTeamId(null);
+        presetInput.setId(UNASSIGNED_VALUE);
+        engineConfigurationInput.setId(UNASSIGNED_VALUE);
+        try {
+            validateScanTeam(true);
+            validateScanPreset(true);
+            validateScanEngineConfiguration(true);
+            isProjectExists = findProjectOnServer();
+        } catch (CxRestGeneralClientException | CxRestSASTClientException e) {
+            throw new CxScanPrerequisitesValidatorException(e);
+        }
+        log.info("SAST scan prerequisites were revalidated successfully");
+    }
+
     private void validateOSAScanPrerequisites() throws CxScanPrerequisitesValidatorException {
         try {
-            validateScanTeam();
+            validateScanTeam(false);
             isProjectExists = findProjectOnServer();
         } catch (CxRestGeneralClientException e) {
             throw new CxScanPrerequisitesValidatorException(e);
@@ -89,7 +111,7 @@ public class ScanPrerequisitesValidator {
     }
 
     private boolean findProjectOnServer() throws CxRestGeneralClientException {
-        final List<ProjectDTO> projects = cxRestGeneralClient.getProjects();
+        final List<ProjectDTO> projects = cxRestGeneralClient.getProjects(true);
         for (ProjectDTO project : projects) {
             if (project.getTeamId().equals(projectInput.getTeamId()) &&
                     (project.getName().equals(projectInput.getName()))) {
@@ -101,21 +123,31 @@ public class ScanPrerequisitesValidator {
         return false;
     }
 
-    private void validateScanEngineConfiguration() throws CxScanPrerequisitesValidatorException, CxRestSASTClientException {
-        final List<EngineConfigurationDTO> engineConfigurations = cxRestSASTClient.getEngineConfiguration();
+    private void validateScanEngineConfiguration(boolean mustRevalidate) throws CxScanPrerequisitesValidatorException, CxRestSASTClientException {
+        if (!(!mustRevalidate && findEngineConfiguration(false)) && !findEngineConfiguration(true)) {
+            throw new CxScanPrerequisitesValidatorException("Engine configuration: \"" + engineConfigurationInput.getName() + "\" was not found in server");
+        }
+    }
+
+    private boolean findEngineConfiguration(boolean mustRevalidate) throws CxRestSASTClientException {
+        final List<EngineConfigurationDTO> engineConfigurations = cxRestSASTClient.getEngineConfiguration(mustRevalidate);
         for (EngineConfigurationDTO engineConfiguration : engineConfigurations) {
             if (engineConfiguration.getName().equalsIgnoreCase(engineConfigurationInput.getName())) {
                 engineConfigurationInput.setId(engineConfiguration.getId());
                 log.info("Engine configuration: \"" + engineConfigurationInput.getName() + "\" was validated in server");
             }
         }
-        if (engineConfigurationInput.getId() == UNASSIGNED_VALUE) {
-            throw new CxScanPrerequisitesValidatorException("Engine configuration: \"" + engineConfigurationInput.getName() + "\" was not found in server");
+        return engineConfigurationInput.getId() != UNASSIGNED_VALUE;
+    }
+
+    private void validateScanPreset(boolean mustRevalidate) throws CxScanPrerequisitesValidatorException, CxRestSASTClientException {
+        if (!(!mustRevalidate && findPreset(false)) && !findPreset(true)) {
+            throw new CxScanPrerequisitesValidatorException("Preset: \"" + presetInput.getName() + "\" was not found in server");
         }
     }
 
-    private void validateScanPreset() throws CxScanPrerequisitesValidatorException, CxRestSASTClientException {
-        final List<PresetDTO> presets = cxRestSASTClient.getSastPresets();
+    private boolean findPreset(boolean mustRevalidate) throws CxRestSASTClientException {
+        final List<PresetDTO> presets = cxRestSASTClient.getSastPresets(mustRevalidate);
         for (PresetDTO preset : presets) {
             if (preset.getName().equalsIgnoreCase(presetInput.getName())) {
                 presetInput.setId(preset.getId());
@@ -123,13 +155,18 @@ public class ScanPrerequisitesValidator {
                 log.trace("Preset id: " + presetInput.getId());
             }
         }
-        if (presetInput.getId() == UNASSIGNED_VALUE) {
-            throw new CxScanPrerequisitesValidatorException("Preset: \"" + presetInput.getName() + "\" was not found in server");
+        return presetInput.getId() != UNASSIGNED_VALUE;
+    }
+
+    private void validateScanTeam(boolean mustRevalidate) throws CxScanPrerequisitesValidatorException, CxRestGeneralClientException {
+        if (!(!mustRevalidate && findTeam(false)) && !findTeam(true)) {
+            log.info("Team: \"" + teamInput.getFullName() + "\" was not found in server");
+            throw new CxScanPrerequisitesValidatorException("Team: \"" + teamInput.getFullName() + "\" was not found in server");
         }
     }
 
-    private void validateScanTeam() throws CxScanPrerequisitesValidatorException, CxRestGeneralClientException {
-        final List<TeamDTO> teams = cxRestGeneralClient.getTeams();
+    private boolean findTeam(boolean mustRevalidate) throws CxRestGeneralClientException {
+        final List<TeamDTO> teams = cxRestGeneralClient.getTeams(mustRevalidate);
         for (TeamDTO team : teams) {
             if (team.getFullName().replace("/", "\\").equalsIgnoreCase(teamInput.getFullName())) {
                 teamInput.setId(team.getId());
@@ -138,10 +175,7 @@ public class ScanPrerequisitesValidator {
                 log.trace("Team id: " + teamInput.getId());
             }
         }
-        if (Strings.isNullOrEmpty(projectInput.getTeamId())) {
-            log.info("Team: \"" + teamInput.getFullName() + "\" was not found in server");
-            throw new CxScanPrerequisitesValidatorException("Team: \"" + teamInput.getFullName() + "\" was not found in server");
-        }
+        return !Strings.isNullOrEmpty(projectInput.getTeamId());
     }
 
     public boolean isProjectExists() {
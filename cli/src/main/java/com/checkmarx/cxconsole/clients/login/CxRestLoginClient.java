@@ -24,4 +24,9 @@ public interface CxRestLoginClient {
     boolean isCredentialsLogin();
 
     boolean isTokenLogin();
+
+    /**
+     * @return identifies the user the client logs in as, for the caches of what the user may see. It may hold a secret, so it is not to be logged
+     */
+    String getUserKey();
 }
@@ -8,9 +8,9 @@ import com.checkmarx.cxconsole.clients.login.dto.RestGetAccessTokenDTO;
 import com.checkmarx.cxconsole.clients.login.exceptions.CxRestLoginClientException;
 import com.checkmarx.cxconsole.clients.login.utils.LoginResourceURIBuilder;
 import com.checkmarx.cxconsole.clients.sast.utils.SastHttpEntityBuilder;
+import com.checkmarx.cxconsole.clients.utils.HttpConnectionPool;
 import com.checkmarx.cxconsole.clients.utils.RestClientUtils;
 import com.google.common.base.Strings;
-import com.google.gson.Gson;
 import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
@@ -37,22 +37,16 @@ import org.apache.http.impl.auth.win.WindowsCredentialsProvider;
 import org.apache.http.impl.auth.win.WindowsNTLMSchemeFactory;
 import org.apache.http.impl.auth.win.WindowsNegotiateSchemeFactory;
 import org.apache.http.impl.client.BasicCookieStore;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.SystemDefaultCredentialsProvider;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.protocol.HTTP;
-import org.apache.http.ssl.SSLContextBuilder;
-import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 
-import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -65,7 +59,6 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
 
     private static final String CX_COOKIE = "cxCookie";
     private static final String CSRF_TOKEN_HEADER = "CXCSRFToken";
-    private static final String TLS_PROTOCOL = "TLSv1.2";
     private static final String AUTH_API_URL = "/cxrestapi/auth/";
     private static Logger log = Logger.getLogger(CxRestLoginClientImpl.class);
 
@@ -87,41 +80,19 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
     private String cxCookie = null;
     private String csrfToken = null;
 
-    private static final boolean IS_PROXY = Boolean.parseBoolean(System.getProperty("proxySet"));
-    private static final String PROXY_HOST;
-    private static final String PROXY_PORT;
     private CxRestGeneralClient generalClient;
 
-    static {
-        PROXY_PORT = System.getProperty("http.proxyPort") == null
-                ? System.getProperty("https.proxyPort")
-                : System.getProperty("http.proxyPort");
-
-        PROXY_HOST = System.getProperty("http.proxyHost") == null
-                ? System.getProperty("https.proxyHost")
-                : System.getProperty("http.proxyHost");
-    }
-
-
     public CxRestLoginClientImpl(String hostname, String token) {
         this.hostName = hostname;
         this.token = token;
         this.username = null;
         this.password = null;
 
-        final HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-        if (IS_PROXY) {
-            RestClientUtils.setClientProxy(clientBuilder, PROXY_HOST, Integer.parseInt(PROXY_PORT));
-        }
-
-        SSLContext sslContext = generateSSLContext(TLS_PROTOCOL, log);
-        client = HttpClientBuilder.create().build();
         try {
             headers.add(CLI_ORIGIN_HEADER);
-            client = clientBuilder
+            client = HttpConnectionPool.newClientBuilder()
                     .setDefaultHeaders(headers)
                     .useSystemProperties()
-                    .setSSLContext(sslContext)
                     .build();
 
             getAccessTokenFromRefreshToken(token);
@@ -141,17 +112,10 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
         this.password = password;
         this.token = null;
 
-        final HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-        if (IS_PROXY) {
-            RestClientUtils.setClientProxy(clientBuilder, PROXY_HOST, Integer.parseInt(PROXY_PORT));
-        }
-
-        SSLContext sslContext = generateSSLContext(TLS_PROTOCOL, log);
         headers.add(CLI_ORIGIN_HEADER);
-        client = clientBuilder
+        client = HttpConnectionPool.newClientBuilder()
                 .useSystemProperties()
                 .setDefaultHeaders(headers)
-                .setSSLContext(sslContext)
                 .build();
     }
 
@@ -162,7 +126,6 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
         this.token = null;
 
         headers.add(CLI_ORIGIN_HEADER);
-        SSLContext sslContext = generateSSLContext(TLS_PROTOCOL, log);
         final Registry<AuthSchemeProvider> authSchemeRegistry = RegistryBuilder.<AuthSchemeProvider>create()
                 .register(AuthSchemes.BASIC, new BasicSchemeFactory())
                 .register(AuthSchemes.DIGEST, new DigestSchemeFactory())
@@ -170,18 +133,12 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
                 .register(AuthSchemes.SPNEGO, new WindowsNegotiateSchemeFactory(null))
                 .build();
         final CredentialsProvider credsProvider = new WindowsCredentialsProvider(new SystemDefaultCredentialsProvider());
-        final HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-        if (IS_PROXY) {
-            RestClientUtils.setClientProxy(clientBuilder, PROXY_HOST, Integer.parseInt(PROXY_PORT));
-        }
-
-        client = clientBuilder
+        client = HttpConnectionPool.newClientBuilder()
                 .useSystemProperties()
                 .setDefaultCredentialsProvider(credsProvider)
                 .setDefaultAuthSchemeRegistry(authSchemeRegistry)
                 .setDefaultCookieStore(cookieStore)
                 .setDefaultHeaders(headers)
-                .setSSLContext(sslContext)
                 .build();
 
         this.generalClient = new CxRestGeneralClientImpl(this);
@@ -201,16 +158,8 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
 
             RestClientUtils.validateTokenResponse(loginResponse, 200, FAIL_TO_VALIDATE_TOKEN_RESPONSE_ERROR);
             RestGetAccessTokenDTO jsonResponse = RestClientUtils.parseJsonFromResponse(loginResponse, RestGetAccessTokenDTO.class);
+            //The client sends the default headers of the list as they are when a request is sent, so it sends the token without being built again
             headers.add(new BasicHeader("Authorization", "Bearer " + jsonResponse.getAccessToken()));
-            SSLContext sslContext = generateSSLContext(TLS_PROTOCOL, log);
-            client = HttpClientBuilder.create().setDefaultHeaders(headers).setSSLContext(sslContext).build();
-            final HttpClientBuilder clientBuilder = HttpClientBuilder.create().setDefaultHeaders(headers);
-            if (IS_PROXY) {
-                RestClientUtils.setClientProxy(clientBuilder, PROXY_HOST, Integer.parseInt(PROXY_PORT));
-            }
-            client = clientBuilder
-                    .useSystemProperties()
-                    .build();
             isLoggedIn = true;
         } catch (IOException | CxValidateResponseException e) {
             log.error("Fail to login with credentials: " + e.getMessage());
@@ -223,8 +172,7 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
     @Override
     public void tokenLogin() throws CxRestLoginClientException {
         if (headers.size() == 2) {
-            SSLContext sslContext = generateSSLContext(TLS_PROTOCOL, log);
-            client = HttpClientBuilder.create().setDefaultHeaders(headers).setSSLContext(sslContext).build();
+            //The token was added to the default headers of the client by the constructor
             isLoggedIn = true;
         } else {
             throw new CxRestLoginClientException("Login failed");
@@ -321,11 +269,7 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
         headers.add(new BasicHeader(CSRF_TOKEN_HEADER, csrfToken));
         headers.add(new BasicHeader("cookie", String.format("CXCSRFToken=%s; cxCookie=%s", csrfToken, cxCookie)));
 
-        final HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-        if (IS_PROXY) {
-            RestClientUtils.setClientProxy(clientBuilder, PROXY_HOST, Integer.parseInt(PROXY_PORT));
-        }
-        client = clientBuilder
+        client = HttpConnectionPool.newClientBuilder()
                 .useSystemProperties()
                 .setDefaultHeaders(headers).build();
         isLoggedIn = true;
@@ -401,14 +345,15 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
         return !Strings.isNullOrEmpty(token);
     }
 
-    private SSLContext generateSSLContext(String protocol, Logger log) {
-        SSLContext sslContext = null;
-        try {
-            sslContext = SSLContextBuilder.create().setProtocol(protocol).build();
-        } catch (NoSuchAlgorithmException | KeyManagementException e) {
-            log.warn("Failed to build SSL context error was: " + e.getMessage());
+    @Override
+    public String getUserKey() {
+        if (isCredentialsLogin()) {
+            return "user:" + username;
+        }
+        if (isTokenLogin()) {
+            return "token:" + token;
         }
-        return sslContext;
+        return "sso:" + System.getProperty("user.name");
     }
 
     private StringEntity generateEntity() throws CxRestLoginClientException, IOException {
@@ -444,8 +389,7 @@ public class CxRestLoginClientImpl implements CxRestLoginClient {
                 .build();
         final HttpResponse response = client.execute(request);
 
-        String entity = EntityUtils.toString(response.getEntity());
-        final Provider[] providers = new Gson().fromJson(entity, Provider[].class);
+        final Provider[] providers = RestClientUtils.parseJsonFromResponse(response, Provider[].class);
         final Provider provider = Arrays.stream(providers)
                 .filter(p -> p.getName().equalsIgnoreCase(providerName))
                 .findFirst()
@@ -2,8 +2,8 @@ package com.checkmarx.cxconsole.clients.osa.utils;
 
 import com.checkmarx.cxconsole.clients.exception.CxRestClientException;
 import com.checkmarx.cxconsole.clients.osa.dto.CreateOSAScanRequest;
+import com.checkmarx.cxconsole.clients.utils.JsonMappers;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 
@@ -19,10 +19,9 @@ public class OsaHttpEntityBuilder {
     private static final String ERROR_MESSAGE_PREFIX = "Failed to create body entity, due to: ";
 
     public static StringEntity createOsaFSAEntity(CreateOSAScanRequest osaScanRequest) throws CxRestClientException {
-        ObjectMapper mapper = new ObjectMapper();
         String osaScanRequestStr;
         try {
-            osaScanRequestStr = mapper.writeValueAsString(osaScanRequest);
+            osaScanRequestStr = JsonMappers.getObjectMapper().writeValueAsString(osaScanRequest);
             return new StringEntity(osaScanRequestStr, ContentType.APPLICATION_JSON);
         } catch (JsonProcessingException e) {
             throw new CxRestClientException(ERROR_MESSAGE_PREFIX + e.getMessage());
@@ -1,7 +1,10 @@
 package com.checkmarx.cxconsole.clients.osa.utils;
 
 import com.checkmarx.cxconsole.clients.osa.dto.CreateOSAScanRequest;
+import com.checkmarx.cxconsole.packaging.FileHashCache;
+import com.checkmarx.cxconsole.packaging.SourceFingerprint;
 import com.checkmarx.cxconsole.parameters.CLIOSAParameters;
+import com.checkmarx.cxconsole.utils.ConfigMgr;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
@@ -9,10 +12,14 @@ import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.whitesource.fs.ComponentScan;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Properties;
 import java.io.File;
+import java.util.TreeSet;
 
 import static com.checkmarx.cxconsole.clients.osa.utils.OsaWSFSAUtil.StringType.*;
 
@@ -31,6 +38,7 @@ public class OsaWSFSAUtil {
             "go", "goc", "js", "plx", "pm", "ph", "cgi", "fcgi", "psgi", "al", "perl", "t", "p6m", "p6l", "nqp,6pl",
             "6pm", "p6", "php", "py", "rb", "swift", "clj", "cljx", "cljs", "cljc"};
     private static final String ALL_FILES = "**/**";
+    private static final String PREVIOUS_DEPENDENCIES_DIR_NAME = "osa_dependencies";
 
     enum StringType {BASE_DIRECTORIES, OSA_FOLDER_EXCLUDE, OSA_INCLUDE_FILES, OSA_EXCLUDE_FILES, OSA_EXTRACTABLE_FILES}
 
@@ -153,10 +161,17 @@ public class OsaWSFSAUtil {
             Properties scannerProperties = generateOsaScanProperties(osaLocationPath, cliosaParametersr);
             log.trace("Scanner properties: " + mapper.writerWithDefaultPrettyPrinter().writeValueAsString(scannerProperties.toString()));
             log.info("Generated FSA properties for analysis");
-            ComponentScan componentScan = new ComponentScan(scannerProperties);
-            log.info("Starting FSA component scan");
-            osaDependenciesJson = componentScan.scan();
-            log.info("FSA Dependencies Found");
+            String scanFingerprint = getScanFingerprint(osaLocationPath, scannerProperties, cliosaParametersr);
+            osaDependenciesJson = loadPreviousDependencies(scannerProperties, osaLocationPath, scanFingerprint);
+            if (osaDependenciesJson != null) {
+                log.info("OSA files did not change since the previous FSA component scan, its dependencies are reused");
+            } else {
+                ComponentScan componentScan = new ComponentScan(scannerProperties);
+                log.info("Starting FSA component scan");
+                osaDependenciesJson = componentScan.scan();
+                log.info("FSA Dependencies Found");
+                savePreviousDependencies(scannerProperties, osaLocationPath, scanFingerprint, osaDependenciesJson);
+            }
             log.trace("List of files sent to WhiteSource: " + mapper.writerWithDefaultPrettyPrinter().writeValueAsString(osaDependenciesJson));
         } catch (JsonProcessingException e) {
             log.error("Can't write properties and list of files sent to WS " + e.getMessage());
@@ -166,6 +181,70 @@ public class OsaWSFSAUtil {
         return new CreateOSAScanRequest(projectId, osaDependenciesJson);
     }
 
+    /**
+     * @return the fingerprint of the content of the OSA folders, or null when the dependencies of a previous scan cannot be reused
+     */
+    private static String getScanFingerprint(String[] osaLocationPath, Properties scannerProperties, CLIOSAParameters cliosaParameters) {
+        FileHashCache fileHashCache = FileHashCache.getDefault();
+        //Dependencies which are resolved by the package managers depend on more than the content of the folders
+        if (fileHashCache == null || cliosaParameters.isExecuteNpmAndBower() || cliosaParameters.isExecutePackageDependency()) {
+            return null;
+        }
+        for (String path : osaLocationPath) {
+            if (path == null || !new File(path.trim()).isDirectory()) {
+                return null;
+            }
+        }
+        try {
+            return SourceFingerprint.ofFolders(osaLocationPath, Runtime.getRuntime().availableProcessors(), fileHashCache).getValue();
+        } catch (IOException e) {
+            log.debug("Cannot fingerprint OSA files: " + e.getMessage());
+            return null;
+        } finally {
+            fileHashCache.flush();
+        }
+    }
+
+    private static String loadPreviousDependencies(Properties scannerProperties, String[] osaLocationPath, String scanFingerprint) {
+        File previousDependenciesFile = getPreviousDependenciesFile(scannerProperties, osaLocationPath);
+        if (scanFingerprint == null || !previousDependenciesFile.isFile()) {
+            return null;
+        }
+        try {
+            String previousDependencies = FileUtils.readFileToString(previousDependenciesFile, StandardCharsets.UTF_8);
+            String fingerprintLine = scanFingerprint + "\n";
+            return previousDependencies.startsWith(fingerprintLine) ? previousDependencies.substring(fingerprintLine.length()) : null;
+        } catch (IOException e) {
+            log.debug("Cannot read previous OSA dependencies: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void savePreviousDependencies(Properties scannerProperties, String[] osaLocationPath, String scanFingerprint, String osaDependenciesJson) {
+        if (scanFingerprint == null || osaDependenciesJson == null) {
+            return;
+        }
+        try {
+            FileUtils.writeStringToFile(getPreviousDependenciesFile(scannerProperties, osaLocationPath), scanFingerprint + "\n" + osaDependenciesJson, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.debug("Cannot save OSA dependencies for the next scan: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Dependencies are kept per set of folders and FSA properties, so scans of other projects or with other settings do not replace them
+     */
+    private static File getPreviousDependenciesFile(Properties scannerProperties, String[] osaLocationPath) {
+        StringBuilder scanSettings = new StringBuilder(Arrays.toString(osaLocationPath));
+        for (String key : new TreeSet<>(scannerProperties.stringPropertyNames())) {
+            scanSettings.append('\n').append(key).append('=').append(scannerProperties.getProperty(key));
+        }
+        scanSettings.append('\n').append(Arrays.toString(ACCEPT_EXTENSIONS_LISTS));
+        byte[] settings = scanSettings.toString().getBytes(StandardCharsets.UTF_8);
+        String settingsHash = FileHashCache.hash(settings, settings.length).getSha1Hex();
+        return new File(new File(ConfigMgr.getCfgMgr().getCacheDirectory(), PREVIOUS_DEPENDENCIES_DIR_NAME), settingsHash + ".json");
+    }
+
     private static void writeFSAResults(String logPath, String results, Logger log) {
         try {
             File file = new File(logPath, "OSADependencies.json");
@@ -11,6 +11,7 @@ import com.checkmarx.cxconsole.clients.sast.dto.*;
 import com.checkmarx.cxconsole.clients.sast.exceptions.CxRestSASTClientException;
 
 import java.io.File;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.List;
 
@@ -19,9 +20,15 @@ import java.util.List;
  */
 public interface CxRestSASTClient<T extends RemoteSourceScanSettingDTO> extends CxRestClient {
 
-    List<PresetDTO> getSastPresets() throws CxRestSASTClientException;
+    /**
+     * @param mustRevalidate cached presets are used only if they were validated with the server in this run
+     */
+    List<PresetDTO> getSastPresets(boolean mustRevalidate) throws CxRestSASTClientException;
 
-    List<EngineConfigurationDTO> getEngineConfiguration() throws CxRestSASTClientException;
+    /**
+     * @param mustRevalidate cached engine configurations are used only if they were validated with the server in this run
+     */
+    List<EngineConfigurationDTO> getEngineConfiguration(boolean mustRevalidate) throws CxRestSASTClientException;
 
     ScanSettingDTO getProjectScanSetting(int id) throws CxRestSASTClientException;
 
@@ -37,6 +44,10 @@ public interface CxRestSASTClient<T extends RemoteSourceScanSettingDTO> extends
 
     void uploadZipFileForSASTScan(int projectId, byte[] zipFile) throws CxRestSASTClientException;
 
+    void uploadZipFileForSASTScan(int projectId, InputStream zipFileStream) throws CxRestSASTClientException;
+
+    void uploadZipFileForSASTScan(int projectId, File zipFile) throws CxRestSASTClientException;
+
     ScanQueueDTO getScanQueueResponse(long scanId) throws CxRestSASTClientException;
 
     void createRemoteSourceScan(int projectId, T remoteSourceScanSettingDTO, RemoteSourceType remoteSourceType) throws CxRestSASTClientException;
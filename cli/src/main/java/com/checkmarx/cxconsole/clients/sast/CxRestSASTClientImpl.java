@@ -14,15 +14,21 @@ import com.checkmarx.cxconsole.clients.sast.dto.*;
 import com.checkmarx.cxconsole.clients.sast.exceptions.CxRestSASTClientException;
 import com.checkmarx.cxconsole.clients.sast.utils.SastHttpEntityBuilder;
 import com.checkmarx.cxconsole.clients.sast.utils.SastResourceURIBuilder;
+import com.checkmarx.cxconsole.clients.utils.MetadataCache;
 import com.checkmarx.cxconsole.clients.utils.RestClientUtils;
+import com.checkmarx.cxconsole.clients.utils.UploadProgressEntity;
 import com.checkmarx.cxconsole.commands.utils.FilesUtils;
+import com.checkmarx.cxconsole.packaging.UploadThroughputHistory;
+import com.checkmarx.cxconsole.utils.ConfigMgr;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
 import org.apache.http.client.utils.HttpClientUtils;
@@ -35,8 +41,10 @@ import org.json.JSONObject;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static com.checkmarx.cxconsole.clients.utils.RestClientUtils.*;
 
@@ -49,56 +57,47 @@ public class CxRestSASTClientImpl<T extends RemoteSourceScanSettingDTO> implemen
 
     private HttpClient client;
     private String hostName;
+    private final MetadataCache metadataCache;
     private static final Header CLI_CONTENT_TYPE_AND_VERSION_HEADER = new BasicHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.getMimeType() + ";v=1.0");
     private static final Header CLI_ACCEPT_HEADER_AND_VERSION_HEADER = new BasicHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.getMimeType() + ";v=1.0");
 
     private static final String PARSING_ERROR = "Failed due to parsing error: ";
+    private static final long BYTES_PER_MEGABIT = 1000L * 1000 / 8;
+    //The server is given this many times the expected upload time to store the uploaded sources
+    private static final int UPLOAD_TIMEOUT_FACTOR = 3;
     private static final String FAIL_TO_VALIDATE_TOKEN_RESPONSE_ERROR = " User authentication failed";
 
     public CxRestSASTClientImpl(CxRestLoginClient restClient) {
         this.client = restClient.getClient();
         this.hostName = restClient.getHostName();
+        this.metadataCache = MetadataCache.open(hostName, restClient.getUserKey());
     }
 
     @Override
-    public List<PresetDTO> getSastPresets() throws CxRestSASTClientException {
-        HttpResponse response = null;
-        HttpUriRequest getRequest;
-
+    public List<PresetDTO> getSastPresets(boolean mustRevalidate) throws CxRestSASTClientException {
         try {
-            getRequest = RequestBuilder.get()
+            HttpUriRequest getRequest = RequestBuilder.get()
                     .setUri(String.valueOf(SastResourceURIBuilder.buildGetSastPresetsURL(new URL(hostName))))
                     .setHeader(CLI_ACCEPT_HEADER_AND_VERSION_HEADER)
                     .build();
-            response = client.execute(getRequest);
-
-            RestClientUtils.validateClientResponse(response, 200, "Failed to get presets");
-            return parseJsonListFromResponse(response, TypeFactory.defaultInstance().constructCollectionType(List.class, PresetDTO.class));
+            return metadataCache.readJson(client, getRequest, TypeFactory.defaultInstance().constructCollectionType(List.class, PresetDTO.class),
+                    "Failed to get presets", mustRevalidate);
         } catch (IOException | CxValidateResponseException e) {
             throw new CxRestSASTClientException("Failed to get presets: " + e.getMessage());
-        } finally {
-            HttpClientUtils.closeQuietly(response);
         }
     }
 
     @Override
-    public List<EngineConfigurationDTO> getEngineConfiguration() throws CxRestSASTClientException {
-        HttpResponse response = null;
-        HttpUriRequest getRequest;
-
+    public List<EngineConfigurationDTO> getEngineConfiguration(boolean mustRevalidate) throws CxRestSASTClientException {
         try {
-            getRequest = RequestBuilder.get()
+            HttpUriRequest getRequest = RequestBuilder.get()
                     .setUri(String.valueOf(SastResourceURIBuilder.buildGetEngineConfigurationURL(new URL(hostName))))
                     .setHeader(CLI_ACCEPT_HEADER_AND_VERSION_HEADER)
                     .build();
-            response = client.execute(getRequest);
-
-            RestClientUtils.validateClientResponse(response, 200, "Failed to get engine configuration");
-            return parseJsonListFromResponse(response, TypeFactory.defaultInstance().constructCollectionType(List.class, EngineConfigurationDTO.class));
+            return metadataCache.readJson(client, getRequest, TypeFactory.defaultInstance().constructCollectionType(List.class, EngineConfigurationDTO.class),
+                    "Failed to get engine configuration", mustRevalidate);
         } catch (IOException | CxValidateResponseException e) {
             throw new CxRestSASTClientException("Failed to get engine configuration: " + e.getMessage());
-        } finally {
-            HttpClientUtils.closeQuietly(response);
         }
     }
 
@@ -233,22 +232,50 @@ public class CxRestSASTClientImpl<T extends RemoteSourceScanSettingDTO> implemen
 
     @Override
     public void uploadZipFileForSASTScan(int projectId, byte[] zipFile) throws CxRestSASTClientException {
+        MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+        builder.addBinaryBody("zippedSource", zipFile, ContentType.APPLICATION_OCTET_STREAM, null);
+        uploadZipEntityForSASTScan(projectId, builder.build());
+    }
+
+    @Override
+    public void uploadZipFileForSASTScan(int projectId, InputStream zipFileStream) throws CxRestSASTClientException {
+        //The stream length is unknown, therefore the multipart body is sent with chunked transfer encoding
+        MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+        builder.addBinaryBody("zippedSource", zipFileStream, ContentType.APPLICATION_OCTET_STREAM, null);
+        uploadZipEntityForSASTScan(projectId, builder.build());
+    }
+
+    @Override
+    public void uploadZipFileForSASTScan(int projectId, File zipFile) throws CxRestSASTClientException {
+        //The file body streams the zip from disk, its length is known so no chunked transfer encoding is needed
+        MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+        builder.addBinaryBody("zippedSource", zipFile, ContentType.APPLICATION_OCTET_STREAM, zipFile.getName());
+        uploadZipEntityForSASTScan(projectId, builder.build());
+    }
+
+    private void uploadZipEntityForSASTScan(int projectId, HttpEntity multipart) throws CxRestSASTClientException {
         HttpResponse response = null;
         HttpUriRequest postRequest;
+        Integer progressInterval = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_UPLOAD_PROGRESS_INTERVAL);
+        long maxBytesPerSecond = getUploadMaxBytesPerSecond();
+        UploadProgressEntity uploadEntity = new UploadProgressEntity(multipart, progressInterval == null ? 0 : progressInterval, maxBytesPerSecond);
 
         try {
-            MultipartEntityBuilder builder = MultipartEntityBuilder.create();
-            builder.addBinaryBody("zippedSource", zipFile, ContentType.APPLICATION_OCTET_STREAM, null);
-            HttpEntity multipart = builder.build();
             postRequest = RequestBuilder.post()
                     .setUri(String.valueOf(SastResourceURIBuilder.buildUploadZipFileURL(new URL(hostName), projectId)))
-                    .setEntity(multipart)
+                    .setEntity(uploadEntity)
+                    .setConfig(createUploadRequestConfig(multipart.getContentLength(), maxBytesPerSecond))
                     .build();
-            log.info("Uploading zipped source files to server, please wait.");
+            log.info("Uploading zipped source files to server" + (maxBytesPerSecond > 0 ? " at up to " + FileUtils.byteCountToDisplaySize(maxBytesPerSecond) + "/s" : "")
+                    + ", please wait.");
             response = client.execute(postRequest);
 
             RestClientUtils.validateClientResponse(response, 204, "Failed to upload zip file for SAST scan");
             log.info("Zipped source files were uploaded successfully");
+            //A streamed body is sent as fast as it is zipped, and a limited rate is not the rate of the link, so neither is measured
+            if (multipart.getContentLength() >= 0 && maxBytesPerSecond == 0) {
+                UploadThroughputHistory.record(hostName, uploadEntity.getSentBytes(), uploadEntity.getSendMillis());
+            }
         } catch (IOException | CxValidateResponseException e) {
             throw new CxRestSASTClientException("Failed to upload zip file for SAST scan: " + e.getMessage());
         } finally {
@@ -256,6 +283,38 @@ public class CxRestSASTClientImpl<T extends RemoteSourceScanSettingDTO> implemen
         }
     }
 
+    /**
+     * @return the configured maximal upload rate, 0 - unlimited
+     */
+    private static long getUploadMaxBytesPerSecond() {
+        Integer maxMegabitsPerSecond = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_UPLOAD_MAX_MBPS);
+        return maxMegabitsPerSecond == null || maxMegabitsPerSecond <= 0 ? 0 : maxMegabitsPerSecond * BYTES_PER_MEGABIT;
+    }
+
+    /**
+     * The socket timeout limits the wait for the response once the sources were sent. The server stores the sources before it responds,
+     * which takes longer for bigger uploads, so the timeout grows with the upload time expected by the measured throughput.
+     */
+    private RequestConfig createUploadRequestConfig(long contentLength, long maxBytesPerSecond) {
+        Integer minTimeoutSeconds = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_UPLOAD_MIN_TIMEOUT);
+        if (minTimeoutSeconds == null || minTimeoutSeconds <= 0) {
+            return RequestConfig.DEFAULT;
+        }
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(minTimeoutSeconds);
+        Double bytesPerSecond = UploadThroughputHistory.getBytesPerSecond(hostName);
+        if (maxBytesPerSecond > 0 && (bytesPerSecond == null || bytesPerSecond > maxBytesPerSecond)) {
+            bytesPerSecond = (double) maxBytesPerSecond;
+        }
+        if (contentLength > 0 && bytesPerSecond != null && bytesPerSecond > 0) {
+            long expectedUploadMillis = (long) (contentLength * 1000 / bytesPerSecond);
+            timeoutMillis = Math.max(timeoutMillis, UPLOAD_TIMEOUT_FACTOR * expectedUploadMillis);
+        }
+        log.debug("Waiting up to " + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis) + " seconds for the server to accept the uploaded sources");
+        return RequestConfig.custom()
+                .setSocketTimeout((int) Math.min(Integer.MAX_VALUE, timeoutMillis))
+                .build();
+    }
+
     @Override
     public ScanQueueDTO getScanQueueResponse(long scanId) throws CxRestSASTClientException {
         HttpResponse response = null;
@@ -6,8 +6,8 @@ import com.checkmarx.cxconsole.clients.sast.constants.ReportType;
 import com.checkmarx.cxconsole.clients.sast.dto.RemoteSourceScanSettingDTO;
 import com.checkmarx.cxconsole.clients.sast.dto.ScanSettingDTO;
 import com.checkmarx.cxconsole.clients.sast.exceptions.CxRestSASTClientException;
+import com.checkmarx.cxconsole.clients.utils.JsonMappers;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
@@ -43,10 +43,9 @@ public class SastHttpEntityBuilder {
     }
 
     public static StringEntity createScanSettingEntity(ScanSettingDTO scanSetting) throws CxRestSASTClientException {
-        ObjectMapper mapper = new ObjectMapper();
         String jsonInString;
         try {
-            jsonInString = mapper.writeValueAsString(scanSetting);
+            jsonInString = JsonMappers.getObjectMapper().writeValueAsString(scanSetting);
         } catch (JsonProcessingException e) {
             throw new CxRestSASTClientException("Error creating JSON string from scan setting" + e.getMessage());
         }
@@ -79,10 +78,9 @@ public class SastHttpEntityBuilder {
     }
 
     public static <T extends RemoteSourceScanSettingDTO> HttpEntity createRemoteSourceEntity(T remoteSourceScanSettingDTO) throws CxRestSASTClientException {
-        ObjectMapper mapper = new ObjectMapper();
         String jsonInString;
         try {
-            jsonInString = mapper.writeValueAsString(remoteSourceScanSettingDTO);
+            jsonInString = JsonMappers.getObjectMapper().writeValueAsString(remoteSourceScanSettingDTO);
         } catch (JsonProcessingException e) {
             throw new CxRestSASTClientException("Error creating JSON string from remote source scan settings" + e.getMessage());
         }
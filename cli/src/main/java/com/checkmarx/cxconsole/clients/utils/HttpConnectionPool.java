@@ -0,0 +1,120 @@
+package com.checkmarx.cxconsole.clients.utils;
+
+import com.checkmarx.cxconsole.utils.ConfigMgr;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.log4j.Logger;
+
+import javax.net.ssl.SSLContext;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The connections of all the REST clients (login, general, SAST, OSA and ARM) and of the server probes. The clients are built on one pooled
+ * connection manager with one SSL context, so a client which is built again (e.g. after the login) keeps the open connections, and the TLS sessions
+ * cached by the SSL context are resumed rather than negotiated again by every new connection.
+ * The pool is never shut down by a client, its connections are closed when the process exits.
+ */
+public class HttpConnectionPool {
+
+    private static Logger log = Logger.getLogger(HttpConnectionPool.class);
+
+    private static final String TLS_PROTOCOL = "TLSv1.2";
+    //A connection which was idle for longer is checked before it is leased, since the server may have closed it meanwhile
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+    private static final int DEFAULT_MAX_CONNECTIONS = 20;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+
+    private static final boolean IS_PROXY = Boolean.parseBoolean(System.getProperty("proxySet"));
+    private static final String PROXY_HOST;
+    private static final String PROXY_PORT;
+
+    private static PoolingHttpClientConnectionManager connectionManager;
+
+    static {
+        PROXY_PORT = System.getProperty("http.proxyPort") == null
+                ? System.getProperty("https.proxyPort")
+                : System.getProperty("http.proxyPort");
+
+        PROXY_HOST = System.getProperty("http.proxyHost") == null
+                ? System.getProperty("https.proxyHost")
+                : System.getProperty("http.proxyHost");
+    }
+
+    private HttpConnectionPool() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @return a builder of a client on the shared connections, with the proxy of the system properties if one is set
+     */
+    public static HttpClientBuilder newClientBuilder() {
+        HttpClientBuilder clientBuilder = HttpClientBuilder.create()
+                .setConnectionManager(getConnectionManager())
+                //Closing a client must not close the connections of the others
+                .setConnectionManagerShared(true);
+        if (IS_PROXY) {
+            RestClientUtils.setClientProxy(clientBuilder, PROXY_HOST, Integer.parseInt(PROXY_PORT));
+        }
+        return clientBuilder;
+    }
+
+    public static synchronized PoolingHttpClientConnectionManager getConnectionManager() {
+        if (connectionManager == null) {
+            //Same socket factory as a client builder which uses the system properties creates for its own connection manager
+            SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(generateSSLContext(), split(System.getProperty("https.protocols")),
+                    split(System.getProperty("https.cipherSuites")), SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+            Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", sslSocketFactory)
+                    .build();
+            connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+            connectionManager.setMaxTotal(getPositiveIntProperty(ConfigMgr.KEY_HTTP_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS));
+            connectionManager.setDefaultMaxPerRoute(getPositiveIntProperty(ConfigMgr.KEY_HTTP_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+            connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+            log.debug("HTTP connection pool of " + connectionManager.getMaxTotal() + " connections, " + connectionManager.getDefaultMaxPerRoute() + " per server");
+        }
+        return connectionManager;
+    }
+
+    /**
+     * @return the connections of the pool (leased, available and pending leases), or null if no client was built yet
+     */
+    public static synchronized PoolStats getStats() {
+        return connectionManager == null ? null : connectionManager.getTotalStats();
+    }
+
+    public static void logStats() {
+        PoolStats stats = getStats();
+        if (stats != null) {
+            log.debug("HTTP connection pool: " + stats.getLeased() + " leased, " + stats.getAvailable() + " available, " + stats.getPending()
+                    + " pending connections of " + stats.getMax());
+        }
+    }
+
+    private static SSLContext generateSSLContext() {
+        try {
+            return SSLContextBuilder.create().setProtocol(TLS_PROTOCOL).build();
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            log.warn("Failed to build SSL context error was: " + e.getMessage());
+            return SSLContexts.createDefault();
+        }
+    }
+
+    private static int getPositiveIntProperty(String key, int defaultValue) {
+        Integer value = ConfigMgr.getCfgMgr().getIntProperty(key);
+        return value == null || value <= 0 ? defaultValue : value;
+    }
+
+    private static String[] split(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim().split(" *, *");
+    }
+}
@@ -0,0 +1,52 @@
+package com.checkmarx.cxconsole.clients.utils;
+
+import com.checkmarx.cxconsole.clients.sast.dto.ScanSettingDTO;
+import com.checkmarx.cxconsole.clients.sast.dto.ScanSettingDTODeserializer;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The JSON mapper of the REST clients. A mapper caches the serializers and deserializers it builds, so it is created once and shared,
+ * and so is the reader of every DTO type. Mappers and readers are thread safe once they are configured.
+ */
+public class JsonMappers {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Map<JavaType, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final ObjectReader SCAN_SETTING_READER;
+
+    static {
+        //The scan settings are read by a deserializer of their own, which does not apply to the other DTOs
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(ScanSettingDTO.class, new ScanSettingDTODeserializer());
+        SCAN_SETTING_READER = new ObjectMapper().registerModule(module).readerFor(ScanSettingDTO.class);
+    }
+
+    private JsonMappers() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @return the shared mapper, which may not be configured any further
+     */
+    public static ObjectMapper getObjectMapper() {
+        return OBJECT_MAPPER;
+    }
+
+    public static ObjectReader readerFor(Class<?> dtoClass) {
+        return readerFor(OBJECT_MAPPER.constructType(dtoClass));
+    }
+
+    public static ObjectReader readerFor(JavaType dtoType) {
+        return READERS.computeIfAbsent(dtoType, OBJECT_MAPPER::readerFor);
+    }
+
+    public static ObjectReader scanSettingReader() {
+        return SCAN_SETTING_READER;
+    }
+}
@@ -0,0 +1,240 @@
+package com.checkmarx.cxconsole.clients.utils;
+
+import com.checkmarx.cxconsole.clients.exception.CxValidateResponseException;
+import com.checkmarx.cxconsole.utils.ConfigMgr;
+import com.fasterxml.jackson.databind.JavaType;
+import com.google.common.hash.Hashing;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the server metadata which rarely changes (teams, presets, engine configurations, projects and the server protocol) in the cache folder,
+ * separately for every server and user. Metadata which was validated with the server within the time to live is used without asking the server.
+ * Older metadata is revalidated with its ETag or modification time, so the server sends it again only if it has changed.
+ * A lookup which does not find what it looks for in cached metadata revalidates it, since the metadata may have changed on the server meanwhile.
+ * Metadata which was validated with the server is kept in memory, and not requested again by the same clients. When the cache is off, the metadata
+ * is neither read from the cache folder nor written to it.
+ */
+public class MetadataCache {
+
+    private static Logger log = Logger.getLogger(MetadataCache.class);
+
+    private static final String METADATA_FOLDER_NAME = "metadata";
+    private static final String ENTRY_EXTENSION = ".bin";
+    private static final int ENTRY_VERSION = 1;
+
+    //Turned off for a run by the -nocache parameter
+    private static volatile boolean isEnabled = true;
+
+    private final File metadataFolder;
+    private final String hostName;
+    private final String userKey;
+    private final long ttlMillis;
+    private final boolean isStored;
+    //Request URI -> body which was validated with the server since the cache was opened
+    private final Map<String, byte[]> validatedBodies = new ConcurrentHashMap<>();
+
+    private MetadataCache(File metadataFolder, String hostName, String userKey, long ttlMillis, boolean isStored) {
+        this.metadataFolder = metadataFolder;
+        this.hostName = hostName;
+        this.userKey = userKey;
+        this.ttlMillis = ttlMillis;
+        this.isStored = isStored;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        isEnabled = enabled;
+    }
+
+    /**
+     * @param userKey identifies the user, whose permissions decide the metadata it gets (empty - metadata of the server itself).
+     *                It is only hashed into the names of the cache files
+     * @return the cache of the metadata of the server for the user, which only keeps the metadata in memory if the cache is off
+     */
+    public static MetadataCache open(String hostName, String userKey) {
+        Integer ttlSeconds = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_METADATA_CACHE_TTL);
+        boolean isStored = isEnabled && ttlSeconds != null && ttlSeconds >= 0;
+        return new MetadataCache(new File(ConfigMgr.getCfgMgr().getCacheDirectory(), METADATA_FOLDER_NAME), hostName, userKey == null ? "" : userKey,
+                isStored ? TimeUnit.SECONDS.toMillis(ttlSeconds) : 0, isStored);
+    }
+
+    /**
+     * Reads the JSON response of a GET request through the cache
+     */
+    public <T> T readJson(HttpClient client, HttpUriRequest request, JavaType dtoType, String failureMessage, boolean mustRevalidate)
+            throws IOException, CxValidateResponseException {
+        return JsonMappers.readerFor(dtoType).readValue(get(client, request, failureMessage, mustRevalidate));
+    }
+
+    /**
+     * Gets the body of a GET request from the cache while it is fresh, and otherwise from the server, which is asked to send it only if it
+     * has changed since it was cached
+     *
+     * @param mustRevalidate the cached body is used only if it was validated with the server since the cache was opened
+     * @return the body of a response with the status 200
+     */
+    public byte[] get(HttpClient client, HttpUriRequest request, String failureMessage, boolean mustRevalidate) throws IOException, CxValidateResponseException {
+        String key = request.getURI().toString();
+        byte[] validatedBody = validatedBodies.get(key);
+        if (validatedBody != null) {
+            return validatedBody;
+        }
+        Entry entry = load(key);
+        if (entry != null && !mustRevalidate && isFresh(entry)) {
+            log.debug("Using cached " + key);
+            return entry.body;
+        }
+        if (entry != null && entry.eTag != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, entry.eTag);
+        }
+        if (entry != null && entry.lastModified != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+        }
+
+        HttpResponse response = null;
+        try {
+            response = client.execute(request);
+            if (entry != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                log.debug("Cached " + key + " was not modified on the server");
+                store(key, new Entry(System.currentTimeMillis(), entry.eTag, entry.lastModified, entry.body));
+                validatedBodies.put(key, entry.body);
+                return entry.body;
+            }
+            RestClientUtils.validateClientResponse(response, HttpStatus.SC_OK, failureMessage);
+            byte[] body = IOUtils.toByteArray(response.getEntity().getContent());
+            store(key, new Entry(System.currentTimeMillis(), getHeaderValue(response, HttpHeaders.ETAG), getHeaderValue(response, HttpHeaders.LAST_MODIFIED), body));
+            validatedBodies.put(key, body);
+            return body;
+        } finally {
+            HttpClientUtils.closeQuietly(response);
+        }
+    }
+
+    /**
+     * @return a value which was put into the cache within the time to live, or null
+     */
+    public String getFreshValue(String key) {
+        Entry entry = load(key);
+        return entry != null && isFresh(entry) ? new String(entry.body, StandardCharsets.UTF_8) : null;
+    }
+
+    public void putValue(String key, String value) {
+        store(key, new Entry(System.currentTimeMillis(), null, null, value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private boolean isFresh(Entry entry) {
+        long age = System.currentTimeMillis() - entry.validatedTime;
+        return age >= 0 && age < ttlMillis;
+    }
+
+    private static String getHeaderValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    private File getEntryFile(String key) {
+        String name = Hashing.sha256().hashString(hostName + '\n' + userKey + '\n' + key, StandardCharsets.UTF_8).toString();
+        return new File(metadataFolder, name + ENTRY_EXTENSION);
+    }
+
+    private Entry load(String key) {
+        if (!isStored) {
+            return null;
+        }
+        File entryFile = getEntryFile(key);
+        if (!entryFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile)))) {
+            if (input.readInt() != ENTRY_VERSION) {
+                return null;
+            }
+            long validatedTime = input.readLong();
+            String eTag = readNullableString(input);
+            String lastModified = readNullableString(input);
+            byte[] body = new byte[input.readInt()];
+            input.readFully(body);
+            return new Entry(validatedTime, eTag, lastModified, body);
+        } catch (IOException e) {
+            log.debug("Cannot read cached metadata " + entryFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The entry is written to a temporary file, which replaces the previous entry once it is complete, since several scans may share the cache
+     */
+    private void store(String key, Entry entry) {
+        if (!isStored) {
+            return;
+        }
+        File entryFile = getEntryFile(key);
+        File temporaryFile = null;
+        try {
+            if (!metadataFolder.exists() && !metadataFolder.mkdirs()) {
+                throw new IOException("Cannot create folder " + metadataFolder);
+            }
+            temporaryFile = File.createTempFile(entryFile.getName(), ".tmp", metadataFolder);
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                output.writeInt(ENTRY_VERSION);
+                output.writeLong(entry.validatedTime);
+                writeNullableString(output, entry.eTag);
+                writeNullableString(output, entry.lastModified);
+                output.writeInt(entry.body.length);
+                output.write(entry.body);
+            }
+            Files.move(temporaryFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Cannot cache server metadata: " + e.getMessage());
+            FileUtils.deleteQuietly(temporaryFile);
+        }
+    }
+
+    private static String readNullableString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static class Entry {
+        private final long validatedTime;
+        private final String eTag;
+        private final String lastModified;
+        private final byte[] body;
+
+        Entry(long validatedTime, String eTag, String lastModified, byte[] body) {
+            this.validatedTime = validatedTime;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+    }
+}
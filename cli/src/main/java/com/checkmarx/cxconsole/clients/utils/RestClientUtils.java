@@ -6,9 +6,6 @@ import com.checkmarx.cxconsole.clients.arm.exceptions.CxRestARMClientException;
 import com.checkmarx.cxconsole.clients.exception.CxValidateResponseException;
 import com.checkmarx.cxconsole.clients.general.dto.CxProviders;
 import com.checkmarx.cxconsole.clients.sast.dto.ScanSettingDTO;
-import com.checkmarx.cxconsole.clients.sast.dto.ScanSettingDTODeserializer;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpHost;
@@ -18,10 +15,9 @@ import org.apache.http.impl.client.ProxyAuthenticationStrategy;
 import org.apache.log4j.Logger;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -38,44 +34,24 @@ public interface RestClientUtils {
     Logger log = Logger.getLogger(RestClientUtils.class);
 
     static JSONObject parseJsonObjectFromResponse(HttpResponse response) throws IOException {
-        String responseInString = createStringFromResponse(response).toString();
-        return new JSONObject(responseInString);
+        return new JSONObject(IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8));
     }
 
+    //The DTOs are parsed as the response is read, rather than from a string of the whole response
     static <ResponseObj> ResponseObj parseJsonFromResponse(HttpResponse response, Class<ResponseObj> dtoClass) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(createStringFromResponse(response).toString(), dtoClass);
+        return JsonMappers.readerFor(dtoClass).readValue(response.getEntity().getContent());
     }
 
     static <ResponseObj> ResponseObj parseFromURL(String url, Class<ResponseObj> dtoClass) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(fromUrlToJson(url), dtoClass);
+        return JsonMappers.readerFor(dtoClass).readValue(fromUrlToJson(url));
     }
 
     static <ResponseObj> List<ResponseObj> parseJsonListFromResponse(HttpResponse response, CollectionType dtoClass) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(createStringFromResponse(response).toString(), dtoClass);
-    }
-
-    static StringBuilder createStringFromResponse(HttpResponse response) throws IOException {
-        BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-
-        StringBuilder result = new StringBuilder();
-        String line;
-        while ((line = rd.readLine()) != null) {
-            result.append(line);
-        }
-
-        return result;
+        return JsonMappers.readerFor(dtoClass).readValue(response.getEntity().getContent());
     }
 
     static ScanSettingDTO parseScanSettingResponse(HttpResponse response) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        SimpleModule module = new SimpleModule();
-        module.addDeserializer(ScanSettingDTO.class, new ScanSettingDTODeserializer());
-        mapper.registerModule(module);
-
-        return mapper.readValue(createStringFromResponse(response).toString(), ScanSettingDTO.class);
+        return JsonMappers.scanSettingReader().readValue(response.getEntity().getContent());
     }
 
     static void validateClientResponse(HttpResponse response, int status, String message) throws CxValidateResponseException {
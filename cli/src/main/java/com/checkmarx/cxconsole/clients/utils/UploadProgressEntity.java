@@ -0,0 +1,159 @@
+package com.checkmarx.cxconsole.clients.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.log4j.Logger;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a request entity while counting the sent bytes. The progress (bytes sent, throughput and the estimated time left) is logged
+ * at an interval, and the sending is optionally held to a maximum rate by a token bucket, so a big upload leaves a share of the uplink to others.
+ * The time it took to send the entity is measured without the time the server took to respond.
+ */
+public class UploadProgressEntity extends HttpEntityWrapper {
+
+    private static Logger log = Logger.getLogger(UploadProgressEntity.class);
+
+    //Bytes written at once, so a limited rate is kept smooth rather than reached in bursts of whole buffers
+    private static final int MAX_WRITE_SIZE = 16 * 1024;
+    private static final double BYTES_PER_MB = 1024.0 * 1024;
+
+    private final long progressIntervalNanos;
+    private final long maxBytesPerSecond;
+    private volatile long sentBytes;
+    private volatile long sendStartTime;
+    private volatile long sendEndTime;
+
+    /**
+     * @param progressIntervalSeconds 0 - the progress is not logged
+     * @param maxBytesPerSecond       0 - the rate is not limited
+     */
+    public UploadProgressEntity(HttpEntity wrappedEntity, int progressIntervalSeconds, long maxBytesPerSecond) {
+        super(wrappedEntity);
+        this.progressIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(0, progressIntervalSeconds));
+        this.maxBytesPerSecond = Math.max(0, maxBytesPerSecond);
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        sentBytes = 0;
+        sendEndTime = 0;
+        sendStartTime = System.nanoTime();
+        OutputStream progressOutputStream = new ProgressOutputStream(outputStream);
+        wrappedEntity.writeTo(progressOutputStream);
+        progressOutputStream.flush();
+        sendEndTime = System.nanoTime();
+        log.info("Sent " + FileUtils.byteCountToDisplaySize(sentBytes) + " in " + TimeUnit.NANOSECONDS.toSeconds(sendEndTime - sendStartTime)
+                + " seconds (" + String.format("%.2f", getBytesPerSecond() / BYTES_PER_MB) + " MB/s)");
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    /**
+     * @return the time it took to send the entity so far, or all of it once it was sent
+     */
+    public long getSendMillis() {
+        if (sendStartTime == 0) {
+            return 0;
+        }
+        long endTime = sendEndTime != 0 ? sendEndTime : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(endTime - sendStartTime);
+    }
+
+    private double getBytesPerSecond() {
+        long endTime = sendEndTime != 0 ? sendEndTime : System.nanoTime();
+        return sentBytes * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, endTime - sendStartTime);
+    }
+
+    private void logProgress() {
+        double bytesPerSecond = getBytesPerSecond();
+        long contentLength = getContentLength();
+        StringBuilder progress = new StringBuilder("Uploaded ").append(FileUtils.byteCountToDisplaySize(sentBytes));
+        if (contentLength > 0) {
+            progress.append(" of ").append(FileUtils.byteCountToDisplaySize(contentLength)).append(" (").append(sentBytes * 100 / contentLength).append("%)");
+        }
+        progress.append(", ").append(String.format("%.2f", bytesPerSecond / BYTES_PER_MB)).append(" MB/s");
+        if (contentLength > 0 && bytesPerSecond > 0) {
+            progress.append(", about ").append(Math.round((contentLength - sentBytes) / bytesPerSecond)).append(" seconds left");
+        }
+        log.info(progress);
+    }
+
+    private class ProgressOutputStream extends FilterOutputStream {
+        private final TokenBucket tokenBucket = maxBytesPerSecond > 0 ? new TokenBucket(maxBytesPerSecond) : null;
+        private long nextProgressTime = System.nanoTime() + progressIntervalNanos;
+
+        ProgressOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int offset = off;
+            int remaining = len;
+            while (remaining > 0) {
+                int length = Math.min(remaining, MAX_WRITE_SIZE);
+                if (tokenBucket != null) {
+                    tokenBucket.take(length);
+                }
+                out.write(b, offset, length);
+                offset += length;
+                remaining -= length;
+                sentBytes += length;
+                if (progressIntervalNanos > 0 && System.nanoTime() >= nextProgressTime) {
+                    logProgress();
+                    nextProgressTime = System.nanoTime() + progressIntervalNanos;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills up at the maximum rate, and holds a tenth of a second worth of bytes at most, so an idle moment does not allow a long burst
+     */
+    private static class TokenBucket {
+        private final double bytesPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastFillTime = System.nanoTime();
+
+        TokenBucket(long bytesPerSecond) {
+            this.bytesPerNano = bytesPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+            this.capacity = Math.max(MAX_WRITE_SIZE, bytesPerSecond / 10.0);
+        }
+
+        void take(int bytes) throws InterruptedIOException {
+            fill();
+            if (tokens < bytes) {
+                long waitNanos = (long) Math.ceil((bytes - tokens) / bytesPerNano);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Upload was interrupted");
+                }
+                fill();
+            }
+            tokens -= bytes;
+        }
+
+        private void fill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastFillTime) * bytesPerNano);
+            lastFillTime = now;
+        }
+    }
+}
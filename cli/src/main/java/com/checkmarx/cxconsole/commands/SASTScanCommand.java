@@ -3,6 +3,7 @@ package com.checkmarx.cxconsole.commands;
 import com.checkmarx.cxconsole.commands.constants.Commands;
 import com.checkmarx.cxconsole.commands.exceptions.CLICommandException;
 import com.checkmarx.cxconsole.commands.exceptions.CLICommandParameterValidatorException;
+import com.checkmarx.cxconsole.commands.job.CLISASTMonorepoScanJob;
 import com.checkmarx.cxconsole.commands.job.CLISASTScanJob;
 import com.checkmarx.cxconsole.commands.job.CLIScanJob;
 import com.checkmarx.cxconsole.commands.utils.CommandParametersValidator;
@@ -36,7 +37,9 @@ class SASTScanCommand extends CLICommand {
     @Override
     protected int executeCommand() throws CLICommandException {
         CLIScanJob job;
-        if (!isAsyncScan) {
+        if (params.getCliSastParameters().isMonorepo()) {
+            job = new CLISASTMonorepoScanJob(params, isAsyncScan);
+        } else if (!isAsyncScan) {
             job = new CLISASTScanJob(params, false);
         } else {
             job = new CLISASTScanJob(params, true);
@@ -82,6 +85,8 @@ class SASTScanCommand extends CLICommand {
         CommandParametersValidator.validatePrivateKeyLocationGITSVN(params);
         CommandParametersValidator.validateServiceProviderFolder(params);
         CommandParametersValidator.validateEnableOSA(params);
+        CommandParametersValidator.validateDryRun(params);
+        CommandParametersValidator.validateMonorepo(params);
         if (isAsyncScan) {
             CommandParametersValidator.validateSASTAsyncScanParams(params);
         }
@@ -11,7 +11,9 @@ public enum LocationType {
     TFS("TFS"),
     SVN("SVN"),
     PERFORCE("Perforce"),
-    GIT("GIT");
+    GIT("GIT"),
+    GITLOCAL("gitlocal"),
+    ARCHIVE("archive");
 
     private String locationTypeStringValue;
 
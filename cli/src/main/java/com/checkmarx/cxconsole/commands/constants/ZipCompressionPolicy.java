@@ -0,0 +1,29 @@
+package com.checkmarx.cxconsole.commands.constants;
+
+/**
+ * Defines how the entries of zipped sources are compressed
+ */
+public enum ZipCompressionPolicy {
+
+    ADAPTIVE("adaptive"),
+    DEFAULT("default");
+
+    private String zipCompressionPolicyStringValue;
+
+    ZipCompressionPolicy(String zipCompressionPolicy) {
+        this.zipCompressionPolicyStringValue = zipCompressionPolicy;
+    }
+
+    public static ZipCompressionPolicy byName(String name) {
+        for (ZipCompressionPolicy value : values()) {
+            if (value.zipCompressionPolicyStringValue.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return DEFAULT;
+    }
+
+    public String getZipCompressionPolicyStringValue() {
+        return zipCompressionPolicyStringValue;
+    }
+}
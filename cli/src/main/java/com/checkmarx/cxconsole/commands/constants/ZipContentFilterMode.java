@@ -0,0 +1,30 @@
+package com.checkmarx.cxconsole.commands.constants;
+
+/**
+ * Defines what is done with binary, minified, generated and lock files found while zipping sources
+ */
+public enum ZipContentFilterMode {
+
+    OFF("off"),
+    REPORT("report"),
+    EXCLUDE("exclude");
+
+    private String zipContentFilterModeStringValue;
+
+    ZipContentFilterMode(String zipContentFilterMode) {
+        this.zipContentFilterModeStringValue = zipContentFilterMode;
+    }
+
+    public static ZipContentFilterMode byName(String name) {
+        for (ZipContentFilterMode value : values()) {
+            if (value.zipContentFilterModeStringValue.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return OFF;
+    }
+
+    public String getZipContentFilterModeStringValue() {
+        return zipContentFilterModeStringValue;
+    }
+}
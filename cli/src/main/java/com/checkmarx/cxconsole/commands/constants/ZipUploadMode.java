@@ -0,0 +1,30 @@
+package com.checkmarx.cxconsole.commands.constants;
+
+/**
+ * Defines how the zipped sources of a local folder scan are handed over to the upload request
+ */
+public enum ZipUploadMode {
+
+    MEMORY("memory"),
+    STREAM("stream"),
+    FILE("file");
+
+    private String zipUploadModeStringValue;
+
+    ZipUploadMode(String zipUploadMode) {
+        this.zipUploadModeStringValue = zipUploadMode;
+    }
+
+    public static ZipUploadMode byName(String name) {
+        for (ZipUploadMode value : values()) {
+            if (value.zipUploadModeStringValue.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return MEMORY;
+    }
+
+    public String getZipUploadModeStringValue() {
+        return zipUploadModeStringValue;
+    }
+}
@@ -70,7 +70,12 @@ public class CLIOSAScanJob extends CLIScanJob {
             //Request osa Scan
             log.info("Request OSA scan");
 
-            String[] osaLocationPath = cliosaParameters.getOsaLocationPath() != null ? cliosaParameters.getOsaLocationPath() : new String[]{params.getCliSharedParameters().getLocationPath()};
+            String[] osaLocationPath = cliosaParameters.getOsaLocationPath();
+            if (osaLocationPath == null) {
+                //A folder location may list several folders, which are all analyzed
+                String locationPath = params.getCliSharedParameters().getLocationPath();
+                osaLocationPath = locationPath != null ? StringUtils.stripAll(locationPath.split(";")) : new String[]{null};
+            }
             log.info("Setting up OSA analysis request");
             if (osaLocationPath[0] != null) {
                 log.info("OSA source location: " + StringUtils.join(osaLocationPath, ", "));
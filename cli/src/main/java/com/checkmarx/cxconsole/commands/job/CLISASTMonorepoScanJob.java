@@ -0,0 +1,165 @@
+package com.checkmarx.cxconsole.commands.job;
+
+import com.checkmarx.cxconsole.clients.general.dto.ProjectDTO;
+import com.checkmarx.cxconsole.clients.sast.dto.ResultsStatisticsDTO;
+import com.checkmarx.cxconsole.commands.job.exceptions.CLIJobException;
+import com.checkmarx.cxconsole.commands.job.utils.PrintResultsUtils;
+import com.checkmarx.cxconsole.commands.utils.FilesUtils;
+import com.checkmarx.cxconsole.packaging.ModuleDetector;
+import com.checkmarx.cxconsole.parameters.CLIScanParametersSingleton;
+import com.checkmarx.cxconsole.thresholds.dto.ThresholdDto;
+import com.checkmarx.cxconsole.utils.ConfigMgr;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.checkmarx.cxconsole.exitcodes.Constants.ExitCodes.POLICY_VIOLATION_ERROR_EXIT_CODE;
+import static com.checkmarx.cxconsole.exitcodes.Constants.ExitCodes.SCAN_SUCCEEDED_EXIT_CODE;
+import static com.checkmarx.cxconsole.exitcodes.ErrorHandler.errorCodeResolver;
+import static com.checkmarx.cxconsole.thresholds.ThresholdResolver.resolveThresholdExitCode;
+
+/**
+ * Scans every module of a monorepo folder as a SAST project of its own, so the server can spread the modules over its engines,
+ * and a module whose sources did not change is not scanned again. Several modules are packed, uploaded and scanned at the same time
+ * over the same logged in session. The files outside the modules are scanned in the project of the parameters.
+ * The project of a module is named after its folder, and modules whose names flatten to the same project name (e.g. "a/b" and "a-b")
+ * are told apart by a numeric suffix. The modules are sorted, so a module keeps its project from one scan to the next.
+ * The thresholds are checked on the results of all the modules together, and the exit codes of the modules are combined into one.
+ */
+public class CLISASTMonorepoScanJob extends CLIScanJob {
+
+    private static final char MODULE_PROJECT_NAME_SEPARATOR = '-';
+    private static final String ROOT_MODULE_NAME = "(root)";
+
+    public CLISASTMonorepoScanJob(CLIScanParametersSingleton params, boolean isAsyncScan) {
+        super(params, isAsyncScan);
+    }
+
+    @Override
+    public Integer call() throws CLIJobException {
+        String locationPath = params.getCliSharedParameters().getLocationPath();
+        ProjectDTO rootProject = params.getCliMandatoryParameters().getProject();
+        ModuleDetector.Detection detection = FilesUtils.detectModules(locationPath, params.getCliSastParameters());
+        log.info("Found " + detection.getModules().size() + " modules in " + locationPath + ", and " + detection.getNumOfFilesOutsideModules()
+                + " files outside of them");
+
+        List<ModuleScan> moduleScans = new ArrayList<>();
+        Set<String> usedProjectNames = new HashSet<>();
+        for (String module : detection.getModules()) {
+            String name = rootProject.getName() + MODULE_PROJECT_NAME_SEPARATOR + module.replace('/', MODULE_PROJECT_NAME_SEPARATOR);
+            String projectName = name;
+            for (int suffix = 2; !usedProjectNames.add(projectName); suffix++) {
+                projectName = name + MODULE_PROJECT_NAME_SEPARATOR + suffix;
+            }
+            ProjectDTO moduleProject = new ProjectDTO(projectName);
+            log.info("Module " + module + " is scanned in project " + moduleProject.getName());
+            moduleScans.add(new ModuleScan(module, new CLISASTScanJob(params, isAsyncScan, moduleProject, new File(locationPath, module).getPath(), null)));
+        }
+        if (detection.getNumOfFilesOutsideModules() > 0 || moduleScans.isEmpty()) {
+            moduleScans.add(new ModuleScan(ROOT_MODULE_NAME, new CLISASTScanJob(params, isAsyncScan, rootProject, locationPath,
+                    detection.getModuleExcludePatterns())));
+        }
+
+        if (!params.getCliSastParameters().isDryRun() && !cxRestLoginClient.isLoggedIn()) {
+            //The modules share the session, rather than logging in concurrently
+            login();
+        }
+        runModuleScans(moduleScans);
+        return resolveExitCode(moduleScans);
+    }
+
+    private void runModuleScans(List<ModuleScan> moduleScans) throws CLIJobException {
+        Integer numOfThreadsProperty = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_MONOREPO_THREADS);
+        int numOfThreads = Math.min(moduleScans.size(), numOfThreadsProperty == null || numOfThreadsProperty <= 0 ? 1 : numOfThreadsProperty);
+        log.info("Scanning " + moduleScans.size() + " projects, " + numOfThreads + " at a time");
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+        try {
+            for (ModuleScan moduleScan : moduleScans) {
+                moduleScan.future = executor.submit(() -> {
+                    //The thread name is written to the log file, which tells the interleaved modules apart
+                    Thread.currentThread().setName("module " + moduleScan.module);
+                    return moduleScan.job.call();
+                });
+            }
+            for (ModuleScan moduleScan : moduleScans) {
+                try {
+                    moduleScan.exitCode = moduleScan.future.get();
+                } catch (ExecutionException e) {
+                    String errorMessage = e.getCause().getMessage();
+                    log.error("Scan of module " + moduleScan.module + " has failed: " + errorMessage);
+                    moduleScan.exitCode = errorCodeResolver(errorMessage);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CLIJobException("Scan of the modules was interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A policy violation of any module ranks highest, then the thresholds of all the results, then the first failed module
+     */
+    private int resolveExitCode(List<ModuleScan> moduleScans) {
+        ResultsStatisticsDTO totalResults = new ResultsStatisticsDTO();
+        boolean hasResults = false;
+        log.info("Results of the modules (high / medium / low severity, exit code):");
+        for (ModuleScan moduleScan : moduleScans) {
+            ResultsStatisticsDTO results = moduleScan.job.getSastScanResults();
+            if (results != null) {
+                hasResults = true;
+                totalResults.setHighSeverity(totalResults.getHighSeverity() + results.getHighSeverity());
+                totalResults.setMediumSeverity(totalResults.getMediumSeverity() + results.getMediumSeverity());
+                totalResults.setLowSeverity(totalResults.getLowSeverity() + results.getLowSeverity());
+                totalResults.setInfoSeverity(totalResults.getInfoSeverity() + results.getInfoSeverity());
+                log.info(String.format("%-40s %6d / %6d / %6d, %d", moduleScan.module, results.getHighSeverity(), results.getMediumSeverity(),
+                        results.getLowSeverity(), moduleScan.exitCode));
+            } else {
+                log.info(String.format("%-40s no results, %d", moduleScan.module, moduleScan.exitCode));
+            }
+        }
+        if (hasResults) {
+            log.info("Results of all the modules:");
+            PrintResultsUtils.printSASTResultsToConsole(totalResults);
+        }
+
+        for (ModuleScan moduleScan : moduleScans) {
+            if (moduleScan.exitCode == POLICY_VIOLATION_ERROR_EXIT_CODE) {
+                return POLICY_VIOLATION_ERROR_EXIT_CODE;
+            }
+        }
+        if (hasResults && params.getCliSastParameters().isSastThresholdEnabled()) {
+            int thresholdExitCode = resolveThresholdExitCode(new ThresholdDto(params.getCliSastParameters().getSastHighThresholdValue(),
+                    params.getCliSastParameters().getSastMediumThresholdValue(), params.getCliSastParameters().getSastLowThresholdValue(), totalResults));
+            if (thresholdExitCode != SCAN_SUCCEEDED_EXIT_CODE) {
+                return thresholdExitCode;
+            }
+        }
+        for (ModuleScan moduleScan : moduleScans) {
+            if (moduleScan.exitCode != SCAN_SUCCEEDED_EXIT_CODE) {
+                return moduleScan.exitCode;
+            }
+        }
+        return SCAN_SUCCEEDED_EXIT_CODE;
+    }
+
+    private static class ModuleScan {
+        private final String module;
+        private final CLISASTScanJob job;
+        private Future<Integer> future;
+        private int exitCode;
+
+        ModuleScan(String module, CLISASTScanJob job) {
+            this.module = module;
+            this.job = job;
+        }
+    }
+}
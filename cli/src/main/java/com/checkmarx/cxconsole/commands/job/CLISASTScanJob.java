@@ -19,8 +19,16 @@ import com.checkmarx.cxconsole.clients.sast.dto.*;
 import com.checkmarx.cxconsole.clients.sast.exceptions.CxRestSASTClientException;
 import com.checkmarx.cxconsole.clients.utils.RestClientUtils;
 import com.checkmarx.cxconsole.commands.job.exceptions.CLIJobException;
+import com.checkmarx.cxconsole.commands.job.retriableoperation.RetryableZipUpload;
+import com.checkmarx.cxconsole.commands.constants.ZipUploadMode;
+import com.checkmarx.cxconsole.packaging.PackagingEstimator;
+import com.checkmarx.cxconsole.packaging.PackagingEstimator.PackagingEstimate;
+import com.checkmarx.cxconsole.packaging.ScannedSourcesHistory;
+import com.checkmarx.cxconsole.packaging.SourceManifest;
 import com.checkmarx.cxconsole.commands.job.utils.PrintResultsUtils;
 import com.checkmarx.cxconsole.commands.utils.FilesUtils;
+import com.checkmarx.cxconsole.commands.utils.PipedZipInputStream;
+import com.checkmarx.cxconsole.commands.utils.PipedZipInputStream.ZipWriter;
 import com.checkmarx.cxconsole.parameters.CLIMandatoryParameters;
 import com.checkmarx.cxconsole.parameters.CLIScanParametersSingleton;
 import com.checkmarx.cxconsole.thresholds.dto.ThresholdDto;
@@ -47,17 +55,61 @@ import static com.checkmarx.cxconsole.thresholds.ThresholdResolver.resolveThresh
  */
 public class CLISASTScanJob extends CLIScanJob {
 
+    //Largest array a JVM can allocate, which bounds the zip built in memory
+    private static final long MAX_IN_MEMORY_ZIP_SIZE = Integer.MAX_VALUE - 8L;
+
     private CxRestSASTClient cxRestSASTClient;
+    private final ProjectDTO project;
+    private final String locationPath;
+    //Patterns relative to the location, which are excluded on top of the configured exclusions (e.g. the module folders of a monorepo)
+    private final String[] additionalExcludePatterns;
+    //A module of a monorepo, whose thresholds are checked on the results of all the modules together
+    private final boolean isModuleScan;
+    private ResultsStatisticsDTO sastScanResults;
+    //Files of the scanned sources, kept after the scan finishes so the next incremental scan can pack only the changed files
+    private SourceManifest sourceManifest;
+    //Changes of the sources since the last scanned manifest, null if they are not known
+    private SourceManifest.Changes sourceChanges;
+    private boolean isIncrementalScan;
 
     public CLISASTScanJob(CLIScanParametersSingleton params, boolean isAsyncScan) {
         super(params, isAsyncScan);
+        project = params.getCliMandatoryParameters().getProject();
+        locationPath = params.getCliSharedParameters().getLocationPath();
+        additionalExcludePatterns = null;
+        isModuleScan = false;
+    }
+
+    /**
+     * Scans a module of a monorepo folder as a project of its own
+     *
+     * @param additionalExcludePatterns patterns relative to the location, which are excluded on top of the configured exclusions (null - none)
+     */
+    public CLISASTScanJob(CLIScanParametersSingleton params, boolean isAsyncScan, ProjectDTO project, String locationPath, String[] additionalExcludePatterns) {
+        super(params, isAsyncScan);
+        this.project = project;
+        this.locationPath = locationPath;
+        this.additionalExcludePatterns = additionalExcludePatterns;
+        isModuleScan = true;
+    }
+
+    /**
+     * @return the results of the scan, or null if they were not retrieved (e.g. asynchronous scan or dry run)
+     */
+    ResultsStatisticsDTO getSastScanResults() {
+        return sastScanResults;
     }
 
     @Override
     public Integer call() throws CLIJobException {
         int exitCode = SCAN_SUCCEEDED_EXIT_CODE;
         CLIMandatoryParameters cliMandatoryParameters = params.getCliMandatoryParameters();
-        log.info(String.format("Project name is %s", cliMandatoryParameters.getProject().getName()));
+        log.info(String.format("Project name is %s", project.getName()));
+        if (params.getCliSastParameters().isDryRun()) {
+            printPackagingEstimate();
+            return exitCode;
+        }
+
         if (!cxRestLoginClient.isLoggedIn()) {
             login();
         }
@@ -66,82 +118,104 @@ public class CLISASTScanJob extends CLIScanJob {
         ScanPrerequisitesValidator scanPrerequisitesValidator;
         try {
             scanPrerequisitesValidator = new ScanPrerequisitesValidator(cxRestGeneralClient, cxRestSASTClient, cliMandatoryParameters.getTeam(),
-                    params.getCliSastParameters().getConfiguration(), params.getCliSastParameters().getPreset(), cliMandatoryParameters.getProject());
+                    params.getCliSastParameters().getConfiguration(), params.getCliSastParameters().getPreset(), project);
         } catch (CxScanPrerequisitesValidatorException e) {
             throw new CLIJobException("Failed to initialize SAST scan prerequisites: " + e.getMessage());
         }
 
         try {
-            if (!scanPrerequisitesValidator.isProjectExists()) {
-                createNewSastProject(cliMandatoryParameters.getProject());
-            } else {
-                updateExistingSastProject(cliMandatoryParameters.getProject());
-            }
-
-            if (params.getCliSastParameters().isHasExcludedFilesParam() || params.getCliSastParameters().isHasExcludedFoldersParam()) {
-                cxRestSASTClient.updateScanExclusions(cliMandatoryParameters.getProject().getId(),
-                        params.getCliSastParameters().getExcludedFolders(), params.getCliSastParameters().getExcludedFiles());
-            }
+            setUpSastProject(scanPrerequisitesValidator);
         } catch (CxRestGeneralClientException | CxRestSASTClientException e) {
-            throw new CLIJobException(e);
-        }
-
-        switch (params.getCliSharedParameters().getLocationType()) {
-            case FOLDER:
-                handleLocalFolderSource(cliMandatoryParameters.getProject().getId());
-                break;
-            case SHARED:
-                handleSharedFolderSource(cliMandatoryParameters.getProject().getId());
-                break;
-            case SVN:
-                handleSVNSource(cliMandatoryParameters.getProject().getId());
-                break;
-            case TFS:
-                handleTFSSource(cliMandatoryParameters.getProject().getId());
-                break;
-            case PERFORCE:
-                handlePerforceSource(cliMandatoryParameters.getProject().getId());
-                break;
-            case GIT:
-                handleGITSource(cliMandatoryParameters.getProject().getId());
-                break;
+            //The team, preset or engine configuration may come from the metadata cache, and may have been deleted or recreated since
+            log.info("Failed to set up the SAST project, retrying with revalidated server metadata: " + e.getMessage());
+            try {
+                scanPrerequisitesValidator.revalidateSASTScanPrerequisites();
+                setUpSastProject(scanPrerequisitesValidator);
+            } catch (CxScanPrerequisitesValidatorException | CxRestGeneralClientException | CxRestSASTClientException retryException) {
+                throw new CLIJobException(retryException);
+            }
         }
 
-        log.info("Request SAST scan");
+        int projectId = project.getId();
+        String sourceFingerprint = isSkipUnchangedSources() ? createSourceFingerprint() : null;
+        Integer previousScanId = getPreviousScanId(projectId, sourceFingerprint);
         int scanId;
-        try {
-            scanId = cxRestSASTClient.createNewSastScan(cliMandatoryParameters.getProject().getId(), params.getCliSastParameters().isForceScan(),
-                    params.getCliSastParameters().isIncrementalScan(), params.getCliSharedParameters().isVisibleOthers());
-            log.info("SAST scan created successfully: Scan ID is " + scanId);
-        } catch (CxRestSASTClientException e) {
-            throw new CLIJobException(e);
-        }
-
-        // wait for scan completion
-        if (isAsyncScan) {
-            log.info("Asynchronous scan initiated, Waiting for SAST scan to enter the queue.");
+        if (previousScanId != null) {
+            scanId = previousScanId;
+            log.info("Sources were not changed since SAST scan " + scanId + ". Upload and scan are skipped, and its results are used (use -forcescan to scan anyway)");
+            if (isAsyncScan) {
+                return SCAN_SUCCEEDED_EXIT_CODE;
+            }
         } else {
-            log.info(params.getCliSastParameters().isIncrementalScan()
-                    ? "Incremental scan initiated, waiting for SAST scan to finish"
-                    : "Full scan initiated, Waiting for SAST scan to finish.");
-        }
-        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-        WaitScanCompletionJob waiterJob = new WaitScanCompletionJob(cxRestSASTClient, scanId, isAsyncScan);
-        try {
-            Future<Boolean> future = executor.schedule(waiterJob, 250, TimeUnit.MILLISECONDS);
+            loadSourceChanges(projectId);
+            isIncrementalScan = resolveIncrementalScan(projectId);
+            switch (params.getCliSharedParameters().getLocationType()) {
+                case FOLDER:
+                    handleLocalFolderSource(projectId);
+                    break;
+                case SHARED:
+                    handleSharedFolderSource(projectId);
+                    break;
+                case SVN:
+                    handleSVNSource(projectId);
+                    break;
+                case TFS:
+                    handleTFSSource(projectId);
+                    break;
+                case PERFORCE:
+                    handlePerforceSource(projectId);
+                    break;
+                case GIT:
+                    handleGITSource(projectId);
+                    break;
+                case GITLOCAL:
+                    handleLocalGitSource(projectId);
+                    break;
+                case ARCHIVE:
+                    handleArchiveSource(projectId);
+                    break;
+            }
+
+            log.info("Request SAST scan");
+            try {
+                scanId = cxRestSASTClient.createNewSastScan(projectId, params.getCliSastParameters().isForceScan(),
+                        isIncrementalScan, params.getCliSharedParameters().isVisibleOthers());
+                log.info("SAST scan created successfully: Scan ID is " + scanId);
+            } catch (CxRestSASTClientException e) {
+                throw new CLIJobException(e);
+            }
+            //The scan type and the scanned files are recorded once the scan is created, also for an asynchronous scan
+            ScannedSourcesHistory.recordScanType(params.getCliMandatoryParameters().getOriginalHost(), projectId, isIncrementalScan);
+            ScannedSourcesHistory.saveManifest(params.getCliMandatoryParameters().getOriginalHost(), projectId, sourceManifest);
+
             // wait for scan completion
-            future.get();
-        } catch (Exception e) {
-            log.trace("Error occurred during scan progress monitoring: " + e.getMessage());
-            throw new CLIJobException("Error occurred during scan progress monitoring: " + e.getMessage());
-        } finally {
-            executor.shutdownNow();
-        }
+            if (isAsyncScan) {
+                log.info("Asynchronous scan initiated, Waiting for SAST scan to enter the queue.");
+            } else {
+                log.info(isIncrementalScan
+                        ? "Incremental scan initiated, waiting for SAST scan to finish"
+                        : "Full scan initiated, Waiting for SAST scan to finish.");
+            }
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+            WaitScanCompletionJob waiterJob = new WaitScanCompletionJob(cxRestSASTClient, scanId, isAsyncScan);
+            try {
+                Future<Boolean> future = executor.schedule(waiterJob, 250, TimeUnit.MILLISECONDS);
+                // wait for scan completion
+                future.get();
+            } catch (Exception e) {
+                log.trace("Error occurred during scan progress monitoring: " + e.getMessage());
+                throw new CLIJobException("Error occurred during scan progress monitoring: " + e.getMessage());
+            } finally {
+                executor.shutdownNow();
+            }
+
+            if (isAsyncScan) {
+                log.info("SAST scan queued. Job finished");
+                return SCAN_SUCCEEDED_EXIT_CODE;
+            }
+            //Only a finished scan is recorded with its sources, so its results can be used instead of scanning the same sources again
+            ScannedSourcesHistory.recordSourceFingerprint(params.getCliMandatoryParameters().getOriginalHost(), projectId, sourceFingerprint, scanId);
 
-        if (isAsyncScan) {
-            log.info("SAST scan queued. Job finished");
-            return SCAN_SUCCEEDED_EXIT_CODE;
-        } else {
             log.info("SAST scan finished. Retrieving scan results");
             String comment = params.getCliSharedParameters().getScanComment();
             if (comment != null) {
@@ -151,16 +225,19 @@ public class CLISASTScanJob extends CLIScanJob {
                     throw new CLIJobException(e);
                 }
             }
+        }
 
-            for (Map.Entry<ReportType, String> report : params.getCliSastParameters().getReportsPath().entrySet()) {
-                createReportFile(report, scanId, cliMandatoryParameters.getProject().getName());
-            }
+        for (Map.Entry<ReportType, String> report : params.getCliSastParameters().getReportsPath().entrySet()) {
+            createReportFile(report, scanId, project.getName());
         }
 
         try {
-            ResultsStatisticsDTO sastScanResults = cxRestSASTClient.getScanResults(scanId);
+            sastScanResults = cxRestSASTClient.getScanResults(scanId);
             PrintResultsUtils.printSASTResultsToConsole(sastScanResults);
             if (params.getCliSastParameters().isSastThresholdEnabled()) {
+                if (isModuleScan) {
+                    return exitCode;
+                }
                 ThresholdDto thresholdDto = new ThresholdDto(params.getCliSastParameters().getSastHighThresholdValue(), params.getCliSastParameters().getSastMediumThresholdValue(),
                         params.getCliSastParameters().getSastLowThresholdValue(), sastScanResults);
                 return resolveThresholdExitCode(thresholdDto);
@@ -179,7 +256,7 @@ public class CLISASTScanJob extends CLIScanJob {
             }
             try {
                 CxRestArmClient armClient = new CxRestArmClientImpl(cxRestLoginClient, armConfig.getCxARMPolicyURL());
-                exitCode = RestClientUtils.getArmViolationExitCode(armClient, CxProviders.SAST, params.getCliMandatoryParameters().getProject().getId(), log);
+                exitCode = RestClientUtils.getArmViolationExitCode(armClient, CxProviders.SAST, project.getId(), log);
             } catch (CxRestARMClientException e) {
                 log.error("Error occurred during getting CxARM violations. Error message: " + e.getMessage());
                 return errorCodeResolver(e.getMessage());
@@ -306,10 +383,210 @@ public class CLISASTScanJob extends CLIScanJob {
     }
 
     private void handleLocalFolderSource(int projectId) throws CLIJobException {
+        long maxZipSize = getMaxZipSize();
+        uploadZippedSources(projectId, FilesUtils.folderSources(locationPath, params.getCliSastParameters(), additionalExcludePatterns, maxZipSize,
+                getChangedSources()), maxZipSize);
+    }
+
+    private void handleLocalGitSource(int projectId) throws CLIJobException {
+        long maxZipSize = getMaxZipSize();
+        uploadZippedSources(projectId, FilesUtils.gitRevisionSources(locationPath, params.getCliSastParameters().getLocationBranch(),
+                params.getCliSastParameters(), maxZipSize, getChangedSources()), maxZipSize);
+    }
+
+    /**
+     * Lists the local sources and compares them with the last scanned ones, if the changes are needed to pack only the changed files
+     * or to choose the scan type. Full scans list the sources as well, so the next incremental scan has a base.
+     */
+    private void loadSourceChanges(int projectId) {
+        if (!isChangedFilesOnly() && !params.getCliSastParameters().isAutoIncrementalScan()) {
+            return;
+        }
+        try {
+            sourceManifest = FilesUtils.createSourceManifest(params.getCliSharedParameters().getLocationType(), locationPath,
+                    params.getCliSastParameters().getLocationBranch(), params.getCliSastParameters(), additionalExcludePatterns);
+        } catch (CLIJobException e) {
+            log.warn(e.getMessage() + ". Changed files are not known");
+            return;
+        }
+        if (sourceManifest == null) {
+            return;
+        }
+        SourceManifest previousManifest = ScannedSourcesHistory.loadManifest(params.getCliMandatoryParameters().getOriginalHost(), projectId);
+        if (previousManifest == null || !previousManifest.getKind().equals(sourceManifest.getKind())) {
+            log.info("Files of the last scanned sources are not known");
+            return;
+        }
+        sourceChanges = sourceManifest.diff(previousManifest);
+        log.info("Files changed since the last scan: " + sourceChanges.getNumOfAddedFiles() + " added, " + sourceChanges.getNumOfModifiedFiles() + " modified, "
+                + sourceChanges.getDeletedEntries().size() + " deleted (" + String.format("%.1f", sourceChanges.getChangedPercent()) + "% of "
+                + sourceManifest.getNumOfFiles() + " files)");
+    }
+
+    /**
+     * With -incrementalmode auto, an incremental scan is chosen when few files changed since the last scan, and a full scan runs periodically
+     */
+    private boolean resolveIncrementalScan(int projectId) {
+        if (!params.getCliSastParameters().isAutoIncrementalScan()) {
+            return params.getCliSastParameters().isIncrementalScan();
+        }
+        int numOfIncrementalScans = ScannedSourcesHistory.getNumOfConsecutiveIncrementalScans(params.getCliMandatoryParameters().getOriginalHost(), projectId);
+        Integer maxConsecutiveScans = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_INCREMENTAL_AUTO_MAX_CONSECUTIVE_SCANS);
+        Integer maxChangedPercentProperty = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_INCREMENTAL_AUTO_MAX_CHANGED_PERCENT);
+        int maxChangedPercent = maxChangedPercentProperty == null ? 10 : maxChangedPercentProperty;
+
+        boolean isIncremental;
+        String reason;
+        if (maxConsecutiveScans != null && maxConsecutiveScans > 0 && numOfIncrementalScans >= maxConsecutiveScans) {
+            isIncremental = false;
+            reason = "the limit of " + maxConsecutiveScans + " consecutive incremental scans was reached";
+        } else if (sourceManifest != null && sourceChanges == null) {
+            isIncremental = false;
+            reason = "the files of the last scanned sources are not known";
+        } else if (sourceChanges == null && !ScannedSourcesHistory.isScanTypeRecorded(params.getCliMandatoryParameters().getOriginalHost(), projectId)) {
+            isIncremental = false;
+            reason = "no earlier scan of the project was recorded";
+        } else if (sourceChanges == null) {
+            //Sources which are not packed locally cannot be compared, only the periodic full scan applies
+            isIncremental = true;
+            reason = "changed files of " + params.getCliSharedParameters().getLocationType() + " sources are not measured";
+        } else {
+            isIncremental = sourceChanges.getChangedPercent() <= maxChangedPercent;
+            reason = String.format("%.1f%% of the files changed, %s the limit of %d%%", sourceChanges.getChangedPercent(), isIncremental ? "within" : "above",
+                    maxChangedPercent);
+        }
+        log.info("Scan type: " + (isIncremental ? "incremental" : "full") + " (automatic: " + reason + ". " + numOfIncrementalScans
+                + " consecutive incremental scans since the last full scan)");
+        return isIncremental;
+    }
+
+    /**
+     * @return the files which changed since the last scan of the project, or null if all the files should be packed
+     */
+    private SourceManifest.Changes getChangedSources() {
+        if (!isIncrementalScan || !isChangedFilesOnly()) {
+            return null;
+        }
+        if (sourceChanges == null) {
+            log.info("Changed files are not known. All the files will be packed");
+            return null;
+        }
+        if (sourceChanges.isEmpty()) {
+            log.info("No file was changed. All the files will be packed");
+            return null;
+        }
+        if (!sourceChanges.getDeletedEntries().isEmpty()) {
+            //The server has no way to be told which files were deleted
+            log.info("Files were deleted. All the files will be packed");
+            return null;
+        }
+        Integer maxChangedPercent = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_INCREMENTAL_MAX_CHANGED_PERCENT);
+        if (maxChangedPercent != null && sourceChanges.getChangedPercent() > maxChangedPercent) {
+            log.info("More than " + maxChangedPercent + "% of the files were changed. All the files will be packed");
+            return null;
+        }
+        return sourceChanges;
+    }
+
+    private static boolean isChangedFilesOnly() {
+        return Boolean.parseBoolean(ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_INCREMENTAL_CHANGED_FILES_ONLY));
+    }
+
+    private void handleArchiveSource(int projectId) throws CLIJobException {
+        long maxZipSize = getMaxZipSize();
+        uploadZippedSources(projectId, FilesUtils.archiveSources(locationPath, params.getCliSastParameters(), maxZipSize), maxZipSize);
+    }
+
+    private boolean isSkipUnchangedSources() {
+        return Boolean.parseBoolean(ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_SKIP_UNCHANGED_SOURCES))
+                && !params.getCliSastParameters().isHasForceScanParam();
+    }
+
+    /**
+     * @return a fingerprint of the local sources and of the scan settings, or null if the sources are not packed locally
+     */
+    private String createSourceFingerprint() {
+        String sourceFingerprint;
+        try {
+            sourceFingerprint = FilesUtils.createSourceFingerprint(params.getCliSharedParameters().getLocationType(), locationPath,
+                    params.getCliSastParameters().getLocationBranch(), params.getCliSastParameters(), additionalExcludePatterns);
+        } catch (CLIJobException e) {
+            log.warn(e.getMessage() + ". Sources will be scanned");
+            return null;
+        }
+        if (sourceFingerprint == null) {
+            return null;
+        }
+        //The same sources scanned with another preset or configuration have different results
+        return sourceFingerprint + "-" + params.getCliSastParameters().getPreset().getId() + "-" + params.getCliSastParameters().getConfiguration().getId();
+    }
+
+    /**
+     * @return the id of the last scan of the same sources, if its results are still available
+     */
+    private Integer getPreviousScanId(int projectId, String sourceFingerprint) {
+        Long previousScanId = ScannedSourcesHistory.getScanId(params.getCliMandatoryParameters().getOriginalHost(), projectId, sourceFingerprint);
+        if (previousScanId == null) {
+            return null;
+        }
+        try {
+            cxRestSASTClient.getScanResults(previousScanId);
+            return previousScanId.intValue();
+        } catch (CxRestSASTClientException e) {
+            log.info("Results of SAST scan " + previousScanId + " of the same sources are not available: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private long getMaxZipSize() {
         long maxZipSize = ConfigMgr.getCfgMgr().getLongProperty(ConfigMgr.KEY_MAX_ZIP_SIZE);
-        maxZipSize *= (1024 * 1024);
+        return maxZipSize * 1024 * 1024;
+    }
+
+    private void uploadZippedSources(int projectId, ZipWriter sources, long maxZipSize) throws CLIJobException {
+        ZipUploadMode zipUploadMode = ZipUploadMode.byName(ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_ZIP_UPLOAD_MODE));
+        if (zipUploadMode == ZipUploadMode.MEMORY && maxZipSize > MAX_IN_MEMORY_ZIP_SIZE) {
+            log.info("Packed sources of up to " + FileUtils.byteCountToDisplaySize(maxZipSize) + " cannot be held in memory, they will be zipped to a temporary file");
+            zipUploadMode = ZipUploadMode.FILE;
+        }
+        switch (zipUploadMode) {
+            case STREAM:
+                uploadStreamedSources(projectId, sources, maxZipSize);
+                break;
+            case FILE:
+                uploadSpooledSources(projectId, sources, maxZipSize);
+                break;
+            default:
+                uploadInMemorySources(projectId, sources, maxZipSize);
+                break;
+        }
+    }
+
+    private void printPackagingEstimate() throws CLIJobException {
+        log.info("Dry run: estimating packed sources of " + locationPath + ". Nothing will be uploaded or scanned");
+        PackagingEstimate estimate = FilesUtils.estimateZipFolder(locationPath, params.getCliSastParameters(), additionalExcludePatterns);
+        long maxZipSize = getMaxZipSize();
+
+        log.info("Number of files: " + estimate.getNumOfFiles() + " (walked in " + estimate.getWalkTimeMillis() + " ms)");
+        log.info("Total size: " + FileUtils.byteCountToDisplaySize(estimate.getRawBytes()));
+        log.info("Estimated compressed size: " + FileUtils.byteCountToDisplaySize(estimate.getEstimatedCompressedBytes())
+                + " (limit: " + FileUtils.byteCountToDisplaySize(maxZipSize) + ", compression: " + estimate.getCompressionPolicyDescription() + ")");
+        if (estimate.getEstimatedCompressedBytes() > maxZipSize) {
+            log.warn("Packed sources are expected to exceed the size limit. Exclude more files or folders, or increase " + ConfigMgr.KEY_MAX_ZIP_SIZE);
+        }
+        log.info("Largest files:");
+        for (PackagingEstimator.SizedPath largestFile : estimate.getLargestFiles()) {
+            log.info(String.format("%12s  %s", FileUtils.byteCountToDisplaySize(largestFile.getSize()), largestFile.getPath()));
+        }
+        log.info("Largest folders:");
+        for (PackagingEstimator.SizedPath largestDirectory : estimate.getLargestDirectories()) {
+            log.info(String.format("%12s  %s", FileUtils.byteCountToDisplaySize(largestDirectory.getSize()), largestDirectory.getPath()));
+        }
+    }
+
+    private void uploadInMemorySources(int projectId, ZipWriter sources, long maxZipSize) throws CLIJobException {
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        FilesUtils.zipFolder(params.getCliSharedParameters().getLocationPath(), params.getCliSastParameters(), maxZipSize, byteArrayOutputStream);
+        FilesUtils.zipSources(sources, maxZipSize, byteArrayOutputStream);
         log.info("Compressed file size is: " + FileUtils.byteCountToDisplaySize(byteArrayOutputStream.size()));
         FilesUtils.validateZippedSources(maxZipSize, byteArrayOutputStream);
         try {
@@ -319,6 +596,40 @@ public class CLISASTScanJob extends CLIScanJob {
         }
     }
 
+    private void uploadSpooledSources(int projectId, ZipWriter sources, long maxZipSize) throws CLIJobException {
+        File zipFile = FilesUtils.zipSourcesToFile(sources, maxZipSize);
+        try {
+            log.info("Compressed file size is: " + FileUtils.byteCountToDisplaySize(zipFile.length()));
+            FilesUtils.validateZippedSources(maxZipSize, zipFile);
+            new RetryableZipUpload(cxRestSASTClient, projectId, zipFile).run();
+        } finally {
+            FileUtils.deleteQuietly(zipFile);
+        }
+    }
+
+    private void uploadStreamedSources(int projectId, ZipWriter sources, long maxZipSize) throws CLIJobException {
+        log.info("Zipped source files will be uploaded while zipping");
+        try (PipedZipInputStream zipStream = FilesUtils.zipSourcesToStream(sources, maxZipSize)) {
+            cxRestSASTClient.uploadZipFileForSASTScan(projectId, zipStream);
+            log.info("Compressed file size is: " + FileUtils.byteCountToDisplaySize(zipStream.getTransferredBytes()));
+        } catch (CxRestSASTClientException | IOException e) {
+            throw new CLIJobException(e.getMessage());
+        }
+    }
+
+    private void setUpSastProject(ScanPrerequisitesValidator scanPrerequisitesValidator) throws CxRestGeneralClientException, CxRestSASTClientException {
+        if (!scanPrerequisitesValidator.isProjectExists()) {
+            createNewSastProject(project);
+        } else {
+            updateExistingSastProject(project);
+        }
+
+        if (params.getCliSastParameters().isHasExcludedFilesParam() || params.getCliSastParameters().isHasExcludedFoldersParam()) {
+            cxRestSASTClient.updateScanExclusions(project.getId(),
+                    params.getCliSastParameters().getExcludedFolders(), params.getCliSastParameters().getExcludedFiles());
+        }
+    }
+
     private void updateExistingSastProject(ProjectDTO project) throws CxRestSASTClientException {
         ScanSettingDTO scanSetting = cxRestSASTClient.getProjectScanSetting(project.getId());
         scanSetting.setPresetId(params.getCliSastParameters().getPreset().getId());
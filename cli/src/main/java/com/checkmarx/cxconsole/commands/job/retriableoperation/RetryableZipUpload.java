@@ -0,0 +1,39 @@
+package com.checkmarx.cxconsole.commands.job.retriableoperation;
+
+import com.checkmarx.cxconsole.clients.sast.CxRestSASTClient;
+import com.checkmarx.cxconsole.clients.sast.exceptions.CxRestSASTClientException;
+import com.checkmarx.cxconsole.commands.job.exceptions.CLIJobException;
+
+import java.io.File;
+
+/**
+ * Uploads a zip file which was spooled to disk, so a failed upload is retried without zipping the sources again
+ */
+public class RetryableZipUpload extends RetryableOperation {
+
+    private CxRestSASTClient<?> cxRestSASTClient;
+    private int projectId;
+    private File zipFile;
+
+    public RetryableZipUpload(CxRestSASTClient<?> cxRestSASTClient, int projectId, File zipFile) {
+        this.cxRestSASTClient = cxRestSASTClient;
+        this.projectId = projectId;
+        this.zipFile = zipFile;
+    }
+
+    @Override
+    protected void operation() throws CLIJobException {
+        try {
+            cxRestSASTClient.uploadZipFileForSASTScan(projectId, zipFile);
+        } catch (CxRestSASTClientException e) {
+            throw new CLIJobException(e.getMessage());
+        }
+
+        finished = true;
+    }
+
+    @Override
+    public String getOperationName() {
+        return "Zip file upload";
+    }
+}
@@ -2,6 +2,8 @@ package com.checkmarx.cxconsole.commands.utils;
 
 import com.checkmarx.cxconsole.commands.constants.LocationType;
 import com.checkmarx.cxconsole.commands.exceptions.CLICommandParameterValidatorException;
+import com.checkmarx.cxconsole.packaging.SourceArchiveZipper;
+import com.checkmarx.cxconsole.packaging.SourceRoots;
 import com.checkmarx.cxconsole.parameters.CLIScanParametersSingleton;
 import com.google.common.base.Strings;
 import org.apache.commons.lang.math.NumberUtils;
@@ -180,6 +182,14 @@ public class CommandParametersValidator {
                 validateGIT(parameters);
                 validateWorkspaceParameterOnlyInPerforce(parameters);
                 break;
+            case ("gitlocal"):
+                validateGitLocal(parameters);
+                validateWorkspaceParameterOnlyInPerforce(parameters);
+                break;
+            case ("archive"):
+                validateArchive(parameters);
+                validateWorkspaceParameterOnlyInPerforce(parameters);
+                break;
             default:
                 throw new CLICommandParameterValidatorException("Error validate SAST location type");
         }
@@ -211,6 +221,28 @@ public class CommandParametersValidator {
         validateOsaDisabledReportsParams(parameters);
     }
 
+    public static void validateDryRun(CLIScanParametersSingleton parameters) throws CLICommandParameterValidatorException {
+        if (!parameters.getCliSastParameters().isDryRun()) {
+            return;
+        }
+        if (parameters.getCliSharedParameters().getLocationType() != LocationType.FOLDER) {
+            throw new CLICommandParameterValidatorException("DryRun parameter is supported only when locationType is folder");
+        }
+        if (parameters.getCliSastParameters().isOsaEnabled()) {
+            throw new CLICommandParameterValidatorException("DryRun parameter does not support OSA scan. Please remove the EnableOsa parameter and run again");
+        }
+    }
+
+    public static void validateMonorepo(CLIScanParametersSingleton parameters) throws CLICommandParameterValidatorException {
+        if (parameters.getCliSastParameters().isMonorepo() && parameters.getCliSharedParameters().getLocationType() != LocationType.FOLDER) {
+            throw new CLICommandParameterValidatorException("Monorepo parameter is supported only when locationType is folder");
+        }
+        if (parameters.getCliSastParameters().isMonorepo() && parameters.getCliSharedParameters().getLocationPath() != null
+                && SourceRoots.parse(parameters.getCliSharedParameters().getLocationPath()).isMultiple()) {
+            throw new CLICommandParameterValidatorException("Monorepo parameter supports a single locationPath folder");
+        }
+    }
+
     public static void validateSASTAsyncScanParams(CLIScanParametersSingleton parameters) throws CLICommandParameterValidatorException {
         if (!parameters.getCliSastParameters().getReportsPath().isEmpty()) {
             throw new CLICommandParameterValidatorException("Asynchronous run does not allow report creation. Please remove the report parameters and run again");
@@ -298,6 +330,32 @@ public class CommandParametersValidator {
         }
     }
 
+    private static void validateGitLocal(CLIScanParametersSingleton parameters) throws CLICommandParameterValidatorException {
+        if (parameters.getCliSharedParameters().getLocationPath() == null) {
+            throw new CLICommandParameterValidatorException("locationPath is not specified. Required when locationType is gitlocal");
+        }
+
+        File repositoryDir = new File(parameters.getCliSharedParameters().getLocationPath());
+        if (!repositoryDir.isDirectory()) {
+            throw new CLICommandParameterValidatorException(MSG_ERR_FOLDER_NOT_EXIST + "[" + parameters.getCliSharedParameters().getLocationPath() + "]");
+        }
+    }
+
+    private static void validateArchive(CLIScanParametersSingleton parameters) throws CLICommandParameterValidatorException {
+        if (parameters.getCliSharedParameters().getLocationPath() == null) {
+            throw new CLICommandParameterValidatorException("locationPath is not specified. Required when locationType is archive");
+        }
+
+        File archive = new File(parameters.getCliSharedParameters().getLocationPath());
+        if (!archive.isFile()) {
+            throw new CLICommandParameterValidatorException("Specified source archive does not exist: [" + parameters.getCliSharedParameters().getLocationPath() + "]");
+        }
+        if (!SourceArchiveZipper.isSupportedArchive(archive)) {
+            throw new CLICommandParameterValidatorException("Unsupported source archive: [" + parameters.getCliSharedParameters().getLocationPath()
+                    + "]. Supported formats: zip, tar, tar.gz, tgz");
+        }
+    }
+
     private static void validatePerforce(CLIScanParametersSingleton parameters) throws CLICommandParameterValidatorException {
         if (parameters.getCliSastParameters().getLocationURL() == null) {
             throw new CLICommandParameterValidatorException("locationURL is not specified. Required when locationType is Perforce");
@@ -1,12 +1,12 @@
 package com.checkmarx.cxconsole.commands.utils;
 
 import com.checkmarx.cxconsole.clients.exception.CxRestClientException;
-import com.checkmarx.cxconsole.clients.utils.RestClientUtils;
+import com.checkmarx.cxconsole.clients.utils.HttpConnectionPool;
+import com.checkmarx.cxconsole.clients.utils.MetadataCache;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.HttpClientUtils;
-import org.apache.http.impl.client.HttpClientBuilder;
 
 /**
  * Created by nirli on 01/03/2018.
@@ -17,22 +17,22 @@ public class CommandUtils {
     }
 
     private static final String CX_SWAGGER = "/cxrestapi/help/swagger";
+    private static final String RESOLVED_HOST_KEY = "resolvedHost";
 
-    private static final boolean IS_PROXY = Boolean.parseBoolean(System.getProperty("proxySet"));
-    private static final String PROXY_HOST;
-    private static final String PROXY_PORT;
-
-    static {
-        PROXY_PORT = System.getProperty("http.proxyPort") == null
-                ? System.getProperty("https.proxyPort")
-                : System.getProperty("http.proxyPort");
-
-        PROXY_HOST = System.getProperty("http.proxyHost") == null
-                ? System.getProperty("https.proxyHost")
-                : System.getProperty("http.proxyHost");
+    /**
+     * The host with the protocol it was resolved to is kept in the metadata cache, so it is not probed again while it is fresh
+     */
+    public static String resolveServerProtocol(String originalHost) throws CxRestClientException {
+        MetadataCache metadataCache = MetadataCache.open(originalHost, "");
+        String host = metadataCache.getFreshValue(RESOLVED_HOST_KEY);
+        if (host == null) {
+            host = probeServerProtocol(originalHost);
+            metadataCache.putValue(RESOLVED_HOST_KEY, host);
+        }
+        return host;
     }
 
-    public static String resolveServerProtocol(String originalHost) throws CxRestClientException {
+    private static String probeServerProtocol(String originalHost) throws CxRestClientException {
         String host;
         if ((originalHost.startsWith("http://") || originalHost.startsWith("https://"))) {
             if (isCxWebServiceAvailable(originalHost + CX_SWAGGER)) {
@@ -55,18 +55,17 @@ public class CommandUtils {
     private static boolean isCxWebServiceAvailable(String url) {
         int responseCode;
         HttpClient client = null;
+        HttpResponse response = null;
         try {
-            final HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-            if (IS_PROXY) {
-                RestClientUtils.setClientProxy(clientBuilder, PROXY_HOST, Integer.parseInt(PROXY_PORT));
-            }
-            client = clientBuilder.build();
+            //The connection of the probe is kept in the shared pool, and reused by the clients of the scan
+            client = HttpConnectionPool.newClientBuilder().build();
             HttpGet getMethod = new HttpGet(url);
-            HttpResponse response = client.execute(getMethod);
+            response = client.execute(getMethod);
             responseCode = response.getStatusLine().getStatusCode();
         } catch (Exception e) {
             return false;
         } finally {
+            HttpClientUtils.closeQuietly(response);
             HttpClientUtils.closeQuietly(client);
         }
 
@@ -2,8 +2,29 @@ package com.checkmarx.cxconsole.commands.utils;
 
 import com.checkmarx.components.zipper.ZipListener;
 import com.checkmarx.components.zipper.Zipper;
+import com.checkmarx.cxconsole.commands.constants.LocationType;
+import com.checkmarx.cxconsole.commands.constants.ZipCompressionPolicy;
+import com.checkmarx.cxconsole.commands.constants.ZipContentFilterMode;
 import com.checkmarx.cxconsole.commands.job.exceptions.CLIJobException;
+import com.checkmarx.cxconsole.commands.utils.PipedZipInputStream.ZipWriter;
+import com.checkmarx.cxconsole.packaging.CompressionPolicy;
+import com.checkmarx.cxconsole.packaging.ContentFilter;
+import com.checkmarx.cxconsole.packaging.DeflatedEntryCache;
+import com.checkmarx.cxconsole.packaging.FileHashCache;
+import com.checkmarx.cxconsole.packaging.GitRevisionZipper;
+import com.checkmarx.cxconsole.packaging.ModuleDetector;
+import com.checkmarx.cxconsole.packaging.PackagingEstimator;
+import com.checkmarx.cxconsole.packaging.SourceArchiveZipper;
+import com.checkmarx.cxconsole.packaging.SourceFingerprint;
+import com.checkmarx.cxconsole.packaging.SourceManifest;
+import com.checkmarx.cxconsole.packaging.SourceRoots;
+import com.checkmarx.cxconsole.packaging.PackagingEstimator.PackagingEstimate;
+import com.checkmarx.cxconsole.packaging.ParallelZipper;
+import com.checkmarx.cxconsole.packaging.UploadThroughputHistory;
+import com.checkmarx.cxconsole.packaging.VendoredCodeDetector;
+import com.checkmarx.cxconsole.packaging.ZipSizeLimitOutputStream;
 import com.checkmarx.cxconsole.parameters.CLISASTParameters;
+import com.checkmarx.cxconsole.parameters.CLIScanParametersSingleton;
 import com.checkmarx.cxconsole.utils.ConfigMgr;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -13,6 +34,7 @@ import org.apache.log4j.Logger;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -26,31 +48,430 @@ public class FilesUtils {
 
     private static Logger log = Logger.getLogger(FilesUtils.class);
 
-    private static int numOfZippedFiles;
+    //Threads used by default on big machines, more threads hardly speed up zipping but hold more files in memory
+    private static final int MAX_DEFAULT_THREADS = 8;
 
-    public static void zipFolder(String location, CLISASTParameters cliSastParameters, long maxZipSize, ByteArrayOutputStream byteArrayOutputStream) {
-        numOfZippedFiles = 0;
-        if (!isProjectDirectoryValid(location)) {
-            return;
+    /**
+     * @param location a local folder, or several folders separated by {@link SourceRoots#LOCATION_SEPARATOR} which are packed into one archive
+     * @return the zipping of the files of the folders, which are found by walking the folders
+     */
+    public static ZipWriter folderSources(String location, CLISASTParameters cliSastParameters, long maxZipSize) throws CLIJobException {
+        return folderSources(location, cliSastParameters, maxZipSize, null);
+    }
+
+    /**
+     * @param changes the files which changed since the last scan, only they are zipped (null - all the files are zipped)
+     */
+    public static ZipWriter folderSources(String location, CLISASTParameters cliSastParameters, long maxZipSize, SourceManifest.Changes changes) throws CLIJobException {
+        return folderSources(location, cliSastParameters, null, maxZipSize, changes);
+    }
+
+    /**
+     * @param additionalExcludePatterns patterns relative to the folder, which are excluded on top of the configured exclusions (null - none)
+     */
+    public static ZipWriter folderSources(String location, CLISASTParameters cliSastParameters, String[] additionalExcludePatterns, long maxZipSize,
+                                          SourceManifest.Changes changes) throws CLIJobException {
+        SourceRoots sourceRoots = parseSourceRoots(location);
+        if (sourceRoots == null) {
+            throw new CLIJobException("Packing sources has failed: invalid project directory [" + location + "]");
         }
+        return outputStream -> zip(sourceRoots, cliSastParameters, additionalExcludePatterns, maxZipSize, changes, outputStream);
+    }
+
+    /**
+     * @return the zipping of the files of a revision, which are read from the object database of a local git repository
+     */
+    public static ZipWriter gitRevisionSources(String repositoryLocation, String revision, CLISASTParameters cliSastParameters, long maxZipSize) throws CLIJobException {
+        return gitRevisionSources(repositoryLocation, revision, cliSastParameters, maxZipSize, null);
+    }
+
+    /**
+     * @param changes the files which changed since the last scan, only they are zipped (null - all the files are zipped)
+     */
+    public static ZipWriter gitRevisionSources(String repositoryLocation, String revision, CLISASTParameters cliSastParameters, long maxZipSize,
+                                               SourceManifest.Changes changes) throws CLIJobException {
+        if (!isProjectDirectoryValid(repositoryLocation)) {
+            throw new CLIJobException("Packing sources has failed: invalid git repository directory [" + repositoryLocation + "]");
+        }
+        String gitRevision = getGitRevision(revision);
+        return outputStream -> zipGitRevision(repositoryLocation, gitRevision, cliSastParameters, maxZipSize, changes, outputStream);
+    }
+
+    /**
+     * @return the zipping of the files of a prebuilt zip or tar archive, which is not extracted to disk
+     */
+    public static ZipWriter archiveSources(String archiveLocation, CLISASTParameters cliSastParameters, long maxZipSize) throws CLIJobException {
+        File archive = new File(archiveLocation);
+        if (!archive.isFile()) {
+            log.error("Source archive [" + archiveLocation + "] does not exist.");
+            throw new CLIJobException("Packing sources has failed: invalid source archive [" + archiveLocation + "]");
+        }
+        return outputStream -> zipArchive(archive, cliSastParameters, maxZipSize, outputStream);
+    }
+
+    public static void zipSources(ZipWriter sources, long maxZipSize, OutputStream outputStream) throws CLIJobException {
         try {
-            log.info("Zipping files from: " + location + " Please wait");
-            String[] excludeFilesPatterns = createExclusionPatternsArray(ConfigMgr.EXCLUDED_FILES_TO_PACK, cliSastParameters);
-            String[] excludeFoldersPatterns = createExclusionPatternsArray(ConfigMgr.EXCLUDED_FOLDERS_TO_PACK, cliSastParameters);
-            String[] includeAllPatterns = new String[]{"**/*"};//the default is to include all files
-            ZipListener zipListener = (fileName, size) -> {
-                numOfZippedFiles++;
-                log.trace("Zipping (" + FileUtils.byteCountToDisplaySize(size) + "): " + fileName);
-            };
-            Zipper zipper = new Zipper();
-            zipper.zip(new File(location), ArrayUtils.addAll(excludeFilesPatterns, excludeFoldersPatterns), includeAllPatterns, byteArrayOutputStream, maxZipSize, zipListener);
-            log.info("Zipping complete with " + numOfZippedFiles + " files.");
-        } catch (Exception e) {
+            withSizeLimit(sources, maxZipSize).writeTo(outputStream);
+        } catch (Zipper.MaxZipSizeReached e) {
+            log.error("Packed project size is greater than " + maxZipSize);
+            throw new CLIJobException("Packed project size is greater than " + maxZipSize);
+        } catch (Zipper.NoFilesToZip e) {
+            log.error("Packing sources has failed: no files to zip");
+            throw new CLIJobException("Packing sources has failed: no files to zip");
+        } catch (IOException | RuntimeException e) {
+            //Partially packed sources may not be uploaded as if they were complete
             log.trace(e);
             log.error("Error occurred during zipping source files. Error message: " + e.getMessage());
+            throw new CLIJobException("Packing sources has failed: " + e.getMessage());
         }
     }
 
+    public static PipedZipInputStream zipSourcesToStream(ZipWriter sources, long maxZipSize) throws CLIJobException {
+        try {
+            return new PipedZipInputStream(withSizeLimit(sources, maxZipSize), maxZipSize);
+        } catch (IOException e) {
+            throw new CLIJobException("Packing sources has failed: " + e.getMessage());
+        }
+    }
+
+    public static File zipSourcesToFile(ZipWriter sources, long maxZipSize) throws CLIJobException {
+        File zipFile;
+        try {
+            zipFile = File.createTempFile("CxSASTSources", ".zip");
+            zipFile.deleteOnExit();
+        } catch (IOException e) {
+            throw new CLIJobException("Failed to create temporary zip file: " + e.getMessage());
+        }
+
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(zipFile))) {
+            zipSources(sources, maxZipSize, outputStream);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(zipFile);
+            throw new CLIJobException("Failed to write temporary zip file: " + e.getMessage());
+        } catch (CLIJobException e) {
+            FileUtils.deleteQuietly(zipFile);
+            throw e;
+        }
+        return zipFile;
+    }
+
+    /**
+     * Aborts as soon as the zipped bytes exceed the limit, rather than validating the complete archive
+     */
+    private static ZipWriter withSizeLimit(ZipWriter sources, long maxZipSize) {
+        return outputStream -> sources.writeTo(new ZipSizeLimitOutputStream(outputStream, maxZipSize));
+    }
+
+    private static void zip(SourceRoots sourceRoots, CLISASTParameters cliSastParameters, String[] additionalExcludePatterns, long maxZipSize,
+                            SourceManifest.Changes changes, OutputStream outputStream) throws IOException {
+        AtomicInteger numOfZippedFiles = new AtomicInteger();
+        log.info("Zipping " + (changes != null ? "changed " : "") + "files from: " + sourceRoots + " Please wait");
+        String[] includeAllPatterns = new String[]{"**/*"};//the default is to include all files
+        int numOfZipThreads = getNumOfThreads(ConfigMgr.KEY_ZIP_THREADS);
+        log.debug("Zipping with " + numOfZipThreads + " threads");
+        FileHashCache fileHashCache = FileHashCache.getDefault();
+        ContentFilter contentFilter = createContentFilter();
+        DeflatedEntryCache deflatedEntryCache = Boolean.parseBoolean(ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_ZIP_REUSE_ENTRIES))
+                ? DeflatedEntryCache.open(sourceRoots.toString()) : null;
+        CompressionPolicy compressionPolicy = createCompressionPolicy(numOfZipThreads);
+        List<String> ignoreFileNames = getIgnoreFileNames();
+        try {
+            String[] excludePatterns = excludeVendoredCode(sourceRoots, createExclusionPatterns(cliSastParameters, additionalExcludePatterns), fileHashCache);
+            if (numOfZipThreads == 1 && !sourceRoots.isMultiple() && changes == null && ignoreFileNames.isEmpty() && contentFilter == null
+                    && deflatedEntryCache == null && !isDeterministicZip() && isDefaultCompressionPolicy()) {
+                //Nothing the Zipper component does not support is asked for
+                log.debug("Zipping with the single threaded zipper");
+                new Zipper().zip(sourceRoots.getRoots().get(""), excludePatterns, includeAllPatterns, outputStream, maxZipSize, createZipListener(numOfZippedFiles));
+            } else {
+                new ParallelZipper(numOfZipThreads, getNumOfThreads(ConfigMgr.KEY_ZIP_WALKER_THREADS), compressionPolicy, ignoreFileNames, fileHashCache,
+                        contentFilter, deflatedEntryCache, isDeterministicZip())
+                        .zip(sourceRoots, excludePatterns, includeAllPatterns, changes, outputStream, maxZipSize, createZipListener(numOfZippedFiles));
+            }
+            if (contentFilter != null) {
+                contentFilter.logReport();
+            }
+        } finally {
+            if (fileHashCache != null) {
+                fileHashCache.flush();
+            }
+            if (deflatedEntryCache != null) {
+                deflatedEntryCache.close();
+            }
+        }
+        log.info("Zipping complete with " + numOfZippedFiles.get() + " files.");
+    }
+
+    private static void zipGitRevision(String repositoryLocation, String revision, CLISASTParameters cliSastParameters, long maxZipSize,
+                                       SourceManifest.Changes changes, OutputStream outputStream) throws IOException {
+        AtomicInteger numOfZippedFiles = new AtomicInteger();
+        log.info("Zipping " + (changes != null ? "changed " : "") + "files of revision " + revision + " from git repository: " + repositoryLocation + " Please wait");
+        ContentFilter contentFilter = createContentFilter();
+        GitRevisionZipper gitRevisionZipper = new GitRevisionZipper(createCompressionPolicy(1), contentFilter);
+        gitRevisionZipper.zip(new File(repositoryLocation), revision, createExclusionPatterns(cliSastParameters), new String[]{"**/*"}, changes, outputStream,
+                maxZipSize, createZipListener(numOfZippedFiles));
+        if (contentFilter != null) {
+            contentFilter.logReport();
+        }
+        log.info("Zipping complete with " + numOfZippedFiles.get() + " files.");
+    }
+
+    private static void zipArchive(File archive, CLISASTParameters cliSastParameters, long maxZipSize, OutputStream outputStream) throws IOException {
+        AtomicInteger numOfZippedFiles = new AtomicInteger();
+        log.info("Zipping files from source archive: " + archive + " Please wait");
+        SourceArchiveZipper sourceArchiveZipper = new SourceArchiveZipper(createCompressionPolicy(1));
+        sourceArchiveZipper.zip(archive, createExclusionPatterns(cliSastParameters), new String[]{"**/*"}, outputStream, maxZipSize, createZipListener(numOfZippedFiles));
+        log.info("Zipping complete with " + numOfZippedFiles.get() + " files.");
+    }
+
+    /**
+     * @param numOfZippedFiles counts the zipped files of this zipping, several sources may be zipped at the same time
+     */
+    private static ZipListener createZipListener(AtomicInteger numOfZippedFiles) {
+        return (fileName, size) -> {
+            numOfZippedFiles.incrementAndGet();
+            log.trace("Zipping (" + FileUtils.byteCountToDisplaySize(size) + "): " + fileName);
+        };
+    }
+
+    /**
+     * @return a fingerprint of the local sources which would be packed (file paths, content and exclusions),
+     * or null when the sources are not packed locally
+     */
+    public static String createSourceFingerprint(LocationType locationType, String location, String revision, CLISASTParameters cliSastParameters) throws CLIJobException {
+        return createSourceFingerprint(locationType, location, revision, cliSastParameters, null);
+    }
+
+    /**
+     * @param additionalExcludePatterns patterns relative to the location, which are excluded on top of the configured exclusions (null - none)
+     */
+    public static String createSourceFingerprint(LocationType locationType, String location, String revision, CLISASTParameters cliSastParameters,
+                                                 String[] additionalExcludePatterns) throws CLIJobException {
+        String[] excludePatterns = createExclusionPatterns(cliSastParameters, additionalExcludePatterns);
+        FileHashCache fileHashCache = FileHashCache.getDefault();
+        try {
+            SourceFingerprint sourceFingerprint;
+            switch (locationType) {
+                case FOLDER:
+                    SourceRoots sourceRoots = parseSourceRoots(location);
+                    if (sourceRoots == null) {
+                        return null;
+                    }
+                    sourceFingerprint = SourceFingerprint.ofFolder(sourceRoots, excludePatterns, new String[]{"**/*"}, getIgnoreFileNames(),
+                            getNumOfThreads(ConfigMgr.KEY_ZIP_WALKER_THREADS), fileHashCache);
+                    VendoredCodeDetector vendoredCodeDetector = loadVendoredCodeDetector();
+                    if (vendoredCodeDetector != null) {
+                        sourceFingerprint.addSetting("vendored signatures " + vendoredCodeDetector.getSignaturesId());
+                    }
+                    break;
+                case GITLOCAL:
+                    //A git tree id already identifies the content of all of its files
+                    sourceFingerprint = new SourceFingerprint();
+                    sourceFingerprint.addSetting("git tree " + GitRevisionZipper.resolveTreeId(new File(location), getGitRevision(revision)));
+                    addExclusionSettings(sourceFingerprint, excludePatterns);
+                    break;
+                case ARCHIVE:
+                    File archive = new File(location);
+                    sourceFingerprint = new SourceFingerprint();
+                    sourceFingerprint.add(archive.getName(), fileHashCache != null
+                            ? fileHashCache.getHash(archive, archive.length(), archive.lastModified()) : FileHashCache.hash(archive));
+                    addExclusionSettings(sourceFingerprint, excludePatterns);
+                    break;
+                default:
+                    return null;
+            }
+            sourceFingerprint.addSetting("content filter " + getContentFilterMode());
+            return sourceFingerprint.getValue();
+        } catch (IOException e) {
+            throw new CLIJobException("Failed to fingerprint sources: " + e.getMessage());
+        } finally {
+            if (fileHashCache != null) {
+                fileHashCache.flush();
+            }
+        }
+    }
+
+    /**
+     * @return the files which would be packed with their content hashes, or null when the sources are not packed from a folder or a git repository
+     */
+    public static SourceManifest createSourceManifest(LocationType locationType, String location, String revision, CLISASTParameters cliSastParameters) throws CLIJobException {
+        return createSourceManifest(locationType, location, revision, cliSastParameters, null);
+    }
+
+    /**
+     * @param additionalExcludePatterns patterns relative to the location, which are excluded on top of the configured exclusions (null - none)
+     * @return the manifest of the sources, or null if they are not listed (e.g. an invalid project directory)
+     */
+    public static SourceManifest createSourceManifest(LocationType locationType, String location, String revision, CLISASTParameters cliSastParameters,
+                                                      String[] additionalExcludePatterns) throws CLIJobException {
+        String[] excludePatterns = createExclusionPatterns(cliSastParameters, additionalExcludePatterns);
+        try {
+            switch (locationType) {
+                case FOLDER:
+                    SourceRoots sourceRoots = parseSourceRoots(location);
+                    if (sourceRoots == null) {
+                        return null;
+                    }
+                    FileHashCache fileHashCache = FileHashCache.getDefault();
+                    try {
+                        return SourceManifest.ofFolder(sourceRoots, excludePatterns, new String[]{"**/*"}, getIgnoreFileNames(),
+                                getNumOfThreads(ConfigMgr.KEY_ZIP_WALKER_THREADS), fileHashCache);
+                    } finally {
+                        if (fileHashCache != null) {
+                            fileHashCache.flush();
+                        }
+                    }
+                case GITLOCAL:
+                    return GitRevisionZipper.createManifest(new File(location), getGitRevision(revision), excludePatterns, new String[]{"**/*"});
+                default:
+                    return null;
+            }
+        } catch (IOException e) {
+            throw new CLIJobException("Failed to list sources: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the exclude patterns, with the vendored folders and files found in the folders
+     */
+    private static String[] excludeVendoredCode(SourceRoots sourceRoots, String[] excludePatterns, FileHashCache fileHashCache) throws IOException {
+        VendoredCodeDetector vendoredCodeDetector = loadVendoredCodeDetector();
+        if (vendoredCodeDetector == null) {
+            return excludePatterns;
+        }
+        log.info("Detecting vendored code by " + vendoredCodeDetector.getNumOfSignatures() + " signatures");
+        VendoredCodeDetector.Detection detection = vendoredCodeDetector.detect(sourceRoots, excludePatterns, new String[]{"**/*"}, getIgnoreFileNames(),
+                getNumOfThreads(ConfigMgr.KEY_ZIP_WALKER_THREADS), fileHashCache);
+        detection.logReport();
+        return ArrayUtils.addAll(excludePatterns, detection.getExcludePatterns());
+    }
+
+    /**
+     * @return the detector with the bundled and the configured signatures, or null if the detection is off or there are no signatures
+     */
+    private static VendoredCodeDetector loadVendoredCodeDetector() throws IOException {
+        if (!Boolean.parseBoolean(ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_ZIP_VENDORED_DETECTION))) {
+            return null;
+        }
+        List<File> signatureFiles = new ArrayList<>();
+        String signatureFileNames = ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_ZIP_VENDORED_SIGNATURES);
+        if (!StringUtils.isBlank(signatureFileNames)) {
+            for (String signatureFileName : signatureFileNames.split(",")) {
+                if (!StringUtils.isBlank(signatureFileName)) {
+                    signatureFiles.add(new File(signatureFileName.trim()));
+                }
+            }
+        }
+        VendoredCodeDetector vendoredCodeDetector = VendoredCodeDetector.load(signatureFiles);
+        return vendoredCodeDetector.getNumOfSignatures() > 0 ? vendoredCodeDetector : null;
+    }
+
+    private static String getGitRevision(String revision) {
+        return StringUtils.isBlank(revision) ? GitRevisionZipper.DEFAULT_REVISION : revision.trim();
+    }
+
+    private static void addExclusionSettings(SourceFingerprint sourceFingerprint, String[] excludePatterns) {
+        String[] sortedPatterns = excludePatterns.clone();
+        Arrays.sort(sortedPatterns);
+        for (String excludePattern : sortedPatterns) {
+            sourceFingerprint.addSetting("exclude " + excludePattern);
+        }
+    }
+
+    public static PackagingEstimate estimateZipFolder(String location, CLISASTParameters cliSastParameters) throws CLIJobException {
+        return estimateZipFolder(location, cliSastParameters, null);
+    }
+
+    /**
+     * @param additionalExcludePatterns patterns relative to the folder, which are excluded on top of the configured exclusions (null - none)
+     */
+    public static PackagingEstimate estimateZipFolder(String location, CLISASTParameters cliSastParameters, String[] additionalExcludePatterns) throws CLIJobException {
+        SourceRoots sourceRoots = parseSourceRoots(location);
+        if (sourceRoots == null) {
+            throw new CLIJobException("Packing sources has failed: invalid project directory [" + location + "]");
+        }
+        Integer numOfLargestEntries = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_DRY_RUN_LARGEST_ENTRIES);
+        PackagingEstimator packagingEstimator = new PackagingEstimator(getNumOfThreads(ConfigMgr.KEY_ZIP_WALKER_THREADS),
+                createCompressionPolicy(getNumOfThreads(ConfigMgr.KEY_ZIP_THREADS)), getIgnoreFileNames(), numOfLargestEntries == null ? 10 : numOfLargestEntries);
+        try {
+            return packagingEstimator.estimate(sourceRoots, createExclusionPatterns(cliSastParameters, additionalExcludePatterns), new String[]{"**/*"});
+        } catch (IOException e) {
+            throw new CLIJobException("Failed to estimate packed sources: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the modules of a monorepo folder, which is walked with the same exclusions as the zipping
+     */
+    public static ModuleDetector.Detection detectModules(String location, CLISASTParameters cliSastParameters) throws CLIJobException {
+        if (!isProjectDirectoryValid(location)) {
+            throw new CLIJobException("Detecting modules has failed: invalid project directory [" + location + "]");
+        }
+        try {
+            return ModuleDetector.detect(new File(location), createExclusionPatterns(cliSastParameters), new String[]{"**/*"}, getIgnoreFileNames(),
+                    getNumOfThreads(ConfigMgr.KEY_ZIP_WALKER_THREADS));
+        } catch (IOException e) {
+            throw new CLIJobException("Failed to detect modules: " + e.getMessage());
+        }
+    }
+
+    private static String[] createExclusionPatterns(CLISASTParameters cliSastParameters) {
+        String[] excludeFilesPatterns = createExclusionPatternsArray(ConfigMgr.EXCLUDED_FILES_TO_PACK, cliSastParameters);
+        String[] excludeFoldersPatterns = createExclusionPatternsArray(ConfigMgr.EXCLUDED_FOLDERS_TO_PACK, cliSastParameters);
+        return ArrayUtils.addAll(excludeFilesPatterns, excludeFoldersPatterns);
+    }
+
+    private static String[] createExclusionPatterns(CLISASTParameters cliSastParameters, String[] additionalExcludePatterns) {
+        return ArrayUtils.addAll(createExclusionPatterns(cliSastParameters), additionalExcludePatterns);
+    }
+
+    private static List<String> getIgnoreFileNames() {
+        String ignoreFiles = ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_ZIP_IGNORE_FILES);
+        if (StringUtils.isBlank(ignoreFiles)) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(ignoreFiles.split(",")).map(String::trim).filter(name -> !name.isEmpty()).collect(Collectors.toList());
+    }
+
+    private static CompressionPolicy createCompressionPolicy(int numOfZipThreads) {
+        if (isDefaultCompressionPolicy()) {
+            return CompressionPolicy.defaultPolicy();
+        }
+        //A deterministic archive may not depend on the measured upload throughput, so the adaptive policy keeps its fixed level
+        Double uploadBytesPerSecond = isDeterministicZip() ? null
+                : UploadThroughputHistory.getBytesPerSecond(CLIScanParametersSingleton.getCLIScanParameter().getCliMandatoryParameters().getOriginalHost());
+        String storedExtensions = ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_ZIP_STORED_EXTENSIONS);
+        return CompressionPolicy.adaptivePolicy(uploadBytesPerSecond, numOfZipThreads,
+                StringUtils.isBlank(storedExtensions) ? Collections.emptyList() : Arrays.asList(storedExtensions.split(",")));
+    }
+
+    private static boolean isDefaultCompressionPolicy() {
+        return ZipCompressionPolicy.byName(ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_ZIP_COMPRESSION_POLICY)) == ZipCompressionPolicy.DEFAULT;
+    }
+
+    private static boolean isDeterministicZip() {
+        return Boolean.parseBoolean(ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_ZIP_DETERMINISTIC));
+    }
+
+    /**
+     * @return the filter of binary, minified, generated and lock files, or null if it is off
+     */
+    private static ContentFilter createContentFilter() {
+        ZipContentFilterMode zipContentFilterMode = getContentFilterMode();
+        return zipContentFilterMode == ZipContentFilterMode.OFF ? null : new ContentFilter(zipContentFilterMode == ZipContentFilterMode.EXCLUDE);
+    }
+
+    private static ZipContentFilterMode getContentFilterMode() {
+        return ZipContentFilterMode.byName(ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_ZIP_CONTENT_FILTER));
+    }
+
+    private static int getNumOfThreads(String propertyKey) {
+        Integer numOfThreads = ConfigMgr.getCfgMgr().getIntProperty(propertyKey);
+        if (numOfThreads == null || numOfThreads <= 0) {
+            return Math.min(Runtime.getRuntime().availableProcessors(), MAX_DEFAULT_THREADS);
+        }
+        return numOfThreads;
+    }
+
     public static void validateZippedSources(long maxZipSize, ByteArrayOutputStream byteArrayOutputStream) throws CLIJobException {
         // check packed sources size
         if (byteArrayOutputStream == null || byteArrayOutputStream.size() == 0) {
@@ -66,6 +487,19 @@ public class FilesUtils {
         }
     }
 
+    public static void validateZippedSources(long maxZipSize, File zipFile) throws CLIJobException {
+        // check packed sources size
+        if (zipFile == null || zipFile.length() == 0) {
+            log.error("Packing sources has failed: empty packed source ");
+            throw new CLIJobException("Packing sources has failed: empty packed source ");
+        }
+
+        if (zipFile.length() > maxZipSize) {
+            log.error("Packed project size is greater than " + maxZipSize);
+            throw new CLIJobException("Packed project size is greater than " + maxZipSize);
+        }
+    }
+
     public static void createReportFile(HttpResponse response, File file) {
         try (FileOutputStream fos = new FileOutputStream(file)) {
             InputStream is = response.getEntity().getContent();
@@ -83,6 +517,19 @@ public class FilesUtils {
         }
     }
 
+    /**
+     * @return the folders of the location, or null if any of them is not a valid project directory
+     */
+    private static SourceRoots parseSourceRoots(String location) {
+        SourceRoots sourceRoots = SourceRoots.parse(location);
+        for (File folder : sourceRoots.getRoots().values()) {
+            if (!isProjectDirectoryValid(folder.getPath())) {
+                return null;
+            }
+        }
+        return sourceRoots;
+    }
+
     private static boolean isProjectDirectoryValid(String location) {
         File projectDir = new File(location);
         if (!projectDir.exists()) {
@@ -0,0 +1,105 @@
+package com.checkmarx.cxconsole.commands.utils;
+
+import com.checkmarx.components.zipper.Zipper;
+import org.apache.log4j.Logger;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+/**
+ * Input stream which is fed by a background zipping thread through a bounded pipe.
+ * The consumer (the upload request) reads the compressed bytes while later files are still being zipped,
+ * so the heap usage does not depend on the project size.
+ */
+public class PipedZipInputStream extends FilterInputStream {
+
+    private static Logger log = Logger.getLogger(PipedZipInputStream.class);
+
+    private static final int PIPE_BUFFER_SIZE = 1024 * 1024;
+
+    private final long maxZipSize;
+    private long transferredBytes = 0;
+    private volatile IOException zipFailure;
+
+    @FunctionalInterface
+    public interface ZipWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    public PipedZipInputStream(ZipWriter zipWriter, long maxZipSize) throws IOException {
+        super(new PipedInputStream(PIPE_BUFFER_SIZE));
+        this.maxZipSize = maxZipSize;
+        final PipedOutputStream pipeOutputStream = new PipedOutputStream((PipedInputStream) in);
+        Thread zipThread = new Thread(() -> {
+            try {
+                zipWriter.writeTo(pipeOutputStream);
+            } catch (IOException e) {
+                zipFailure = e;
+            } catch (RuntimeException e) {
+                zipFailure = new IOException(e.getMessage(), e);
+            } finally {
+                closeQuietly(pipeOutputStream);
+            }
+        }, "cx-zip-stream");
+        zipThread.setDaemon(true);
+        zipThread.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b == -1) {
+            validateZipCompleted();
+        } else {
+            countTransferredBytes(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read == -1) {
+            validateZipCompleted();
+        } else {
+            countTransferredBytes(read);
+        }
+        return read;
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    private void countTransferredBytes(int read) throws IOException {
+        transferredBytes += read;
+        if (transferredBytes > maxZipSize) {
+            log.error("Packed project size is greater than " + maxZipSize);
+            throw new IOException("Packed project size is greater than " + maxZipSize);
+        }
+    }
+
+    private void validateZipCompleted() throws IOException {
+        if (zipFailure instanceof Zipper.MaxZipSizeReached) {
+            log.error("Packed project size is greater than " + maxZipSize);
+            throw new IOException("Packed project size is greater than " + maxZipSize, zipFailure);
+        }
+        if (zipFailure != null) {
+            throw new IOException("Packing sources has failed: " + zipFailure.getMessage(), zipFailure);
+        }
+        if (transferredBytes == 0) {
+            throw new IOException("Packing sources has failed: empty packed source");
+        }
+    }
+
+    private static void closeQuietly(PipedOutputStream pipeOutputStream) {
+        try {
+            pipeOutputStream.close();
+        } catch (IOException e) {
+            log.trace("Failed to close zip stream pipe: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.checkmarx.cxconsole.packaging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+
+/**
+ * Exclusive lock on a lock file of the cache folder, which serializes the updates of a cache file by several CLI processes.
+ * The lock is held on a separate file, so the cache file itself may be replaced while the lock is held.
+ */
+class CacheFileLock {
+
+    @FunctionalInterface
+    interface LockedAction {
+        void run() throws IOException;
+    }
+
+    private CacheFileLock() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Runs the action while this process holds the lock, and waits for the lock if another process holds it
+     */
+    static void runLocked(File lockFile, LockedAction action) throws IOException {
+        try (RandomAccessFile lock = new RandomAccessFile(lockFile, "rw")) {
+            FileLock fileLock = lock.getChannel().lock();
+            try {
+                action.run();
+            } finally {
+                fileLock.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.checkmarx.cxconsole.packaging;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Chooses how every zip entry is compressed, aiming for the shortest zip + upload time rather than the smallest archive.
+ * Already compressed content (by extension, or by the entropy of its first bytes) is stored as is, and the deflate level
+ * of the other entries is chosen by the measured upload throughput to the server. Compressible entries are always deflated,
+ * since storing them would multiply the size of the archive, which may then exceed the maximal zip size.
+ */
+public class CompressionPolicy {
+
+    public static final int SAMPLE_SIZE = 1024;
+
+    //Content which looks random (close to 8 bits per byte) is not worth compressing
+    private static final double STORED_ENTROPY_THRESHOLD = 7.5;
+    private static final int MIN_SAMPLE_SIZE = 256;
+
+    //Approximate deflate speed (bytes per second, per thread) and compressed size ratio for source code
+    private static final int[] LEVELS = {1, 6, 9};
+    private static final double[] LEVEL_SPEEDS = {90e6, 35e6, 12e6};
+    private static final double[] LEVEL_RATIOS = {0.32, 0.26, 0.255};
+
+    private final boolean adaptive;
+    private final int level;
+    private final Set<String> storedExtensions;
+    private final String description;
+
+    private CompressionPolicy(boolean adaptive, int level, Set<String> storedExtensions, String description) {
+        this.adaptive = adaptive;
+        this.level = level;
+        this.storedExtensions = storedExtensions;
+        this.description = description;
+    }
+
+    /**
+     * Deflates every entry with the default level, like the Zipper component does
+     */
+    public static CompressionPolicy defaultPolicy() {
+        return new CompressionPolicy(false, Deflater.DEFAULT_COMPRESSION, Collections.emptySet(), "default (deflate level 6)");
+    }
+
+    /**
+     * @param uploadBytesPerSecond measured upload throughput to the server, or null if it was not measured yet
+     */
+    public static CompressionPolicy adaptivePolicy(Double uploadBytesPerSecond, int numOfThreads, Collection<String> storedExtensions) {
+        Set<String> extensions = new HashSet<>();
+        for (String extension : storedExtensions) {
+            extensions.add(extension.trim().toLowerCase(Locale.ROOT));
+        }
+
+        if (uploadBytesPerSecond == null || uploadBytesPerSecond <= 0) {
+            return new CompressionPolicy(true, Deflater.DEFAULT_COMPRESSION, extensions, "adaptive (deflate level 6, upload throughput was not measured yet)");
+        }
+
+        //Estimated zip + upload seconds per source byte
+        int chosenLevel = LEVELS[0];
+        double chosenCost = Double.MAX_VALUE;
+        for (int i = 0; i < LEVELS.length; i++) {
+            double cost = 1 / (LEVEL_SPEEDS[i] * numOfThreads) + LEVEL_RATIOS[i] / uploadBytesPerSecond;
+            if (cost < chosenCost) {
+                chosenLevel = LEVELS[i];
+                chosenCost = cost;
+            }
+        }
+        String throughput = FileUtils.byteCountToDisplaySize(uploadBytesPerSecond.longValue()) + "/s upload throughput";
+        return new CompressionPolicy(true, chosenLevel, extensions, "adaptive (deflate level " + chosenLevel + ", " + throughput + ")");
+    }
+
+    /**
+     * @return the deflate level of compressible entries
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @param sample the first bytes of the entry (up to {@link #SAMPLE_SIZE} bytes are inspected)
+     */
+    public boolean isStored(String entryName, byte[] sample, int sampleLength) {
+        if (!adaptive) {
+            return false;
+        }
+        if (storedExtensions.contains(FilenameUtils.getExtension(entryName).toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+        return sampleLength >= MIN_SAMPLE_SIZE && entropy(sample, Math.min(sampleLength, SAMPLE_SIZE)) > STORED_ENTROPY_THRESHOLD;
+    }
+
+    /**
+     * @return Shannon entropy in bits per byte
+     */
+    private static double entropy(byte[] sample, int sampleLength) {
+        int[] counts = new int[256];
+        for (int i = 0; i < sampleLength; i++) {
+            counts[sample[i] & 0xFF]++;
+        }
+        double entropy = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                double probability = (double) count / sampleLength;
+                entropy -= probability * Math.log(probability);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+}
@@ -0,0 +1,228 @@
+package com.checkmarx.cxconsole.packaging;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds source files which are not worth scanning by their name and the beginning of their content:
+ * binaries (magic bytes or NUL bytes), minified scripts and style sheets (long lines), generated code (generator header markers) and lock files.
+ * Only a sample of each file is inspected, so the filter runs inline with the zipping, and may be called by several threads.
+ * Every detected file is recorded, so a report of the filtered files and their size can be logged at the end.
+ */
+public class ContentFilter {
+
+    private static Logger log = Logger.getLogger(ContentFilter.class);
+
+    /**
+     * Number of bytes at the beginning of a file which are inspected
+     */
+    public static final int SAMPLE_SIZE = 8 * 1024;
+    //Generator markers are looked for in the header of a file only, so code which mentions them is kept
+    private static final int HEADER_SIZE = 1024;
+    private static final int MAX_LINE_LENGTH = 1000;
+    private static final String MINIFIED_NAME_MARKER = ".min.";
+
+    private static final byte[][] BINARY_MAGIC_NUMBERS = {
+            {0x7F, 'E', 'L', 'F'},
+            {'M', 'Z'},
+            {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE},
+            {(byte) 0xFE, (byte) 0xED, (byte) 0xFA, (byte) 0xCE},
+            {(byte) 0xFE, (byte) 0xED, (byte) 0xFA, (byte) 0xCF},
+            {(byte) 0xCE, (byte) 0xFA, (byte) 0xED, (byte) 0xFE},
+            {(byte) 0xCF, (byte) 0xFA, (byte) 0xED, (byte) 0xFE},
+            {'P', 'K', 3, 4},
+            {0x1F, (byte) 0x8B},
+            {'%', 'P', 'D', 'F'},
+            {(byte) 0x89, 'P', 'N', 'G'},
+            {'G', 'I', 'F', '8'},
+            {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}
+    };
+    private static final byte[][] UNICODE_BYTE_ORDER_MARKS = {
+            {(byte) 0xFF, (byte) 0xFE},
+            {(byte) 0xFE, (byte) 0xFF}
+    };
+    private static final List<String> GENERATED_MARKERS = Arrays.asList("@generated", "Code generated by", "<auto-generated",
+            "Generated by the protocol buffer compiler", "Generated by the gRPC", "webpackBootstrap");
+    private static final Set<String> MINIFIABLE_EXTENSIONS = new HashSet<>(Arrays.asList("js", "mjs", "cjs", "css"));
+    private static final Set<String> LOCK_FILE_NAMES = new HashSet<>(Arrays.asList("package-lock.json", "npm-shrinkwrap.json", "yarn.lock",
+            "pnpm-lock.yaml", "composer.lock", "Gemfile.lock", "Cargo.lock", "poetry.lock", "Pipfile.lock", "go.sum", "packages.lock.json"));
+
+    public enum Reason {
+        BINARY("binary"),
+        MINIFIED("minified"),
+        GENERATED("generated"),
+        LOCK_FILE("lock");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final boolean isExcluding;
+    private final List<FilteredFile> filteredFiles = new ArrayList<>();
+
+    /**
+     * @param isExcluding true - detected files are left out of the zip, false - they are only reported
+     */
+    public ContentFilter(boolean isExcluding) {
+        this.isExcluding = isExcluding;
+    }
+
+    /**
+     * @param sample the beginning of the file (up to {@link #SAMPLE_SIZE} bytes are inspected)
+     * @param size   the size of the complete file
+     * @return true if the file should be left out of the zip
+     */
+    public boolean isExcluded(String entryName, byte[] sample, int sampleLength, long size) {
+        Reason reason = detect(entryName, sample, Math.min(sampleLength, SAMPLE_SIZE));
+        if (reason == null) {
+            return false;
+        }
+        synchronized (filteredFiles) {
+            filteredFiles.add(new FilteredFile(entryName, reason, size));
+        }
+        return isExcluding;
+    }
+
+    static Reason detect(String entryName, byte[] sample, int length) {
+        String name = entryName.substring(entryName.lastIndexOf('/') + 1);
+        if (LOCK_FILE_NAMES.contains(name)) {
+            return Reason.LOCK_FILE;
+        }
+        if (isBinary(sample, length)) {
+            return Reason.BINARY;
+        }
+        if (isMinifiable(name) && (name.contains(MINIFIED_NAME_MARKER) || hasLongLine(sample, length))) {
+            return Reason.MINIFIED;
+        }
+        String header = new String(sample, 0, Math.min(length, HEADER_SIZE), StandardCharsets.ISO_8859_1);
+        for (String marker : GENERATED_MARKERS) {
+            if (header.contains(marker)) {
+                return Reason.GENERATED;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBinary(byte[] sample, int length) {
+        for (byte[] byteOrderMark : UNICODE_BYTE_ORDER_MARKS) {
+            if (startsWith(sample, length, byteOrderMark)) {
+                //UTF-16 text is full of NUL bytes
+                return false;
+            }
+        }
+        for (byte[] magicNumber : BINARY_MAGIC_NUMBERS) {
+            if (startsWith(sample, length, magicNumber)) {
+                return true;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            if (sample[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] sample, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (sample[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isMinifiable(String name) {
+        int extensionStart = name.lastIndexOf('.');
+        return extensionStart >= 0 && MINIFIABLE_EXTENSIONS.contains(name.substring(extensionStart + 1).toLowerCase(Locale.ENGLISH));
+    }
+
+    private static boolean hasLongLine(byte[] sample, int length) {
+        int lineLength = 0;
+        for (int i = 0; i < length; i++) {
+            if (sample[i] == '\n') {
+                lineLength = 0;
+            } else if (++lineLength > MAX_LINE_LENGTH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Logs the detected files, and how many of them and how many bytes were left out for every reason
+     */
+    public void logReport() {
+        List<FilteredFile> reportedFiles;
+        synchronized (filteredFiles) {
+            reportedFiles = new ArrayList<>(filteredFiles);
+        }
+        if (reportedFiles.isEmpty()) {
+            log.info("Content filter: no binary, minified, generated or lock files were found");
+            return;
+        }
+        reportedFiles.sort(Comparator.comparing(FilteredFile::getReason).thenComparing(FilteredFile::getEntryName));
+        Map<Reason, long[]> totals = new EnumMap<>(Reason.class);
+        for (FilteredFile filteredFile : reportedFiles) {
+            log.info("Content filter: " + (isExcluding ? "excluded " : "found ") + filteredFile.getReason().getDescription() + " file ("
+                    + FileUtils.byteCountToDisplaySize(filteredFile.getSize()) + "): " + filteredFile.getEntryName());
+            long[] total = totals.computeIfAbsent(filteredFile.getReason(), reason -> new long[2]);
+            total[0]++;
+            total[1] += filteredFile.getSize();
+        }
+        long totalBytes = 0;
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<Reason, long[]> total : totals.entrySet()) {
+            summary.append(summary.length() == 0 ? "" : ", ").append(total.getKey().getDescription()).append(": ").append(total.getValue()[0])
+                    .append(" files (").append(FileUtils.byteCountToDisplaySize(total.getValue()[1])).append(")");
+            totalBytes += total.getValue()[1];
+        }
+        log.info("Content filter " + (isExcluding ? "excluded " : "found ") + reportedFiles.size() + " files, " + FileUtils.byteCountToDisplaySize(totalBytes)
+                + (isExcluding ? " saved" : " could be saved with the exclude mode") + ". " + summary);
+    }
+
+    private static class FilteredFile {
+        private final String entryName;
+        private final Reason reason;
+        private final long size;
+
+        FilteredFile(String entryName, Reason reason, long size) {
+            this.entryName = entryName;
+            this.reason = reason;
+            this.size = size;
+        }
+
+        String getEntryName() {
+            return entryName;
+        }
+
+        Reason getReason() {
+            return reason;
+        }
+
+        long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.cxconsole.utils.ConfigMgr;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The archive packed from the same sources by the previous run, kept in the cache folder with the content hash of every entry.
+ * An entry of a file whose content did not change, and which is compressed the same way, is copied from it as is (with its CRC and
+ * compressed bytes), so only the changed files are read and deflated again.
+ * The new archive is recorded while it is written, and replaces the previous one once it is complete. An archive and its index are read
+ * and replaced under an exclusive lock, so a concurrent CLI process never pairs the index of one run with the archive of another.
+ * The archives are copies of the sources, so their folder is accessible by its owner only, and the least recently packed ones are deleted
+ * when they take more than the configured size.
+ */
+public class DeflatedEntryCache implements Closeable {
+
+    private static Logger log = Logger.getLogger(DeflatedEntryCache.class);
+
+    private static final String ARCHIVES_FOLDER_NAME = "packed_sources";
+    private static final String LOCK_FILE_NAME = "packed_sources.lock";
+    private static final String ARCHIVE_EXTENSION = ".zip";
+    private static final String INDEX_EXTENSION = ".index.gz";
+    private static final String INDEX_VERSION = "v1";
+    private static final char SEPARATOR = '\t';
+    private static final long DEFAULT_MAX_SIZE_MB = 1024;
+
+    private final File archiveFile;
+    private final File indexFile;
+    private final File lockFile;
+    private final long maxSize;
+    private ZipFile previousArchive;
+    //Entry name -> content hash and compression of the previous archive
+    private final Map<String, IndexEntry> previousEntries = new HashMap<>();
+    private final Map<String, IndexEntry> recordedEntries = new HashMap<>();
+    private File recordingFile;
+    private RecordingOutputStream recordingOutputStream;
+    private final AtomicInteger numOfReusedEntries = new AtomicInteger();
+
+    private DeflatedEntryCache(File archiveFile, File indexFile, long maxSize) {
+        this.archiveFile = archiveFile;
+        this.indexFile = indexFile;
+        this.lockFile = new File(archiveFile.getParentFile(), LOCK_FILE_NAME);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param sourcesId identifies the packed sources (e.g. their folders), every one of them has an archive of its own
+     * @return the cache with the archive of the previous run, which is empty if there was none
+     */
+    public static DeflatedEntryCache open(String sourcesId) {
+        File archivesFolder = new File(ConfigMgr.getCfgMgr().getCacheDirectory(), ARCHIVES_FOLDER_NAME);
+        String name = FileHashCache.toHex(FileHashCache.newSha1().digest(sourcesId.getBytes(StandardCharsets.UTF_8)));
+        Long maxSizeMB = ConfigMgr.getCfgMgr().getLongProperty(ConfigMgr.KEY_ZIP_REUSE_MAX_SIZE);
+        DeflatedEntryCache deflatedEntryCache = new DeflatedEntryCache(new File(archivesFolder, name + ARCHIVE_EXTENSION),
+                new File(archivesFolder, name + INDEX_EXTENSION), (maxSizeMB == null ? DEFAULT_MAX_SIZE_MB : maxSizeMB) * 1024 * 1024);
+        deflatedEntryCache.load();
+        return deflatedEntryCache;
+    }
+
+    private void load() {
+        if (!archiveFile.isFile() || !indexFile.isFile()) {
+            return;
+        }
+        try {
+            //The archive stays open, so it is read as it was when loaded, also if another process replaces it later
+            CacheFileLock.runLocked(lockFile, this::readPreviousArchive);
+        } catch (IOException e) {
+            log.warn("Cannot read previous packed sources " + archiveFile + ": " + e.getMessage());
+            previousEntries.clear();
+            IOUtils.closeQuietly(previousArchive);
+            previousArchive = null;
+        }
+    }
+
+    private void readPreviousArchive() throws IOException {
+        if (!archiveFile.isFile() || !indexFile.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(indexFile)), StandardCharsets.UTF_8))) {
+            if (!INDEX_VERSION.equals(reader.readLine())) {
+                return;
+            }
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] fields = line.split(String.valueOf(SEPARATOR), 3);
+                if (fields.length == 3) {
+                    previousEntries.put(fields[2], new IndexEntry(fields[0], fields[1]));
+                }
+            }
+            previousArchive = new ZipFile(archiveFile);
+            log.debug("Previous packed sources loaded with " + previousEntries.size() + " entries");
+        }
+    }
+
+    /**
+     * May be called by several threads
+     *
+     * @param compression how the file would be compressed now (e.g. stored or the deflate level)
+     * @return the entry of the previous archive which has the same content and compression, or null
+     */
+    public ZipArchiveEntry findReusableEntry(String entryName, String sha1Hex, String compression) {
+        IndexEntry previousEntry = previousEntries.get(entryName);
+        if (previousArchive == null || previousEntry == null || !previousEntry.sha1Hex.equals(sha1Hex) || !previousEntry.compression.equals(compression)) {
+            return null;
+        }
+        return previousArchive.getEntry(entryName);
+    }
+
+    /**
+     * @return the compressed bytes of an entry of the previous archive
+     */
+    public InputStream getRawContent(ZipArchiveEntry previousEntry) throws IOException {
+        numOfReusedEntries.incrementAndGet();
+        return previousArchive.getRawInputStream(previousEntry);
+    }
+
+    public int getNumOfReusedEntries() {
+        return numOfReusedEntries.get();
+    }
+
+    /**
+     * Starts recording the archive which is written to the output. Recording stops quietly if the cache cannot be written,
+     * so the output is never affected.
+     *
+     * @return the output, which records everything written to it
+     */
+    public OutputStream record(OutputStream outputStream) {
+        File archivesFolder = archiveFile.getParentFile();
+        try {
+            if (!archivesFolder.exists() && !archivesFolder.mkdirs()) {
+                throw new IOException("Cannot create folder " + archivesFolder);
+            }
+            restrictToOwner(archivesFolder);
+            recordingFile = Files.createTempFile(archivesFolder.toPath(), archiveFile.getName(), ".tmp").toFile();
+            recordingOutputStream = new RecordingOutputStream(outputStream, new BufferedOutputStream(new FileOutputStream(recordingFile)));
+            return recordingOutputStream;
+        } catch (IOException e) {
+            log.warn("Cannot keep packed sources for the next run: " + e.getMessage());
+            FileUtils.deleteQuietly(recordingFile);
+            recordingFile = null;
+            return outputStream;
+        }
+    }
+
+    /**
+     * Records an entry which was written to the recorded archive
+     */
+    public void put(String entryName, String sha1Hex, String compression) {
+        recordedEntries.put(entryName, new IndexEntry(sha1Hex, compression));
+    }
+
+    /**
+     * Replaces the previous archive with the recorded one, once the recorded archive was completely written and closed
+     */
+    public void commit() {
+        if (recordingOutputStream == null || recordingOutputStream.failed) {
+            return;
+        }
+        //The previous archive may not be replaced while it is open on some platforms
+        IOUtils.closeQuietly(previousArchive);
+        previousArchive = null;
+        try {
+            File recordingIndexFile = new File(recordingFile.getPath() + INDEX_EXTENSION);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(recordingIndexFile)), StandardCharsets.UTF_8))) {
+                writer.write(INDEX_VERSION);
+                writer.write('\n');
+                for (Map.Entry<String, IndexEntry> recordedEntry : recordedEntries.entrySet()) {
+                    writer.write(recordedEntry.getValue().sha1Hex + SEPARATOR + recordedEntry.getValue().compression + SEPARATOR + recordedEntry.getKey() + '\n');
+                }
+            }
+            CacheFileLock.runLocked(lockFile, () -> {
+                //The index is replaced last, and it is read only with an archive, so a torn replacement is not used
+                Files.deleteIfExists(indexFile.toPath());
+                Files.move(recordingFile.toPath(), archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                Files.move(recordingIndexFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                recordingFile = null;
+                evictArchives();
+            });
+        } catch (IOException e) {
+            log.warn("Cannot keep packed sources for the next run: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the least recently packed archives of other sources, until the kept archives fit in the maximum size
+     */
+    private void evictArchives() {
+        File[] archives = archiveFile.getParentFile().listFiles((dir, fileName) -> fileName.endsWith(ARCHIVE_EXTENSION));
+        if (archives == null) {
+            return;
+        }
+        List<File> archivesByAge = new ArrayList<>(Arrays.asList(archives));
+        archivesByAge.sort(Comparator.comparingLong(File::lastModified).reversed());
+        long keptSize = 0;
+        for (File archive : archivesByAge) {
+            File archiveIndex = new File(archive.getParentFile(), archive.getName().substring(0, archive.getName().length() - ARCHIVE_EXTENSION.length()) + INDEX_EXTENSION);
+            keptSize += archive.length() + archiveIndex.length();
+            if (keptSize > maxSize && !archive.equals(archiveFile)) {
+                log.debug("Deleting packed sources " + archive + " to keep the packed sources within " + maxSize + " bytes");
+                //The index goes first, so an archive is never read without it
+                FileUtils.deleteQuietly(archiveIndex);
+                FileUtils.deleteQuietly(archive);
+            }
+        }
+    }
+
+    /**
+     * Makes the folder accessible by its owner only, also when an earlier version created it with the default permissions.
+     * Without POSIX permissions (Windows) the folder keeps the permissions it inherits, by default those of the profile of the user.
+     */
+    private static void restrictToOwner(File folder) throws IOException {
+        if (Files.getFileStore(folder.toPath()).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(folder.toPath(),
+                    EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE));
+        }
+    }
+
+    @Override
+    public void close() {
+        IOUtils.closeQuietly(previousArchive);
+        previousArchive = null;
+        if (recordingFile != null) {
+            IOUtils.closeQuietly(recordingOutputStream);
+            FileUtils.deleteQuietly(recordingFile);
+            FileUtils.deleteQuietly(new File(recordingFile.getPath() + INDEX_EXTENSION));
+        }
+    }
+
+    private static class IndexEntry {
+        private final String sha1Hex;
+        private final String compression;
+
+        IndexEntry(String sha1Hex, String compression) {
+            this.sha1Hex = sha1Hex;
+            this.compression = compression;
+        }
+    }
+
+    /**
+     * Writes to the output, and a copy to the recording. A failure of the recording is logged and stops it, without failing the output.
+     */
+    private static class RecordingOutputStream extends FilterOutputStream {
+        private final OutputStream recording;
+        private boolean failed;
+
+        RecordingOutputStream(OutputStream outputStream, OutputStream recording) {
+            super(outputStream);
+            this.recording = recording;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (!failed) {
+                try {
+                    recording.write(b, off, len);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                try {
+                    recording.close();
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        private void fail(IOException e) {
+            failed = true;
+            log.warn("Cannot keep packed sources for the next run: " + e.getMessage());
+            IOUtils.closeQuietly(recording);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.checkmarx.cxconsole.packaging;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Include/exclude Ant style patterns (e.g. "**&#47;node_modules&#47;**&#47;*", "**&#47;*.class") compiled once into a single automaton.
+ * The automaton consumes one path segment at a time, so the state of a directory is computed once while it is entered,
+ * a file only costs one more step, and a directory whose whole subtree is excluded is rejected before it is walked.
+ * Matching is case insensitive, with the same semantics as the Ant DirectoryScanner used by the Zipper component.
+ */
+public class ExclusionMatcher {
+
+    private static final String ANY_DIRECTORIES = "**";
+
+    private final Segment[] segments;
+    //Positions after the last segment of a pattern - reaching them means the path is matched
+    private final BitSet finalPositions = new BitSet();
+    //Positions from which the rest of the pattern matches every path below the current directory
+    private final BitSet universalPositions = new BitSet();
+    private final BitSet anyDirectoriesPositions = new BitSet();
+    private final MatchState rootState;
+
+    private ExclusionMatcher(String[] includePatterns, String[] excludePatterns) {
+        List<Segment> compiledSegments = new ArrayList<>();
+        BitSet includeStart = new BitSet();
+        BitSet excludeStart = new BitSet();
+        for (String pattern : includePatterns) {
+            includeStart.set(compilePattern(pattern, compiledSegments));
+        }
+        for (String pattern : excludePatterns) {
+            excludeStart.set(compilePattern(pattern, compiledSegments));
+        }
+        segments = compiledSegments.toArray(new Segment[0]);
+        rootState = new MatchState(closure(includeStart), closure(excludeStart));
+    }
+
+    public static ExclusionMatcher compile(String[] includePatterns, String[] excludePatterns) {
+        return new ExclusionMatcher(includePatterns != null ? includePatterns : new String[0],
+                excludePatterns != null ? excludePatterns : new String[0]);
+    }
+
+    public MatchState getRootState() {
+        return rootState;
+    }
+
+    /**
+     * @return the state of the entered directory, or null when no file below it can be included
+     */
+    public MatchState enterDirectory(MatchState parentState, String directoryName) {
+        MatchState directoryState = new MatchState(step(parentState.includeState, directoryName), step(parentState.excludeState, directoryName));
+        if (directoryState.includeState.isEmpty() || directoryState.excludeState.intersects(universalPositions)) {
+            return null;
+        }
+        return directoryState;
+    }
+
+    public boolean isFileIncluded(MatchState directoryState, String fileName) {
+        return step(directoryState.includeState, fileName).intersects(finalPositions)
+                && !step(directoryState.excludeState, fileName).intersects(finalPositions);
+    }
+
+    /**
+     * Appends the pattern segments followed by its final position, and returns the position of the first segment
+     */
+    private int compilePattern(String pattern, List<Segment> compiledSegments) {
+        String normalizedPattern = pattern.trim().replace('\\', '/');
+        if (normalizedPattern.endsWith("/")) {
+            normalizedPattern += ANY_DIRECTORIES;
+        }
+
+        int startPosition = compiledSegments.size();
+        for (String segment : normalizedPattern.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.equals(ANY_DIRECTORIES)) {
+                anyDirectoriesPositions.set(compiledSegments.size());
+            }
+            compiledSegments.add(new Segment(segment));
+        }
+        int finalPosition = compiledSegments.size();
+        compiledSegments.add(null);
+        finalPositions.set(finalPosition);
+
+        for (int position = startPosition; position < finalPosition; position++) {
+            if (isUniversalSuffix(compiledSegments, position, finalPosition)) {
+                universalPositions.set(position);
+            }
+        }
+        return startPosition;
+    }
+
+    /**
+     * A pattern suffix matches any (non empty) path if it is made of "**" segments, with at most one "*" segment
+     * which is accompanied by at least one "**" segment
+     */
+    private static boolean isUniversalSuffix(List<Segment> compiledSegments, int fromPosition, int finalPosition) {
+        int anyDirectories = 0;
+        int anyNames = 0;
+        for (int position = fromPosition; position < finalPosition; position++) {
+            Segment segment = compiledSegments.get(position);
+            if (segment.isAnyDirectories()) {
+                anyDirectories++;
+            } else if (segment.isAnyName()) {
+                anyNames++;
+            } else {
+                return false;
+            }
+        }
+        return anyDirectories > 0 && anyNames <= 1;
+    }
+
+    private BitSet step(BitSet state, String name) {
+        BitSet nextState = new BitSet();
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        for (int position = state.nextSetBit(0); position >= 0; position = state.nextSetBit(position + 1)) {
+            Segment segment = segments[position];
+            if (segment == null) {
+                continue;
+            }
+            if (segment.isAnyDirectories()) {
+                nextState.set(position);
+            } else if (segment.matches(lowerCaseName)) {
+                nextState.set(position + 1);
+            }
+        }
+        return closure(nextState);
+    }
+
+    /**
+     * "**" may match no directory at all, so a state standing on it also stands on the following segment
+     */
+    private BitSet closure(BitSet state) {
+        for (int position = state.nextSetBit(0); position >= 0; position = state.nextSetBit(position + 1)) {
+            if (anyDirectoriesPositions.get(position)) {
+                state.set(position + 1);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * The automaton state reached after consuming the segments of a directory path
+     */
+    public static class MatchState {
+        private final BitSet includeState;
+        private final BitSet excludeState;
+
+        private MatchState(BitSet includeState, BitSet excludeState) {
+            this.includeState = includeState;
+            this.excludeState = excludeState;
+        }
+    }
+
+    private static class Segment {
+        private final String pattern;
+        private final boolean anyDirectories;
+        private final boolean wildcard;
+        private final String suffix;
+
+        Segment(String pattern) {
+            this.pattern = pattern.toLowerCase(Locale.ROOT);
+            this.anyDirectories = pattern.equals(ANY_DIRECTORIES);
+            this.wildcard = pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+            //"*.ext" is by far the most common pattern, it is matched as a plain suffix
+            String rest = this.pattern.substring(1);
+            this.suffix = this.pattern.startsWith("*") && rest.indexOf('*') < 0 && rest.indexOf('?') < 0 ? rest : null;
+        }
+
+        boolean isAnyDirectories() {
+            return anyDirectories;
+        }
+
+        boolean isAnyName() {
+            return !anyDirectories && pattern.chars().allMatch(c -> c == '*');
+        }
+
+        boolean matches(String lowerCaseName) {
+            if (!wildcard) {
+                return pattern.equals(lowerCaseName);
+            }
+            if (suffix != null) {
+                return lowerCaseName.endsWith(suffix);
+            }
+            return matchWildcard(pattern, 0, lowerCaseName, 0);
+        }
+
+        private static boolean matchWildcard(String pattern, int patternIndex, String name, int nameIndex) {
+            while (patternIndex < pattern.length()) {
+                char patternChar = pattern.charAt(patternIndex);
+                if (patternChar == '*') {
+                    while (patternIndex < pattern.length() && pattern.charAt(patternIndex) == '*') {
+                        patternIndex++;
+                    }
+                    if (patternIndex == pattern.length()) {
+                        return true;
+                    }
+                    for (int i = nameIndex; i <= name.length(); i++) {
+                        if (matchWildcard(pattern, patternIndex, name, i)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if (nameIndex == name.length() || (patternChar != '?' && patternChar != name.charAt(nameIndex))) {
+                    return false;
+                }
+                patternIndex++;
+                nameIndex++;
+            }
+            return nameIndex == name.length();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.cxconsole.utils.ConfigMgr;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Content hashes (SHA-1 and CRC-32) of local files, keyed by the file path, size and modification time, and kept between runs.
+ * An unchanged file is not read again to find its hash.
+ * <p>
+ * The hashes are kept in an append only index file. New hashes are appended in a single write under an exclusive lock on a separate
+ * lock file, so several CLI processes can share the index. Every record has its own checksum, and a torn record ends the index.
+ * When the index grows too much beyond its live entries, or beyond the maximal number of entries, it is compacted into a new file
+ * which keeps the most recently used entries.
+ */
+public class FileHashCache {
+
+    private static Logger log = Logger.getLogger(FileHashCache.class);
+
+    private static final String INDEX_FILE_NAME = "file_hashes.idx";
+    private static final String LOCK_FILE_NAME = "file_hashes.lock";
+    private static final int INDEX_MAGIC = 0x43584843;
+    private static final int INDEX_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    private static final int SHA1_SIZE = 20;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    //A file modified this recently may be modified again without changing its modification time, so its hash is not kept
+    private static final long RACY_MODIFICATION_MILLIS = 2000;
+    //The last use time of an entry is written again only once in a while, so cache hits do not grow the index
+    private static final long TOUCH_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int COMPACTION_MIN_RECORDS = 10000;
+    private static final int DEFAULT_MAX_ENTRIES = 200000;
+
+    private static FileHashCache defaultCache;
+
+    private final File indexFile;
+    private final File lockFile;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> pendingEntries = new ConcurrentLinkedQueue<>();
+    private long indexGeneration;
+    private long indexLength;
+    private int numOfIndexRecords;
+    private final AtomicInteger numOfHits = new AtomicInteger();
+    private final AtomicInteger numOfMisses = new AtomicInteger();
+
+    private FileHashCache(File cacheDirectory, int maxEntries) {
+        this.indexFile = new File(cacheDirectory, INDEX_FILE_NAME);
+        this.lockFile = new File(cacheDirectory, LOCK_FILE_NAME);
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * @param maxEntries number of entries which are kept by compaction, the least recently used entries are evicted
+     */
+    public static FileHashCache open(File cacheDirectory, int maxEntries) {
+        FileHashCache fileHashCache = new FileHashCache(cacheDirectory, maxEntries);
+        try {
+            CacheFileLock.runLocked(fileHashCache.lockFile, fileHashCache::readIndex);
+        } catch (IOException e) {
+            log.warn("Cannot read file hash cache " + fileHashCache.indexFile + ": " + e.getMessage());
+        }
+        log.debug("File hash cache loaded with " + fileHashCache.entries.size() + " entries");
+        return fileHashCache;
+    }
+
+    /**
+     * @return the cache kept in the cache folder, or null when it is disabled by configuration
+     */
+    public static synchronized FileHashCache getDefault() {
+        if (!Boolean.parseBoolean(ConfigMgr.getCfgMgr().getProperty(ConfigMgr.KEY_FILE_HASH_CACHE))) {
+            return null;
+        }
+        if (defaultCache == null) {
+            Integer maxEntries = ConfigMgr.getCfgMgr().getIntProperty(ConfigMgr.KEY_FILE_HASH_CACHE_MAX_ENTRIES);
+            defaultCache = open(ConfigMgr.getCfgMgr().getCacheDirectory(), maxEntries == null ? DEFAULT_MAX_ENTRIES : maxEntries);
+        }
+        return defaultCache;
+    }
+
+    /**
+     * @return the hash of the file, which is read only if its path, size or modification time changed since it was hashed
+     */
+    public FileHash getHash(File file, long size, long lastModified) throws IOException {
+        FileHash fileHash = getCachedHash(file, size, lastModified);
+        if (fileHash != null) {
+            return fileHash;
+        }
+        fileHash = hash(file);
+        put(file, size, lastModified, fileHash);
+        return fileHash;
+    }
+
+    /**
+     * @return the kept hash of the file, or null if the file was not hashed with this path, size and modification time
+     */
+    public FileHash getCachedHash(File file, long size, long lastModified) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+            numOfMisses.incrementAndGet();
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - entry.lastUsed > TOUCH_INTERVAL_MILLIS) {
+            entry.lastUsed = now;
+            pendingEntries.add(entry);
+        }
+        numOfHits.incrementAndGet();
+        return entry.fileHash;
+    }
+
+    /**
+     * Keeps the hash of a file whose content was already read for another purpose
+     */
+    public void put(File file, long size, long lastModified, FileHash fileHash) {
+        long now = System.currentTimeMillis();
+        if (now - lastModified < RACY_MODIFICATION_MILLIS) {
+            return;
+        }
+        Entry entry = new Entry(file.getAbsolutePath(), size, lastModified, now, fileHash);
+        entries.put(entry.path, entry);
+        pendingEntries.add(entry);
+    }
+
+    /**
+     * Writes the new hashes to the index, and compacts it when needed
+     */
+    public synchronized void flush() {
+        if (pendingEntries.isEmpty() && entries.size() <= maxEntries) {
+            return;
+        }
+        try {
+            CacheFileLock.runLocked(lockFile, this::mergePendingEntries);
+        } catch (IOException e) {
+            log.warn("Cannot write file hash cache " + indexFile + ": " + e.getMessage());
+        }
+        log.debug("File hash cache: " + numOfHits + " hits, " + numOfMisses + " misses, " + entries.size() + " entries");
+    }
+
+    public static FileHash hash(File file) throws IOException {
+        MessageDigest sha1 = newSha1();
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            for (int length = inputStream.read(buffer); length >= 0; length = inputStream.read(buffer)) {
+                sha1.update(buffer, 0, length);
+                crc.update(buffer, 0, length);
+            }
+        }
+        return new FileHash(sha1.digest(), crc.getValue());
+    }
+
+    public static FileHash hash(byte[] content, int length) {
+        MessageDigest sha1 = newSha1();
+        sha1.update(content, 0, length);
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, length);
+        return new FileHash(sha1.digest(), crc.getValue());
+    }
+
+    /**
+     * Merges what other processes wrote since the index was read, the most recently used entry of a path is kept
+     */
+    private void mergePendingEntries() throws IOException {
+        readIndex();
+        List<Entry> newEntries = new ArrayList<>();
+        for (Entry entry = pendingEntries.poll(); entry != null; entry = pendingEntries.poll()) {
+            newEntries.add(entry);
+        }
+        if (entries.size() > maxEntries || (numOfIndexRecords + newEntries.size() > COMPACTION_MIN_RECORDS
+                && numOfIndexRecords + newEntries.size() > 2 * entries.size())) {
+            compact();
+        } else {
+            append(newEntries);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    static MessageDigest newSha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported", e);
+        }
+    }
+
+    /**
+     * Reads the records appended since the index was last read, or the whole index if it was compacted meanwhile
+     */
+    private void readIndex() throws IOException {
+        if (!indexFile.isFile()) {
+            indexGeneration = 0;
+            indexLength = 0;
+            numOfIndexRecords = 0;
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), BUFFER_SIZE))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                log.warn("Ignoring file hash cache of an unknown format: " + indexFile);
+                indexGeneration = 0;
+                indexLength = 0;
+                numOfIndexRecords = 0;
+                return;
+            }
+            long generation = in.readLong();
+            long offset = HEADER_SIZE;
+            if (generation == indexGeneration && indexLength > 0) {
+                IOUtils.skipFully(in, indexLength - HEADER_SIZE);
+                offset = indexLength;
+            } else {
+                numOfIndexRecords = 0;
+            }
+            indexGeneration = generation;
+            offset += readRecords(in);
+            indexLength = offset;
+        } catch (EOFException e) {
+            log.warn("Ignoring truncated file hash cache: " + indexFile);
+        }
+    }
+
+    /**
+     * @return the number of bytes of the valid records which were read
+     */
+    private long readRecords(DataInputStream in) throws IOException {
+        long validBytes = 0;
+        byte[] record = new byte[MAX_RECORD_SIZE];
+        CRC32 crc = new CRC32();
+        while (true) {
+            int recordSize;
+            long recordCrc;
+            try {
+                recordSize = in.readInt();
+                if (recordSize <= 0 || recordSize > MAX_RECORD_SIZE) {
+                    break;
+                }
+                in.readFully(record, 0, recordSize);
+                recordCrc = in.readInt() & 0xFFFFFFFFL;
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(record, 0, recordSize);
+            if (crc.getValue() != recordCrc) {
+                log.warn("Ignoring corrupted end of file hash cache: " + indexFile);
+                break;
+            }
+            Entry entry = Entry.read(new DataInputStream(new ByteArrayInputStream(record, 0, recordSize)));
+            Entry existingEntry = entries.get(entry.path);
+            if (existingEntry == null || existingEntry.lastUsed < entry.lastUsed) {
+                entries.put(entry.path, entry);
+            }
+            numOfIndexRecords++;
+            validBytes += 4 + recordSize + 4;
+        }
+        return validBytes;
+    }
+
+    private void append(List<Entry> newEntries) throws IOException {
+        if (!indexFile.isFile() || indexLength == 0) {
+            compact();
+            return;
+        }
+        byte[] records = toRecords(newEntries);
+        try (FileChannel channel = new RandomAccessFile(indexFile, "rw").getChannel()) {
+            //A torn tail of an interrupted writer is overwritten
+            channel.truncate(indexLength);
+            channel.position(indexLength);
+            channel.write(ByteBuffer.wrap(records));
+        }
+        indexLength += records.length;
+        numOfIndexRecords += newEntries.size();
+    }
+
+    private void compact() throws IOException {
+        List<Entry> liveEntries = new ArrayList<>(entries.values());
+        if (liveEntries.size() > maxEntries) {
+            liveEntries.sort(Comparator.comparingLong((Entry entry) -> entry.lastUsed).reversed());
+            for (Entry evictedEntry : liveEntries.subList(maxEntries, liveEntries.size())) {
+                entries.remove(evictedEntry.path);
+            }
+            log.debug("Evicted " + (liveEntries.size() - maxEntries) + " least recently used entries from the file hash cache");
+            liveEntries = new ArrayList<>(liveEntries.subList(0, maxEntries));
+        }
+
+        long generation = new Random().nextLong();
+        File tempFile = File.createTempFile(INDEX_FILE_NAME, ".tmp", indexFile.getParentFile());
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(INDEX_MAGIC);
+            header.writeInt(INDEX_VERSION);
+            header.writeLong(generation);
+            out.write(toRecords(liveEntries));
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        indexGeneration = generation;
+        indexLength = indexFile.length();
+        numOfIndexRecords = liveEntries.size();
+    }
+
+    private static byte[] toRecords(List<Entry> recordEntries) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(records);
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+        for (Entry entry : recordEntries) {
+            record.reset();
+            entry.write(new DataOutputStream(record));
+            if (record.size() > MAX_RECORD_SIZE) {
+                continue;
+            }
+            crc.reset();
+            crc.update(record.toByteArray(), 0, record.size());
+            out.writeInt(record.size());
+            record.writeTo(out);
+            out.writeInt((int) crc.getValue());
+        }
+        out.flush();
+        return records.toByteArray();
+    }
+
+    public static class FileHash {
+        private final byte[] sha1;
+        private final long crc32;
+
+        FileHash(byte[] sha1, long crc32) {
+            this.sha1 = sha1;
+            this.crc32 = crc32;
+        }
+
+        public byte[] getSha1() {
+            return sha1.clone();
+        }
+
+        public String getSha1Hex() {
+            return toHex(sha1);
+        }
+
+        public long getCrc32() {
+            return crc32;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FileHash && Arrays.equals(sha1, ((FileHash) o).sha1);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(sha1);
+        }
+    }
+
+    private static class Entry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private volatile long lastUsed;
+        private final FileHash fileHash;
+
+        Entry(String path, long size, long lastModified, long lastUsed, FileHash fileHash) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.lastUsed = lastUsed;
+            this.fileHash = fileHash;
+        }
+
+        static Entry read(DataInputStream in) throws IOException {
+            String path = in.readUTF();
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            long lastUsed = in.readLong();
+            byte[] sha1 = new byte[SHA1_SIZE];
+            in.readFully(sha1);
+            long crc32 = in.readInt() & 0xFFFFFFFFL;
+            return new Entry(path, size, lastModified, lastUsed, new FileHash(sha1, crc32));
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(path);
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeLong(lastUsed);
+            out.write(fileHash.sha1);
+            out.writeInt((int) fileHash.crc32);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.components.zipper.ZipListener;
+import com.checkmarx.components.zipper.Zipper;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.log4j.Logger;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Zips the files of a git revision straight from the object database of a local repository (loose objects and packfiles),
+ * without a checkout. Works with bare repositories, and with the .git folder of a working tree, which is left untouched.
+ * Exactly the tracked files of the revision are zipped: symbolic links and submodules are skipped, and the
+ * include/exclude patterns are applied through an {@link ExclusionMatcher}, which prunes excluded trees before they are read.
+ */
+public class GitRevisionZipper {
+
+    private static Logger log = Logger.getLogger(GitRevisionZipper.class);
+
+    public static final String DEFAULT_REVISION = Constants.HEAD;
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**"};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    //Same compression ratio estimation as the Zipper uses for entries which were not compressed yet
+    private static final int ESTIMATED_COMPRESSION_RATIO = 4;
+
+    private final CompressionPolicy compressionPolicy;
+    private final ContentFilter contentFilter;
+    private int numOfZippedFiles;
+    private int numOfStoredEntries;
+    private long sourceBytes;
+
+    /**
+     * @param contentFilter finds binary, minified, generated and lock files while they are zipped (null - no filter)
+     */
+    public GitRevisionZipper(CompressionPolicy compressionPolicy, ContentFilter contentFilter) {
+        this.compressionPolicy = compressionPolicy;
+        this.contentFilter = contentFilter;
+    }
+
+    /**
+     * @param repositoryPath a bare repository, a .git folder or the working tree that contains it
+     * @param revision       a branch, tag or commit id, or any other revision expression git accepts (e.g. HEAD~1)
+     */
+    public void zip(File repositoryPath, String revision, String[] excludePatterns, String[] includePatterns, OutputStream outputStream,
+                    long maxZipSize, ZipListener zipListener) throws IOException {
+        zip(repositoryPath, revision, excludePatterns, includePatterns, null, outputStream, maxZipSize, zipListener);
+    }
+
+    /**
+     * Zips only the files which were added or modified
+     *
+     * @param changes the files which changed since the last scanned sources (null - all the files are zipped)
+     */
+    public void zip(File repositoryPath, String revision, String[] excludePatterns, String[] includePatterns, SourceManifest.Changes changes,
+                    OutputStream outputStream, long maxZipSize, ZipListener zipListener) throws IOException {
+        long zipStartTime = System.currentTimeMillis();
+        numOfZippedFiles = 0;
+        numOfStoredEntries = 0;
+        sourceBytes = 0;
+        ExclusionMatcher matcher = ExclusionMatcher.compile(includePatterns != null && includePatterns.length > 0 ? includePatterns : INCLUDE_ALL_PATTERNS,
+                excludePatterns);
+        try (Repository repository = openRepository(repositoryPath);
+             ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            ObjectId revisionId = repository.resolve(revision);
+            if (revisionId == null) {
+                throw new IOException("Revision [" + revision + "] was not found in git repository " + repository.getDirectory());
+            }
+            RevObject revisionObject = revWalk.peel(revWalk.parseAny(revisionId));
+            RevTree tree;
+            long entryTime;
+            if (revisionObject instanceof RevCommit) {
+                RevCommit commit = (RevCommit) revisionObject;
+                tree = commit.getTree();
+                //The files of a commit have no modification time of their own, the commit time keeps the archive reproducible
+                entryTime = commit.getCommitTime() * 1000L;
+                log.info("Zipping files of commit " + commit.getName() + " (" + revision + ")");
+            } else if (revisionObject instanceof RevTree) {
+                tree = (RevTree) revisionObject;
+                entryTime = zipStartTime;
+                log.info("Zipping files of tree " + tree.getName() + " (" + revision + ")");
+            } else {
+                throw new IOException("Revision [" + revision + "] does not point to a commit or a tree");
+            }
+
+            CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+            try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                treeWalk.addTree(tree);
+                treeWalk.setRecursive(false);
+                if (!zipTree(treeWalk, matcher, reader, changes, countingOutputStream, entryTime, maxZipSize, zipListener)) {
+                    outputStream.close();
+                    log.info("No files to zip");
+                    throw new Zipper.NoFilesToZip();
+                }
+            }
+            log.info("Zipping " + numOfZippedFiles + " files from git objects took " + (System.currentTimeMillis() - zipStartTime) + " ms");
+            log.info("Compression policy: " + compressionPolicy.getDescription() + ". " + numOfStoredEntries + " of " + numOfZippedFiles
+                    + " entries were stored without compression. Compression ratio: " + FileUtils.byteCountToDisplaySize(countingOutputStream.getByteCount())
+                    + " / " + FileUtils.byteCountToDisplaySize(sourceBytes));
+        }
+    }
+
+    /**
+     * @return the id of the tree of the revision, which identifies the content of all of its files
+     */
+    public static String resolveTreeId(File repositoryPath, String revision) throws IOException {
+        try (Repository repository = openRepository(repositoryPath)) {
+            ObjectId treeId = repository.resolve(revision + "^{tree}");
+            if (treeId == null) {
+                throw new IOException("Revision [" + revision + "] was not found in git repository " + repository.getDirectory());
+            }
+            return treeId.getName();
+        }
+    }
+
+    /**
+     * Lists the files of the revision which would be zipped with the same patterns, with their blob ids as content hashes
+     */
+    public static SourceManifest createManifest(File repositoryPath, String revision, String[] excludePatterns, String[] includePatterns) throws IOException {
+        ExclusionMatcher matcher = ExclusionMatcher.compile(includePatterns != null && includePatterns.length > 0 ? includePatterns : INCLUDE_ALL_PATTERNS,
+                excludePatterns);
+        SourceManifest sourceManifest = new SourceManifest(SourceManifest.GIT_KIND);
+        try (Repository repository = openRepository(repositoryPath);
+             TreeWalk treeWalk = new TreeWalk(repository)) {
+            ObjectId treeId = repository.resolve(revision + "^{tree}");
+            if (treeId == null) {
+                throw new IOException("Revision [" + revision + "] was not found in git repository " + repository.getDirectory());
+            }
+            treeWalk.addTree(treeId);
+            treeWalk.setRecursive(false);
+            walkFiles(treeWalk, matcher, () -> sourceManifest.put(treeWalk.getPathString(), treeWalk.getObjectId(0).getName()));
+        }
+        return sourceManifest;
+    }
+
+    /**
+     * @return false if no file was included, in which case nothing was written
+     */
+    private boolean zipTree(TreeWalk treeWalk, ExclusionMatcher matcher, ObjectReader reader, SourceManifest.Changes changes,
+                            CountingOutputStream countingOutputStream, long entryTime, long maxZipSize, ZipListener zipListener) throws IOException {
+        ZipArchiveOutputStream[] zipOutputStream = new ZipArchiveOutputStream[1];
+        try {
+            walkFiles(treeWalk, matcher, () -> {
+                String entryName = treeWalk.getPathString();
+                if (changes != null && !changes.isChanged(entryName)) {
+                    return;
+                }
+                if (zipOutputStream[0] == null) {
+                    zipOutputStream[0] = new ZipArchiveOutputStream(countingOutputStream);
+                }
+                writeEntry(zipOutputStream[0], countingOutputStream, entryName, reader.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB),
+                        entryTime, maxZipSize, zipListener);
+            });
+        } finally {
+            if (zipOutputStream[0] != null) {
+                zipOutputStream[0].close();
+            }
+        }
+        return zipOutputStream[0] != null;
+    }
+
+    /**
+     * Visits the included regular files of the tree, without reading the trees of excluded directories
+     */
+    private static void walkFiles(TreeWalk treeWalk, ExclusionMatcher matcher, FileVisitor fileVisitor) throws IOException {
+        //Match state of every directory on the path to the current entry, indexed by depth
+        List<ExclusionMatcher.MatchState> states = new ArrayList<>();
+        states.add(matcher.getRootState());
+        //Git trees are sorted the same way the folder walk sorts paths, so the entries come in sorted path order
+        while (treeWalk.next()) {
+            String name = treeWalk.getNameString();
+            ExclusionMatcher.MatchState state = states.get(treeWalk.getDepth());
+            FileMode fileMode = treeWalk.getFileMode(0);
+            if (treeWalk.isSubtree()) {
+                ExclusionMatcher.MatchState directoryState = matcher.enterDirectory(state, name);
+                if (directoryState != null) {
+                    setState(states, treeWalk.getDepth() + 1, directoryState);
+                    treeWalk.enterSubtree();
+                }
+            } else if ((fileMode == FileMode.REGULAR_FILE || fileMode == FileMode.EXECUTABLE_FILE) && matcher.isFileIncluded(state, name)) {
+                fileVisitor.visit();
+            }
+        }
+    }
+
+    private static void setState(List<ExclusionMatcher.MatchState> states, int depth, ExclusionMatcher.MatchState state) {
+        if (depth < states.size()) {
+            states.set(depth, state);
+        } else {
+            states.add(state);
+        }
+    }
+
+    private void writeEntry(ZipArchiveOutputStream zipOutputStream, CountingOutputStream countingOutputStream, String entryName, ObjectLoader blob,
+                            long entryTime, long maxZipSize, ZipListener zipListener) throws IOException {
+        long size = blob.getSize();
+        if (contentFilter != null && isExcluded(entryName, blob)) {
+            return;
+        }
+        if (countingOutputStream.getByteCount() + size / ESTIMATED_COMPRESSION_RATIO > maxZipSize) {
+            log.info("Maximum zip file size reached. Zip size: " + countingOutputStream.getByteCount() + " bytes Limit: " + maxZipSize + " bytes");
+            throw new Zipper.MaxZipSizeReached(countingOutputStream.getByteCount(), maxZipSize);
+        }
+
+        zipListener.updateProgress(entryName, size);
+        ZipArchiveEntry zipEntry = new ZipArchiveEntry(entryName);
+        zipEntry.setTime(entryTime);
+        zipEntry.setSize(size);
+        if (blob.isLarge()) {
+            //Large blobs are streamed from the packfile rather than inflated into memory, and are always deflated
+            zipEntry.setMethod(ZipEntry.DEFLATED);
+            zipOutputStream.setLevel(compressionPolicy.getLevel());
+            zipOutputStream.putArchiveEntry(zipEntry);
+            try (InputStream inputStream = blob.openStream()) {
+                IOUtils.copy(inputStream, zipOutputStream, BUFFER_SIZE);
+            }
+        } else {
+            byte[] content = blob.getCachedBytes();
+            if (compressionPolicy.isStored(entryName, content, content.length)) {
+                //The entry is not written to a seekable output, so a stored entry must be described before its content
+                CRC32 crc = new CRC32();
+                crc.update(content, 0, content.length);
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setCompressedSize(size);
+                zipEntry.setCrc(crc.getValue());
+                numOfStoredEntries++;
+            } else {
+                zipEntry.setMethod(ZipEntry.DEFLATED);
+                zipOutputStream.setLevel(compressionPolicy.getLevel());
+            }
+            zipOutputStream.putArchiveEntry(zipEntry);
+            zipOutputStream.write(content);
+        }
+        zipOutputStream.closeArchiveEntry();
+        numOfZippedFiles++;
+        sourceBytes += size;
+    }
+
+    private boolean isExcluded(String entryName, ObjectLoader blob) throws IOException {
+        if (!blob.isLarge()) {
+            byte[] content = blob.getCachedBytes();
+            return contentFilter.isExcluded(entryName, content, content.length, content.length);
+        }
+        byte[] sample = new byte[ContentFilter.SAMPLE_SIZE];
+        int sampleLength;
+        try (InputStream inputStream = blob.openStream()) {
+            sampleLength = IOUtils.read(inputStream, sample);
+        }
+        return contentFilter.isExcluded(entryName, sample, sampleLength, blob.getSize());
+    }
+
+    private static Repository openRepository(File repositoryPath) throws IOException {
+        FileRepositoryBuilder repositoryBuilder = new FileRepositoryBuilder().setMustExist(true);
+        File dotGit = new File(repositoryPath, Constants.DOT_GIT);
+        if (dotGit.exists()) {
+            //A working tree, whose .git may also be a file pointing to the actual git folder (worktrees and submodules)
+            repositoryBuilder.setWorkTree(repositoryPath);
+        } else {
+            repositoryBuilder.setGitDir(repositoryPath);
+        }
+        try {
+            return repositoryBuilder.build();
+        } catch (IOException e) {
+            throw new IOException("[" + repositoryPath + "] is not a git repository: " + e.getMessage(), e);
+        }
+    }
+
+    private interface FileVisitor {
+        /**
+         * Called with the tree walk positioned on the file
+         */
+        void visit() throws IOException;
+    }
+}
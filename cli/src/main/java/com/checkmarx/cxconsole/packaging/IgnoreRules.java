@@ -0,0 +1,168 @@
+package com.checkmarx.cxconsole.packaging;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Rules of the .gitignore style files (e.g. .gitignore, .cxignore) which were found on the way from the walked folder to a directory.
+ * Same as in git: the rules of a deeper file take precedence over the rules of its parent folders, a later line takes precedence
+ * over the lines before it, "!" negates a pattern, and a file cannot be re-included once its parent directory is ignored.
+ */
+public class IgnoreRules {
+
+    private static Logger log = Logger.getLogger(IgnoreRules.class);
+
+    private static final IgnoreRules EMPTY = new IgnoreRules(null, "", new ArrayList<>());
+
+    private final IgnoreRules parent;
+    //Folder of the ignore file, relative to the walked folder ('/' separated, ends with '/' unless it is the walked folder itself)
+    private final String basePath;
+    private final List<Rule> rules;
+
+    private IgnoreRules(IgnoreRules parent, String basePath, List<Rule> rules) {
+        this.parent = parent;
+        this.basePath = basePath;
+        this.rules = rules;
+    }
+
+    public static IgnoreRules empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param basePath folder of the ignore file, relative to the walked folder
+     * @return the rules of the ignore file on top of these rules
+     */
+    public IgnoreRules load(Path ignoreFile, String basePath) {
+        List<Rule> fileRules = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(ignoreFile, StandardCharsets.UTF_8)) {
+                Rule rule = Rule.parse(line);
+                if (rule != null) {
+                    fileRules.add(rule);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Skipping unreadable ignore file: " + ignoreFile + " (" + e.getMessage() + ")");
+        }
+        return fileRules.isEmpty() ? this : new IgnoreRules(this, basePath, fileRules);
+    }
+
+    /**
+     * @param relativePath path relative to the walked folder, '/' separated
+     */
+    public boolean isIgnored(String relativePath, boolean isDirectory) {
+        String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        for (IgnoreRules ignoreRules = this; ignoreRules != null; ignoreRules = ignoreRules.parent) {
+            String pathFromBase = relativePath.substring(ignoreRules.basePath.length());
+            for (int i = ignoreRules.rules.size() - 1; i >= 0; i--) {
+                Rule rule = ignoreRules.rules.get(i);
+                if (rule.matches(pathFromBase, name, isDirectory)) {
+                    return !rule.negated;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static class Rule {
+        private final Pattern pattern;
+        private final boolean negated;
+        private final boolean directoryOnly;
+        //A pattern with a '/' (other than a trailing one) is relative to the ignore file folder, otherwise it matches a name at any depth
+        private final boolean anchored;
+
+        private Rule(Pattern pattern, boolean negated, boolean directoryOnly, boolean anchored) {
+            this.pattern = pattern;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.anchored = anchored;
+        }
+
+        static Rule parse(String line) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                return null;
+            }
+            String pattern = trimTrailingSpaces(line);
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            } else if (pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            boolean anchored = pattern.indexOf('/') >= 0;
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+            return new Rule(Pattern.compile(toRegex(pattern)), negated, directoryOnly, anchored);
+        }
+
+        boolean matches(String pathFromBase, String name, boolean isDirectory) {
+            if (directoryOnly && !isDirectory) {
+                return false;
+            }
+            return pattern.matcher(anchored ? pathFromBase : name).matches();
+        }
+
+        private static String trimTrailingSpaces(String line) {
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+
+        private static String toRegex(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            int length = pattern.length();
+            for (int i = 0; i < length; i++) {
+                char c = pattern.charAt(i);
+                if (c == '*' && i + 1 < length && pattern.charAt(i + 1) == '*'
+                        && (i == 0 || pattern.charAt(i - 1) == '/') && (i + 2 == length || pattern.charAt(i + 2) == '/')) {
+                    if (i + 2 == length) {
+                        //Trailing "/**" matches everything inside, leading "**" alone matches everything
+                        regex.append(".*");
+                    } else {
+                        //Leading "**/" and middle "/**/" match zero or more directories
+                        regex.append("(?:.*/)?");
+                        i++;
+                    }
+                    i++;
+                } else if (c == '*') {
+                    regex.append("[^/]*");
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                } else if (c == '[' && pattern.indexOf(']', i + 2) > 0) {
+                    int end = pattern.indexOf(']', i + 2);
+                    String characters = pattern.substring(i + 1, end);
+                    if (characters.startsWith("!")) {
+                        characters = "^" + characters.substring(1);
+                    }
+                    regex.append('[').append(characters.replace("[", "\\[")).append(']');
+                    i = end;
+                } else if (c == '\\' && i + 1 < length) {
+                    regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+                } else if (Character.isLetterOrDigit(c)) {
+                    regex.append(c);
+                } else {
+                    regex.append('\\').append(c);
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
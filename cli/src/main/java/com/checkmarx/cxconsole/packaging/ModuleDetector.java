@@ -0,0 +1,118 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.cxconsole.packaging.ParallelFileWalker.SourceFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Splits a monorepo folder into the modules which can be scanned on their own. A module is a folder with a build file (Maven, Gradle, npm, Go or
+ * .NET project). Only the topmost module of a path counts, so a multi-module build is kept together, and the root folder is never a module.
+ * The folder is walked with the same patterns and ignore files as the zipping, so excluded folders never become modules.
+ */
+public class ModuleDetector {
+
+    private static final Set<String> BUILD_FILE_NAMES = new HashSet<>(Arrays.asList("pom.xml", "build.gradle", "build.gradle.kts", "package.json", "go.mod"));
+    private static final String DOTNET_PROJECT_EXTENSION = ".csproj";
+    //Installed npm packages have build files of their own, but they are dependencies rather than modules
+    private static final String NPM_DEPENDENCIES_FOLDER = "node_modules";
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**"};
+
+    private ModuleDetector() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static Detection detect(File baseDir, String[] excludePatterns, String[] includePatterns, List<String> ignoreFileNames,
+                                   int numOfWalkerThreads) throws IOException {
+        ExclusionMatcher matcher = ExclusionMatcher.compile(includePatterns != null && includePatterns.length > 0 ? includePatterns : INCLUDE_ALL_PATTERNS,
+                excludePatterns);
+        Set<String> moduleCandidates = new TreeSet<>();
+        //Number of files directly in every folder, the root folder is ""
+        Map<String, Integer> numOfFilesInFolders = new HashMap<>();
+        try (ParallelFileWalker fileWalker = new ParallelFileWalker(baseDir, matcher, ignoreFileNames, numOfWalkerThreads)) {
+            for (SourceFile sourceFile = fileWalker.next(); sourceFile != null; sourceFile = fileWalker.next()) {
+                String entryName = sourceFile.getEntryName();
+                int nameStart = entryName.lastIndexOf('/');
+                String folder = nameStart < 0 ? "" : entryName.substring(0, nameStart);
+                numOfFilesInFolders.merge(folder, 1, Integer::sum);
+                if (!folder.isEmpty() && isBuildFile(entryName.substring(nameStart + 1)) && !isDependency(folder)) {
+                    moduleCandidates.add(folder);
+                }
+            }
+        }
+
+        Detection detection = new Detection();
+        for (String moduleCandidate : moduleCandidates) {
+            //Paths are excluded by patterns, which cannot express a literal wildcard character, so such a module stays with the root folder
+            if (!isBelowAny(moduleCandidate, detection.modules) && moduleCandidate.indexOf('*') < 0 && moduleCandidate.indexOf('?') < 0) {
+                detection.modules.add(moduleCandidate);
+            }
+        }
+        for (Map.Entry<String, Integer> numOfFilesInFolder : numOfFilesInFolders.entrySet()) {
+            String folder = numOfFilesInFolder.getKey();
+            if (!detection.modules.contains(folder) && !isBelowAny(folder, detection.modules)) {
+                detection.numOfFilesOutsideModules += numOfFilesInFolder.getValue();
+            }
+        }
+        return detection;
+    }
+
+    private static boolean isBuildFile(String name) {
+        return BUILD_FILE_NAMES.contains(name) || name.toLowerCase(Locale.ENGLISH).endsWith(DOTNET_PROJECT_EXTENSION);
+    }
+
+    private static boolean isDependency(String folder) {
+        return ("/" + folder + "/").contains("/" + NPM_DEPENDENCIES_FOLDER + "/");
+    }
+
+    private static boolean isBelowAny(String path, List<String> folders) {
+        for (String folder : folders) {
+            if (path.startsWith(folder + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Modules found in a monorepo folder
+     */
+    public static class Detection {
+        private final List<String> modules = new ArrayList<>();
+        private int numOfFilesOutsideModules;
+
+        /**
+         * @return the folders of the modules relative to the walked folder, in sorted order
+         */
+        public List<String> getModules() {
+            return modules;
+        }
+
+        /**
+         * @return the number of files of the root folder which do not belong to any module
+         */
+        public int getNumOfFilesOutsideModules() {
+            return numOfFilesOutsideModules;
+        }
+
+        /**
+         * @return exclude patterns of the module folders, which leave only the files outside the modules
+         */
+        public String[] getModuleExcludePatterns() {
+            String[] excludePatterns = new String[modules.size()];
+            for (int i = 0; i < modules.size(); i++) {
+                excludePatterns[i] = modules.get(i) + "/**";
+            }
+            return excludePatterns;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.cxconsole.packaging.ParallelFileWalker.SourceFile;
+import org.apache.commons.io.IOUtils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Estimates the zipped sources of the folders without building the archive.
+ * The tree is walked with the real include/exclude patterns, and the compression ratio is measured on the beginning
+ * of a sample of the files.
+ */
+public class PackagingEstimator {
+
+    private static final int MAX_SAMPLED_FILES = 2000;
+    private static final int SAMPLE_SIZE = 16 * 1024;
+    //Local file header + central directory record, without the entry name
+    private static final int ENTRY_HEADERS_SIZE = 30 + 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**"};
+
+    private final int numOfWalkerThreads;
+    private final CompressionPolicy compressionPolicy;
+    private final List<String> ignoreFileNames;
+    private final int numOfLargestEntries;
+
+    public PackagingEstimator(int numOfWalkerThreads, CompressionPolicy compressionPolicy, List<String> ignoreFileNames, int numOfLargestEntries) {
+        this.numOfWalkerThreads = Math.max(1, numOfWalkerThreads);
+        this.compressionPolicy = compressionPolicy;
+        this.ignoreFileNames = ignoreFileNames;
+        this.numOfLargestEntries = Math.max(0, numOfLargestEntries);
+    }
+
+    public PackagingEstimate estimate(SourceRoots sourceRoots, String[] excludePatterns, String[] includePatterns) throws IOException {
+        ExclusionMatcher matcher = ExclusionMatcher.compile(includePatterns != null && includePatterns.length > 0 ? includePatterns : INCLUDE_ALL_PATTERNS,
+                excludePatterns);
+        List<SourceFile> sourceFiles = new ArrayList<>();
+        long walkTime;
+        try (ParallelFileWalker fileWalker = new ParallelFileWalker(sourceRoots, matcher, ignoreFileNames, numOfWalkerThreads)) {
+            for (SourceFile sourceFile = fileWalker.next(); sourceFile != null; sourceFile = fileWalker.next()) {
+                sourceFiles.add(sourceFile);
+            }
+            walkTime = fileWalker.getWalkTimeMillis();
+        }
+
+        long rawBytes = 0;
+        long headersBytes = END_OF_CENTRAL_DIRECTORY_SIZE;
+        Map<String, Long> directorySizes = new HashMap<>();
+        PriorityQueue<SizedPath> largestFiles = new PriorityQueue<>(Comparator.comparingLong(SizedPath::getSize));
+        for (SourceFile sourceFile : sourceFiles) {
+            rawBytes += sourceFile.getSize();
+            headersBytes += ENTRY_HEADERS_SIZE + 2L * sourceFile.getEntryName().getBytes(StandardCharsets.UTF_8).length;
+            addToDirectories(directorySizes, sourceFile);
+            keepLargest(largestFiles, new SizedPath(sourceFile.getEntryName(), sourceFile.getSize()));
+        }
+
+        PriorityQueue<SizedPath> largestDirectories = new PriorityQueue<>(Comparator.comparingLong(SizedPath::getSize));
+        for (Map.Entry<String, Long> directorySize : directorySizes.entrySet()) {
+            keepLargest(largestDirectories, new SizedPath(directorySize.getKey(), directorySize.getValue()));
+        }
+
+        long estimatedCompressedBytes = sourceFiles.isEmpty() ? 0 : Math.round(rawBytes * measureCompressionRatio(sourceFiles)) + headersBytes;
+        return new PackagingEstimate(sourceFiles.size(), rawBytes, estimatedCompressedBytes, walkTime, compressionPolicy.getDescription(),
+                sortedBySize(largestFiles), sortedBySize(largestDirectories));
+    }
+
+    private double measureCompressionRatio(List<SourceFile> sourceFiles) throws IOException {
+        int step = Math.max(1, sourceFiles.size() / MAX_SAMPLED_FILES);
+        long sampledBytes = 0;
+        long compressedBytes = 0;
+        byte[] sample = new byte[SAMPLE_SIZE];
+        byte[] buffer = new byte[SAMPLE_SIZE];
+        Deflater deflater = new Deflater(compressionPolicy.getLevel(), true);
+        try {
+            for (int i = 0; i < sourceFiles.size(); i += step) {
+                SourceFile sourceFile = sourceFiles.get(i);
+                int sampleLength;
+                try (InputStream inputStream = new FileInputStream(sourceFile.getFile())) {
+                    sampleLength = IOUtils.read(inputStream, sample);
+                }
+                sampledBytes += sampleLength;
+                compressedBytes += compressionPolicy.isStored(sourceFile.getEntryName(), sample, sampleLength)
+                        ? sampleLength : deflatedSize(deflater, sample, sampleLength, buffer);
+            }
+        } finally {
+            deflater.end();
+        }
+        return sampledBytes == 0 ? 1 : (double) compressedBytes / sampledBytes;
+    }
+
+    private static long deflatedSize(Deflater deflater, byte[] content, int length, byte[] buffer) {
+        deflater.reset();
+        deflater.setInput(content, 0, length);
+        deflater.finish();
+        long size = 0;
+        while (!deflater.finished()) {
+            size += deflater.deflate(buffer);
+        }
+        //Incompressible entries are stored by the zipper
+        return Math.min(size, length);
+    }
+
+    private static void addToDirectories(Map<String, Long> directorySizes, SourceFile sourceFile) {
+        String entryName = sourceFile.getEntryName();
+        for (int separator = entryName.indexOf('/'); separator >= 0; separator = entryName.indexOf('/', separator + 1)) {
+            directorySizes.merge(entryName.substring(0, separator), sourceFile.getSize(), Long::sum);
+        }
+    }
+
+    private void keepLargest(PriorityQueue<SizedPath> largest, SizedPath sizedPath) {
+        largest.add(sizedPath);
+        if (largest.size() > numOfLargestEntries) {
+            largest.poll();
+        }
+    }
+
+    private static List<SizedPath> sortedBySize(PriorityQueue<SizedPath> largest) {
+        List<SizedPath> sorted = new ArrayList<>(largest);
+        sorted.sort(Comparator.comparingLong(SizedPath::getSize).reversed().thenComparing(SizedPath::getPath));
+        return sorted;
+    }
+
+    public static class PackagingEstimate {
+        private final int numOfFiles;
+        private final long rawBytes;
+        private final long estimatedCompressedBytes;
+        private final long walkTimeMillis;
+        private final String compressionPolicyDescription;
+        private final List<SizedPath> largestFiles;
+        private final List<SizedPath> largestDirectories;
+
+        PackagingEstimate(int numOfFiles, long rawBytes, long estimatedCompressedBytes, long walkTimeMillis, String compressionPolicyDescription,
+                          List<SizedPath> largestFiles, List<SizedPath> largestDirectories) {
+            this.numOfFiles = numOfFiles;
+            this.rawBytes = rawBytes;
+            this.estimatedCompressedBytes = estimatedCompressedBytes;
+            this.walkTimeMillis = walkTimeMillis;
+            this.compressionPolicyDescription = compressionPolicyDescription;
+            this.largestFiles = largestFiles;
+            this.largestDirectories = largestDirectories;
+        }
+
+        public int getNumOfFiles() {
+            return numOfFiles;
+        }
+
+        public long getRawBytes() {
+            return rawBytes;
+        }
+
+        public long getEstimatedCompressedBytes() {
+            return estimatedCompressedBytes;
+        }
+
+        public long getWalkTimeMillis() {
+            return walkTimeMillis;
+        }
+
+        public String getCompressionPolicyDescription() {
+            return compressionPolicyDescription;
+        }
+
+        public List<SizedPath> getLargestFiles() {
+            return largestFiles;
+        }
+
+        /**
+         * @return the folders with the largest total size of included files, including their sub folders
+         */
+        public List<SizedPath> getLargestDirectories() {
+            return largestDirectories;
+        }
+    }
+
+    public static class SizedPath {
+        private final String path;
+        private final long size;
+
+        SizedPath(String path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
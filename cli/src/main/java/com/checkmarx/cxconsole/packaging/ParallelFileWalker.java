@@ -0,0 +1,461 @@
+package com.checkmarx.cxconsole.packaging;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walks a source folder with several threads and hands the included files over through a bounded queue.
+ * Every directory is listed (and its entries are stat-ed) by a separate task of a work stealing pool, which hides the
+ * latency of network file systems. The files are still handed over in sorted path order, so the result is deterministic.
+ * Directories are listed ahead of the handing over in about the order they are handed over, and only up to a limited number of
+ * listed directories and entries which were not handed over yet. The entries of a directory are released as they are handed over,
+ * so the memory usage depends on the width of the tree (the directories found but not listed yet), not on its size.
+ * Symbolic links are not followed, and directories rejected by the {@link ExclusionMatcher} are not listed at all.
+ * Files and directories ignored by .gitignore style files (see {@link IgnoreRules}) found along the way are skipped as well.
+ */
+public class ParallelFileWalker implements Closeable {
+
+    private static Logger log = Logger.getLogger(ParallelFileWalker.class);
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_LISTED_DIRECTORIES = 4096;
+    private static final int MAX_LISTED_ENTRIES = 8192;
+    private static final String GIT_IGNORE_FILE_NAME = ".gitignore";
+    private static final String GIT_INFO_EXCLUDE_PATH = ".git/info/exclude";
+    private static final SourceFile END_OF_WALK = new SourceFile(null, null, 0, 0);
+    //Directories sort as if their name ends with '/', so the emitting order equals the sorted order of the full paths
+    private static final Comparator<WalkEntry> ENTRY_ORDER = Comparator.comparing(entry -> entry.sortKey);
+
+    private final ExclusionMatcher matcher;
+    private final List<String> ignoreFileNames;
+    private final AtomicInteger numOfIgnoreFiles = new AtomicInteger();
+    private final ForkJoinPool walkPool;
+    private final BlockingQueue<SourceFile> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicInteger pendingDirectories = new AtomicInteger();
+    //Directories which were found but not listed yet, the next one to list first
+    private final Deque<DirectoryNode> deferredDirectories = new ConcurrentLinkedDeque<>();
+    //Directories whose listing was started, and whose files were not handed over yet
+    private final AtomicInteger listedDirectories = new AtomicInteger();
+    //Entries of the listed directories which were not handed over yet
+    private final AtomicInteger listedEntries = new AtomicInteger();
+    private final Set<DirectoryNode> incompleteDirectories = ConcurrentHashMap.newKeySet();
+    private volatile boolean isClosed;
+    private final Thread emitterThread;
+    private final long walkStartTime = System.nanoTime();
+    private volatile long walkEndTime;
+    private volatile IOException walkFailure;
+    private int numOfWalkedFiles;
+    private boolean endOfWalk;
+
+    /**
+     * @param ignoreFileNames names of the .gitignore style files to honor, in increasing precedence (e.g. ".gitignore", ".cxignore")
+     */
+    public ParallelFileWalker(File baseDir, ExclusionMatcher matcher, List<String> ignoreFileNames, int numOfThreads) {
+        this(SourceRoots.of(baseDir), matcher, ignoreFileNames, numOfThreads);
+    }
+
+    /**
+     * Walks several folders at the same time with the same threads. The files of every folder are handed over below its prefix,
+     * one folder after the other in sorted prefix order.
+     */
+    public ParallelFileWalker(SourceRoots sourceRoots, ExclusionMatcher matcher, List<String> ignoreFileNames, int numOfThreads) {
+        this.matcher = matcher;
+        this.ignoreFileNames = ignoreFileNames;
+        this.walkPool = new ForkJoinPool(Math.max(1, numOfThreads), new WalkThreadFactory(), null, false);
+        DirectoryNode root = sourceRoots.isMultiple() ? listRoots(sourceRoots) : listRoot(sourceRoots.getRoots().values().iterator().next());
+        emitterThread = new Thread(() -> emitAll(root), "cx-walk-emitter");
+        emitterThread.setDaemon(true);
+        emitterThread.start();
+    }
+
+    /**
+     * @return the next included file in sorted path order, or null when the walk is over
+     */
+    public SourceFile next() throws IOException {
+        if (endOfWalk) {
+            return null;
+        }
+        SourceFile sourceFile;
+        try {
+            sourceFile = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Walking source files was interrupted");
+        }
+        if (sourceFile == END_OF_WALK) {
+            endOfWalk = true;
+            if (walkFailure != null) {
+                throw walkFailure;
+            }
+            return null;
+        }
+        numOfWalkedFiles++;
+        return sourceFile;
+    }
+
+    public int getNumOfWalkedFiles() {
+        return numOfWalkedFiles;
+    }
+
+    public int getNumOfIgnoreFiles() {
+        return numOfIgnoreFiles.get();
+    }
+
+    /**
+     * @return the time it took to list and stat the whole (not excluded) tree, not including the time spent waiting for the consumer
+     */
+    public long getWalkTimeMillis() {
+        long endTime = walkEndTime != 0 ? walkEndTime : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(endTime - walkStartTime);
+    }
+
+    /**
+     * Stops the walk. The listings which did not complete are failed, so the emitting thread is not left waiting for them.
+     */
+    @Override
+    public void close() {
+        isClosed = true;
+        walkPool.shutdownNow();
+        for (DirectoryNode directoryNode : incompleteDirectories) {
+            CompletableFuture<List<WalkEntry>> entries = directoryNode.entries;
+            if (entries != null) {
+                entries.completeExceptionally(new CancellationException("Source files walk was closed"));
+            }
+        }
+        emitterThread.interrupt();
+    }
+
+    private DirectoryNode listRoot(File baseDir) {
+        if (!baseDir.isDirectory()) {
+            return null;
+        }
+        DirectoryNode root = listDirectory(baseDir.toPath(), "", matcher.getRootState(), loadRootIgnoreRules(baseDir, ""));
+        deferredDirectories.add(root);
+        startDeferredDirectories();
+        return root;
+    }
+
+    /**
+     * The folders become the directories of a virtual root, so they are listed concurrently and emitted in sorted order like any other directory
+     */
+    private DirectoryNode listRoots(SourceRoots sourceRoots) {
+        List<WalkEntry> entries = new ArrayList<>();
+        //A folder listed before the others are submitted must not end the walk time
+        pendingDirectories.incrementAndGet();
+        for (Map.Entry<String, File> sourceRoot : sourceRoots.getRoots().entrySet()) {
+            File baseDir = sourceRoot.getValue();
+            ExclusionMatcher.MatchState state = matcher.enterDirectory(matcher.getRootState(), sourceRoot.getKey());
+            if (baseDir.isDirectory() && state != null) {
+                String directoryPath = sourceRoot.getKey() + "/";
+                entries.add(new WalkEntry(directoryPath, null, listDirectory(baseDir.toPath(), directoryPath, state, loadRootIgnoreRules(baseDir, directoryPath))));
+            }
+        }
+        if (pendingDirectories.decrementAndGet() == 0) {
+            walkEndTime = System.nanoTime();
+        }
+        entries.sort(ENTRY_ORDER);
+        listedEntries.addAndGet(entries.size());
+        deferDirectories(entries);
+        startDeferredDirectories();
+        DirectoryNode root = new DirectoryNode(null, null, null, null);
+        root.entries.complete(entries);
+        return root;
+    }
+
+    /**
+     * The repository exclude file of git applies to the walked folder, when it is the root of a git repository
+     */
+    private IgnoreRules loadRootIgnoreRules(File baseDir, String relativePath) {
+        File gitInfoExclude = new File(baseDir, GIT_INFO_EXCLUDE_PATH);
+        if (!ignoreFileNames.contains(GIT_IGNORE_FILE_NAME) || !gitInfoExclude.isFile()) {
+            return IgnoreRules.empty();
+        }
+        numOfIgnoreFiles.incrementAndGet();
+        return IgnoreRules.empty().load(gitInfoExclude.toPath(), relativePath);
+    }
+
+    /**
+     * @return the directory, which is listed once it is started
+     */
+    private DirectoryNode listDirectory(Path dir, String relativePath, ExclusionMatcher.MatchState state, IgnoreRules ignoreRules) {
+        DirectoryNode node = new DirectoryNode(dir, relativePath, state, ignoreRules);
+        pendingDirectories.incrementAndGet();
+        incompleteDirectories.add(node);
+        return node;
+    }
+
+    /**
+     * The subdirectories are deferred in front of the others, first one first, so the directories are listed in about the order their files are handed over
+     */
+    private void deferDirectories(List<WalkEntry> entries) {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).directory != null) {
+                deferredDirectories.addFirst(entries.get(i).directory);
+            }
+        }
+    }
+
+    private void startDeferredDirectories() {
+        while (listedDirectories.get() < MAX_LISTED_DIRECTORIES && listedEntries.get() < MAX_LISTED_ENTRIES) {
+            DirectoryNode node = deferredDirectories.pollFirst();
+            if (node == null) {
+                return;
+            }
+            start(node);
+        }
+    }
+
+    /**
+     * Starts the listing of a directory, unless it was started already
+     */
+    private void start(DirectoryNode node) {
+        if (!node.isStarted.compareAndSet(false, true)) {
+            return;
+        }
+        listedDirectories.incrementAndGet();
+        try {
+            if (isClosed) {
+                throw new RejectedExecutionException("Source files walk was closed");
+            }
+            walkPool.execute(() -> list(node));
+        } catch (RejectedExecutionException e) {
+            complete(node, null, e);
+        }
+    }
+
+    private void list(DirectoryNode node) {
+        List<WalkEntry> entries;
+        try {
+            entries = readEntries(node.dir, node.relativePath, node.state, node.ignoreRules);
+        } catch (RuntimeException | Error e) {
+            //The pool does not report a failed task, the handing over reports it
+            complete(node, null, e);
+            return;
+        }
+        listedEntries.addAndGet(entries.size());
+        deferDirectories(entries);
+        complete(node, entries, null);
+        startDeferredDirectories();
+    }
+
+    private void complete(DirectoryNode node, List<WalkEntry> entries, Throwable failure) {
+        if (failure != null) {
+            node.entries.completeExceptionally(failure);
+        } else {
+            node.entries.complete(entries);
+        }
+        incompleteDirectories.remove(node);
+        if (pendingDirectories.decrementAndGet() == 0) {
+            walkEndTime = System.nanoTime();
+        }
+    }
+
+    private List<WalkEntry> readEntries(Path dir, String relativePath, ExclusionMatcher.MatchState state, IgnoreRules parentIgnoreRules) {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dir)) {
+            for (Path path : directoryStream) {
+                paths.add(path);
+            }
+        } catch (IOException e) {
+            log.warn("Skipping unreadable directory: " + dir + " (" + e.getMessage() + ")");
+        }
+
+        //The ignore files of a directory apply to its own entries, so they are loaded before the entries are matched
+        IgnoreRules ignoreRules = parentIgnoreRules;
+        for (String ignoreFileName : ignoreFileNames) {
+            Path ignoreFile = dir.resolve(ignoreFileName);
+            if (Files.isRegularFile(ignoreFile, LinkOption.NOFOLLOW_LINKS)) {
+                numOfIgnoreFiles.incrementAndGet();
+                ignoreRules = ignoreRules.load(ignoreFile, relativePath);
+            }
+        }
+
+        List<WalkEntry> entries = new ArrayList<>();
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                log.warn("Skipping unreadable path: " + path + " (" + e.getMessage() + ")");
+                continue;
+            }
+
+            if (attributes.isDirectory()) {
+                ExclusionMatcher.MatchState directoryState = matcher.enterDirectory(state, name);
+                if (directoryState != null && !ignoreRules.isIgnored(relativePath + name, true)) {
+                    String directoryPath = relativePath + name + "/";
+                    entries.add(new WalkEntry(directoryPath, null, listDirectory(path, directoryPath, directoryState, ignoreRules)));
+                }
+            } else if (attributes.isRegularFile() && matcher.isFileIncluded(state, name) && !ignoreRules.isIgnored(relativePath + name, false)) {
+                if (!Files.isReadable(path)) {
+                    log.warn("Skipping unreadable file: " + path);
+                    continue;
+                }
+                SourceFile sourceFile = new SourceFile(relativePath + name, path.toFile(), attributes.size(), attributes.lastModifiedTime().toMillis());
+                entries.add(new WalkEntry(sourceFile.getEntryName(), sourceFile, null));
+            }
+        }
+        entries.sort(ENTRY_ORDER);
+        return entries;
+    }
+
+    private void emitAll(DirectoryNode root) {
+        try {
+            if (root != null) {
+                emit(root);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            walkFailure = new IOException("Failed to walk source files: " + cause.getMessage(), cause);
+        }
+        try {
+            queue.put(END_OF_WALK);
+        } catch (InterruptedException e) {
+            log.trace("Source files walk was closed before it ended");
+        }
+    }
+
+    private void emit(DirectoryNode node) throws InterruptedException {
+        //A directory which was not listed ahead is listed now, since its files are the next ones to hand over.
+        //It is usually the first of the deferred directories, which are kept in the order they are handed over.
+        if (!node.isStarted.get()) {
+            deferredDirectories.removeFirstOccurrence(node);
+        }
+        start(node);
+        List<WalkEntry> entries = node.takeEntries();
+        for (int i = 0; i < entries.size(); i++) {
+            WalkEntry entry = entries.get(i);
+            //A handed over entry is released, with the entries of its directory
+            entries.set(i, null);
+            listedEntries.decrementAndGet();
+            if (entry.directory != null) {
+                emit(entry.directory);
+            } else {
+                queue.put(entry.sourceFile);
+            }
+        }
+        listedDirectories.decrementAndGet();
+        startDeferredDirectories();
+    }
+
+    /**
+     * A file which was found by the walk, with the attributes which were read while listing its directory
+     */
+    public static class SourceFile {
+        private final String entryName;
+        private final File file;
+        private final long size;
+        private final long lastModified;
+
+        SourceFile(String entryName, File file, long size, long lastModified) {
+            this.entryName = entryName;
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return the path relative to the walked folder (below the prefix of its folder when several folders are walked), '/' separated
+         */
+        public String getEntryName() {
+            return entryName;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    private static class DirectoryNode {
+        private final Path dir;
+        private final String relativePath;
+        private final ExclusionMatcher.MatchState state;
+        private final IgnoreRules ignoreRules;
+        //Null once the entries were taken to be handed over
+        private volatile CompletableFuture<List<WalkEntry>> entries = new CompletableFuture<>();
+        private final AtomicBoolean isStarted = new AtomicBoolean();
+
+        /**
+         * @param dir the listed directory (null - a virtual directory, whose entries are completed by its creator)
+         */
+        DirectoryNode(Path dir, String relativePath, ExclusionMatcher.MatchState state, IgnoreRules ignoreRules) {
+            this.dir = dir;
+            this.relativePath = relativePath;
+            this.state = state;
+            this.ignoreRules = ignoreRules;
+            this.isStarted.set(dir == null);
+        }
+
+        /**
+         * Waits for the listing, and leaves the entries to the caller only
+         */
+        List<WalkEntry> takeEntries() {
+            List<WalkEntry> listedEntries = entries.join();
+            entries = null;
+            return listedEntries;
+        }
+    }
+
+    private static class WalkEntry {
+        private final String sortKey;
+        private final SourceFile sourceFile;
+        private final DirectoryNode directory;
+
+        WalkEntry(String sortKey, SourceFile sourceFile, DirectoryNode directory) {
+            this.sortKey = sortKey;
+            this.sourceFile = sourceFile;
+            this.directory = directory;
+        }
+    }
+
+    private static class WalkThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("cx-walk-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
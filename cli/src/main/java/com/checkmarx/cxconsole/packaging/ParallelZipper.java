@@ -0,0 +1,514 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.components.zipper.ZipListener;
+import com.checkmarx.components.zipper.Zipper;
+import com.checkmarx.cxconsole.packaging.FileHashCache.FileHash;
+import com.checkmarx.cxconsole.packaging.ParallelFileWalker.SourceFile;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Zips source folders using several threads. Several folders are walked at the same time, and packed into one archive below their prefixes.
+ * File entries are deflated concurrently and written to the archive in sorted order, so the result is deterministic.
+ * Include/exclude patterns, progress callbacks and size limit behave the same as in the single threaded {@link Zipper}.
+ * The patterns are compiled once into an {@link ExclusionMatcher}, and the files are found by a {@link ParallelFileWalker}.
+ * With a {@link DeflatedEntryCache}, the entries of files which did not change since the previous archive are copied from it.
+ * In deterministic mode every entry has the same fixed time instead of the modification time of its file, so identical sources
+ * give a byte-identical archive, whose SHA-256 digest is logged.
+ */
+public class ParallelZipper {
+
+    private static Logger log = Logger.getLogger(ParallelZipper.class);
+
+    //Bigger files are deflated by the writing thread directly from the file into the archive, to keep the memory usage bounded
+    private static final long MAX_IN_MEMORY_ENTRY_SIZE = 2L * 1024 * 1024;
+    private static final int PENDING_ENTRIES_PER_THREAD = 4;
+    //Bytes of the files which are read and compressed in memory at the same time, at most 1/8 of the heap
+    private static final long MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+    //An entry in memory holds the content of its file and the compressed content
+    private static final int IN_FLIGHT_COPIES_PER_ENTRY = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    //Same compression ratio estimation as the Zipper uses for entries which were not compressed yet
+    private static final int ESTIMATED_COMPRESSION_RATIO = 4;
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**"};
+
+    //Marks a file which was left out by the content filter
+    private static final DeflatedEntry EXCLUDED_ENTRY = new DeflatedEntry(ZipEntry.STORED, new byte[0], 0, 0, 0, null, null);
+    //Compression of an entry which is stored by the compression policy, other entries are deflated with the level of the policy
+    private static final String STORED_COMPRESSION = "stored";
+    private static final int DEFAULT_DEFLATE_LEVEL = 6;
+    //Time of all the entries of a deterministic archive, the earliest time of the zip format. It is local time, like the time of a zip entry,
+    //so it is the same in every time zone
+    private static final long DETERMINISTIC_ENTRY_TIME = new GregorianCalendar(1980, Calendar.JANUARY, 1).getTimeInMillis();
+    private static final String ARCHIVE_DIGEST_ALGORITHM = "SHA-256";
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private final int numOfThreads;
+    private final int numOfWalkerThreads;
+    private final CompressionPolicy compressionPolicy;
+    private final List<String> ignoreFileNames;
+    private final FileHashCache fileHashCache;
+    private final ContentFilter contentFilter;
+    private final DeflatedEntryCache deflatedEntryCache;
+    private final boolean isDeterministic;
+    private String archiveDigest;
+    private int numOfStoredEntries;
+    private long sourceBytes;
+    //Bytes held by the pending entries, which are submitted and written by the same thread
+    private long inFlightBytes;
+
+    /**
+     * @param ignoreFileNames names of the .gitignore style files to honor, in increasing precedence
+     * @param fileHashCache   keeps the hashes of the zipped files, which identify the reusable entries and the fingerprints (null - no cache)
+     * @param contentFilter   finds binary, minified, generated and lock files while they are zipped (null - no filter)
+     * @param deflatedEntryCache provides the entries of unchanged files from the previous archive, and keeps the new one (null - no reuse)
+     * @param isDeterministic    the entries get a fixed time rather than the modification time of their files, and the archive digest is computed
+     */
+    public ParallelZipper(int numOfThreads, int numOfWalkerThreads, CompressionPolicy compressionPolicy, List<String> ignoreFileNames,
+                          FileHashCache fileHashCache, ContentFilter contentFilter, DeflatedEntryCache deflatedEntryCache, boolean isDeterministic) {
+        this.numOfThreads = Math.max(1, numOfThreads);
+        this.numOfWalkerThreads = Math.max(1, numOfWalkerThreads);
+        this.compressionPolicy = compressionPolicy;
+        this.ignoreFileNames = ignoreFileNames;
+        this.fileHashCache = fileHashCache;
+        this.contentFilter = contentFilter;
+        this.deflatedEntryCache = deflatedEntryCache;
+        this.isDeterministic = isDeterministic;
+    }
+
+    public void zip(SourceRoots sourceRoots, String[] excludePatterns, String[] includePatterns, OutputStream outputStream, long maxZipSize,
+                    ZipListener zipListener) throws IOException {
+        zip(sourceRoots, excludePatterns, includePatterns, null, outputStream, maxZipSize, zipListener);
+    }
+
+    /**
+     * Zips only the files which were added or modified
+     *
+     * @param changes the files which changed since the last scanned sources (null - all the files are zipped)
+     */
+    public void zip(SourceRoots sourceRoots, String[] excludePatterns, String[] includePatterns, SourceManifest.Changes changes, OutputStream outputStream,
+                    long maxZipSize, ZipListener zipListener) throws IOException {
+        long zipStartTime = System.currentTimeMillis();
+        numOfStoredEntries = 0;
+        sourceBytes = 0;
+        inFlightBytes = 0;
+        archiveDigest = null;
+        ExclusionMatcher matcher = ExclusionMatcher.compile(includePatterns != null && includePatterns.length > 0 ? includePatterns : INCLUDE_ALL_PATTERNS,
+                excludePatterns);
+        try (ParallelFileWalker fileWalker = new ParallelFileWalker(sourceRoots, matcher, ignoreFileNames, numOfWalkerThreads)) {
+            SourceFile sourceFile = nextSourceFile(fileWalker, changes);
+            if (sourceFile == null) {
+                outputStream.close();
+                log.info("No files to zip");
+                throw new Zipper.NoFilesToZip();
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(numOfThreads, new ZipThreadFactory());
+            //An archive of the changed files only is no base for the next run
+            boolean isRecorded = deflatedEntryCache != null && changes == null;
+            DigestOutputStream digestOutputStream = isDeterministic ? new DigestOutputStream(outputStream, newArchiveDigest()) : null;
+            OutputStream archiveOutputStream = digestOutputStream != null ? digestOutputStream : outputStream;
+            CountingOutputStream countingOutputStream = new CountingOutputStream(isRecorded ? deflatedEntryCache.record(archiveOutputStream) : archiveOutputStream);
+            AbortableOutputStream abortableOutputStream = new AbortableOutputStream(countingOutputStream);
+            try (ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(abortableOutputStream)) {
+                try {
+                    Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+                    int maxPendingEntries = numOfThreads * PENDING_ENTRIES_PER_THREAD;
+                    long maxInFlightBytes = getMaxInFlightBytes();
+                    for (; sourceFile != null; sourceFile = nextSourceFile(fileWalker, changes)) {
+                        long entryBytes = getInFlightBytes(sourceFile);
+                        while (!pendingEntries.isEmpty() && (pendingEntries.size() >= maxPendingEntries || inFlightBytes + entryBytes > maxInFlightBytes)) {
+                            writeEntry(zipOutputStream, countingOutputStream, pendingEntries.poll(), maxZipSize, zipListener);
+                        }
+                        pendingEntries.add(submitEntry(executor, sourceFile, entryBytes));
+                    }
+                    while (!pendingEntries.isEmpty()) {
+                        writeEntry(zipOutputStream, countingOutputStream, pendingEntries.poll(), maxZipSize, zipListener);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    //Closing the zip stream would complete a valid archive of the entries written so far
+                    abortableOutputStream.abort();
+                    throw e;
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            if (isRecorded) {
+                deflatedEntryCache.commit();
+            }
+            if (digestOutputStream != null) {
+                archiveDigest = FileHashCache.toHex(digestOutputStream.getMessageDigest().digest());
+                log.info("Packed sources " + ARCHIVE_DIGEST_ALGORITHM + " digest: " + archiveDigest);
+            }
+            log.info("Walking source files took " + fileWalker.getWalkTimeMillis() + " ms (" + fileWalker.getNumOfWalkedFiles() + " files, "
+                    + numOfWalkerThreads + " threads, " + fileWalker.getNumOfIgnoreFiles() + " ignore files), zipping took " + (System.currentTimeMillis() - zipStartTime) + " ms (" + numOfThreads + " threads)");
+            log.info("Compression policy: " + compressionPolicy.getDescription() + ". " + numOfStoredEntries + " of " + fileWalker.getNumOfWalkedFiles()
+                    + " entries were stored without compression. Compression ratio: " + FileUtils.byteCountToDisplaySize(countingOutputStream.getByteCount())
+                    + " / " + FileUtils.byteCountToDisplaySize(sourceBytes) + " (" + String.format("%.1f", getCompressionRatio(countingOutputStream.getByteCount())) + "%)");
+            if (deflatedEntryCache != null) {
+                log.info(deflatedEntryCache.getNumOfReusedEntries() + " of " + fileWalker.getNumOfWalkedFiles()
+                        + " entries were copied from the previous packed sources without compressing them again");
+            }
+        }
+    }
+
+    /**
+     * @return the hex SHA-256 digest of the last deterministic archive, or null if the zipper is not deterministic
+     */
+    public String getArchiveDigest() {
+        return archiveDigest;
+    }
+
+    private static MessageDigest newArchiveDigest() {
+        try {
+            return MessageDigest.getInstance(ARCHIVE_DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ARCHIVE_DIGEST_ALGORITHM + " is not supported", e);
+        }
+    }
+
+    private static SourceFile nextSourceFile(ParallelFileWalker fileWalker, SourceManifest.Changes changes) throws IOException {
+        SourceFile sourceFile = fileWalker.next();
+        while (sourceFile != null && changes != null && !changes.isChanged(sourceFile.getEntryName())) {
+            sourceFile = fileWalker.next();
+        }
+        return sourceFile;
+    }
+
+    private double getCompressionRatio(long compressedBytes) {
+        return sourceBytes == 0 ? 100 : compressedBytes * 100.0 / sourceBytes;
+    }
+
+    /**
+     * The budget is big enough for the biggest entry in memory, so a single pending entry never waits for it
+     */
+    private static long getMaxInFlightBytes() {
+        return Math.max(MAX_IN_MEMORY_ENTRY_SIZE * IN_FLIGHT_COPIES_PER_ENTRY, Math.min(MAX_IN_FLIGHT_BYTES, Runtime.getRuntime().maxMemory() / 8));
+    }
+
+    private static long getInFlightBytes(SourceFile sourceFile) {
+        return sourceFile.getSize() > MAX_IN_MEMORY_ENTRY_SIZE ? 0 : sourceFile.getSize() * IN_FLIGHT_COPIES_PER_ENTRY;
+    }
+
+    private PendingEntry submitEntry(ExecutorService executor, SourceFile sourceFile, long entryBytes) {
+        if (sourceFile.getSize() > MAX_IN_MEMORY_ENTRY_SIZE) {
+            return new PendingEntry(sourceFile, null, 0);
+        }
+        inFlightBytes += entryBytes;
+        return new PendingEntry(sourceFile, executor.submit(() -> deflate(sourceFile)), entryBytes);
+    }
+
+    private void writeEntry(ZipArchiveOutputStream zipOutputStream, CountingOutputStream countingOutputStream, PendingEntry pendingEntry,
+                                   long maxZipSize, ZipListener zipListener) throws IOException {
+        DeflatedEntry deflatedEntry;
+        try {
+            deflatedEntry = pendingEntry.getDeflatedEntry();
+        } finally {
+            inFlightBytes -= pendingEntry.inFlightBytes;
+        }
+        if (deflatedEntry == EXCLUDED_ENTRY) {
+            return;
+        }
+        SourceFile sourceFile = pendingEntry.sourceFile;
+        byte[] sample = null;
+        FileHash fileHash = null;
+        if (deflatedEntry == null) {
+            sample = readSample(sourceFile);
+            if (contentFilter != null && contentFilter.isExcluded(sourceFile.getEntryName(), sample, sample.length, sourceFile.getSize())) {
+                return;
+            }
+            if (deflatedEntryCache != null) {
+                fileHash = getFileHash(sourceFile);
+                deflatedEntry = findReusableEntry(sourceFile, fileHash, sample);
+            }
+        }
+        long expectedSize = deflatedEntry != null ? deflatedEntry.getCompressedSize() : sourceFile.getSize() / ESTIMATED_COMPRESSION_RATIO;
+        if (countingOutputStream.getByteCount() + expectedSize > maxZipSize) {
+            log.info("Maximum zip file size reached. Zip size: " + countingOutputStream.getByteCount() + " bytes Limit: " + maxZipSize + " bytes");
+            throw new Zipper.MaxZipSizeReached(countingOutputStream.getByteCount(), maxZipSize);
+        }
+
+        zipListener.updateProgress(sourceFile.getEntryName(), sourceFile.getSize());
+        ZipArchiveEntry zipEntry = new ZipArchiveEntry(sourceFile.getEntryName());
+        zipEntry.setTime(isDeterministic ? DETERMINISTIC_ENTRY_TIME : sourceFile.getLastModified());
+        String compression;
+        if (deflatedEntry != null) {
+            deflatedEntry.describe(zipEntry);
+            try (InputStream content = deflatedEntry.previousEntry != null
+                    ? deflatedEntryCache.getRawContent(deflatedEntry.previousEntry) : deflatedEntry.getContent()) {
+                zipOutputStream.addRawArchiveEntry(zipEntry, content);
+            }
+            compression = deflatedEntry.compression;
+        } else {
+            zipEntry.setSize(sourceFile.getSize());
+            if (compressionPolicy.isStored(sourceFile.getEntryName(), sample, sample.length)) {
+                //The entry is not written to a seekable output, so a stored entry must be described before its content
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setCompressedSize(sourceFile.getSize());
+                //The cached hashes are keyed by the size and modification time, so the checksum is read from the content itself
+                zipEntry.setCrc(FileUtils.checksumCRC32(sourceFile.getFile()));
+                compression = STORED_COMPRESSION;
+            } else {
+                zipEntry.setMethod(ZipEntry.DEFLATED);
+                zipOutputStream.setLevel(compressionPolicy.getLevel());
+                compression = getDeflateCompression();
+            }
+            zipOutputStream.putArchiveEntry(zipEntry);
+            try (InputStream inputStream = new FileInputStream(sourceFile.getFile())) {
+                IOUtils.copy(inputStream, zipOutputStream, BUFFER_SIZE);
+            }
+            zipOutputStream.closeArchiveEntry();
+        }
+        if (deflatedEntryCache != null) {
+            deflatedEntryCache.put(sourceFile.getEntryName(), deflatedEntry != null ? deflatedEntry.sha1Hex : fileHash.getSha1Hex(), compression);
+        }
+        sourceBytes += sourceFile.getSize();
+        if (zipEntry.getMethod() == ZipEntry.STORED) {
+            numOfStoredEntries++;
+        }
+    }
+
+    /**
+     * Reads the beginning of a file, which is enough for both samples
+     */
+    private static byte[] readSample(SourceFile sourceFile) throws IOException {
+        byte[] sample = new byte[(int) Math.min(sourceFile.getSize(), Math.max(CompressionPolicy.SAMPLE_SIZE, ContentFilter.SAMPLE_SIZE))];
+        int length;
+        try (InputStream inputStream = new FileInputStream(sourceFile.getFile())) {
+            length = IOUtils.read(inputStream, sample);
+        }
+        return length == sample.length ? sample : Arrays.copyOf(sample, length);
+    }
+
+    private DeflatedEntry deflate(SourceFile sourceFile) throws IOException {
+        if (deflatedEntryCache != null) {
+            //The sample and the hash of an unchanged file are all that is read of it
+            byte[] sample = readSample(sourceFile);
+            DeflatedEntry reusedEntry = findReusableEntry(sourceFile, getFileHash(sourceFile), sample);
+            if (reusedEntry != null) {
+                return contentFilter != null && contentFilter.isExcluded(sourceFile.getEntryName(), sample, sample.length, sourceFile.getSize())
+                        ? EXCLUDED_ENTRY : reusedEntry;
+            }
+        }
+        byte[] content = Files.readAllBytes(sourceFile.getFile().toPath());
+        if (contentFilter != null && contentFilter.isExcluded(sourceFile.getEntryName(), content, content.length, content.length)) {
+            return EXCLUDED_ENTRY;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        //The hash is needed only to find the entry in the next run
+        String sha1Hex = deflatedEntryCache != null ? getFileHash(sourceFile, content).getSha1Hex() : null;
+        if (compressionPolicy.isStored(sourceFile.getEntryName(), content, content.length)) {
+            return new DeflatedEntry(ZipEntry.STORED, content, content.length, content.length, crc.getValue(), sha1Hex, STORED_COMPRESSION);
+        }
+
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setLevel(compressionPolicy.getLevel());
+        deflater.setInput(content);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            compressed.write(buffer, 0, length);
+        }
+
+        //Keep incompressible content as is
+        if (compressed.size() >= content.length) {
+            return new DeflatedEntry(ZipEntry.STORED, content, content.length, content.length, crc.getValue(), sha1Hex, getDeflateCompression());
+        }
+        return new DeflatedEntry(ZipEntry.DEFLATED, compressed.toByteArray(), compressed.size(), content.length, crc.getValue(), sha1Hex, getDeflateCompression());
+    }
+
+    /**
+     * @return the entry of the previous archive, if the file did not change and would be compressed the same way now, otherwise null
+     */
+    private DeflatedEntry findReusableEntry(SourceFile sourceFile, FileHash fileHash, byte[] sample) {
+        String compression = compressionPolicy.isStored(sourceFile.getEntryName(), sample, sample.length) ? STORED_COMPRESSION : getDeflateCompression();
+        ZipArchiveEntry previousEntry = deflatedEntryCache.findReusableEntry(sourceFile.getEntryName(), fileHash.getSha1Hex(), compression);
+        return previousEntry != null ? new DeflatedEntry(previousEntry, fileHash.getSha1Hex(), compression) : null;
+    }
+
+    /**
+     * The policy decides whether to store or deflate an entry, an entry which turned out to be incompressible is stored either way
+     */
+    private String getDeflateCompression() {
+        //The default level of the deflater is 6, so both compress the same way
+        int level = compressionPolicy.getLevel() == Deflater.DEFAULT_COMPRESSION ? DEFAULT_DEFLATE_LEVEL : compressionPolicy.getLevel();
+        return "deflate " + level;
+    }
+
+    private FileHash getFileHash(SourceFile sourceFile) throws IOException {
+        return fileHashCache != null
+                ? fileHashCache.getHash(sourceFile.getFile(), sourceFile.getSize(), sourceFile.getLastModified())
+                : FileHashCache.hash(sourceFile.getFile());
+    }
+
+    /**
+     * The content was read anyway, so the hash of a changed file is kept in the cache
+     */
+    private FileHash getFileHash(SourceFile sourceFile, byte[] content) {
+        if (fileHashCache == null) {
+            return FileHashCache.hash(content, content.length);
+        }
+        FileHash fileHash = fileHashCache.getCachedHash(sourceFile.getFile(), sourceFile.getSize(), sourceFile.getLastModified());
+        if (fileHash == null || content.length != sourceFile.getSize()) {
+            fileHash = FileHashCache.hash(content, content.length);
+            if (content.length == sourceFile.getSize()) {
+                fileHashCache.put(sourceFile.getFile(), sourceFile.getSize(), sourceFile.getLastModified(), fileHash);
+            }
+        }
+        return fileHash;
+    }
+
+    private static class PendingEntry {
+        private final SourceFile sourceFile;
+        private final Future<DeflatedEntry> deflatedEntry;
+        private final long inFlightBytes;
+
+        PendingEntry(SourceFile sourceFile, Future<DeflatedEntry> deflatedEntry, long inFlightBytes) {
+            this.sourceFile = sourceFile;
+            this.deflatedEntry = deflatedEntry;
+            this.inFlightBytes = inFlightBytes;
+        }
+
+        DeflatedEntry getDeflatedEntry() throws IOException {
+            if (deflatedEntry == null) {
+                return null;
+            }
+            try {
+                return deflatedEntry.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Zipping was interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Failed to compress " + sourceFile.getFile() + ": " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    private static class DeflatedEntry {
+        private final int method;
+        private final byte[] content;
+        private final long compressedSize;
+        private final long size;
+        private final long crc;
+        private final String sha1Hex;
+        private final String compression;
+        //An entry of the previous archive, whose compressed bytes are copied from there rather than kept in memory
+        private final ZipArchiveEntry previousEntry;
+
+        DeflatedEntry(int method, byte[] content, int compressedSize, long size, long crc, String sha1Hex, String compression) {
+            this.method = method;
+            this.content = content;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.crc = crc;
+            this.sha1Hex = sha1Hex;
+            this.compression = compression;
+            this.previousEntry = null;
+        }
+
+        DeflatedEntry(ZipArchiveEntry previousEntry, String sha1Hex, String compression) {
+            this.method = previousEntry.getMethod();
+            this.content = null;
+            this.compressedSize = previousEntry.getCompressedSize();
+            this.size = previousEntry.getSize();
+            this.crc = previousEntry.getCrc();
+            this.sha1Hex = sha1Hex;
+            this.compression = compression;
+            this.previousEntry = previousEntry;
+        }
+
+        long getCompressedSize() {
+            return compressedSize;
+        }
+
+        InputStream getContent() {
+            return new ByteArrayInputStream(content, 0, (int) compressedSize);
+        }
+
+        void describe(ZipArchiveEntry zipEntry) {
+            zipEntry.setMethod(method);
+            zipEntry.setSize(size);
+            zipEntry.setCompressedSize(compressedSize);
+            zipEntry.setCrc(crc);
+        }
+    }
+
+    /**
+     * Fails the writes after an abort, so the zip stream cannot write the central directory of an incomplete archive when it is closed
+     */
+    private static class AbortableOutputStream extends ProxyOutputStream {
+        private boolean isAborted;
+
+        AbortableOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        /**
+         * Closes the output, which the zip stream may not close once its writes fail
+         */
+        void abort() {
+            isAborted = true;
+            IOUtils.closeQuietly(out);
+        }
+
+        @Override
+        protected void beforeWrite(int n) throws IOException {
+            if (isAborted) {
+                throw new IOException("Zipping was aborted");
+            }
+        }
+    }
+
+    private static class ZipThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cx-zip-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
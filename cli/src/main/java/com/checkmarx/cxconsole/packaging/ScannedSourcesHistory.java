@@ -0,0 +1,185 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.cxconsole.utils.ConfigMgr;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Fingerprint of the sources of the last successful scan of every project, with the id of that scan, and the number of consecutive incremental
+ * scans and optionally the manifest of the sources of the last created scan.
+ * Kept in the cache folder, so a scan of sources which did not change since can be skipped, and an incremental scan can pack only the changed files.
+ */
+public class ScannedSourcesHistory {
+
+    private static Logger log = Logger.getLogger(ScannedSourcesHistory.class);
+
+    private static final String HISTORY_FILE_NAME = "scanned_sources.properties";
+    private static final String LOCK_FILE_NAME = "scanned_sources.lock";
+    private static final char SEPARATOR = ':';
+    private static final String MANIFESTS_FOLDER_NAME = "source_manifests";
+    private static final String INCREMENTAL_SCANS_KEY_SUFFIX = "|incremental";
+
+    private ScannedSourcesHistory() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @return the id of the last scan of the project, if its sources had the same fingerprint, otherwise null
+     */
+    public static Long getScanId(String server, long projectId, String sourceFingerprint) {
+        String value = loadHistory().getProperty(getKey(server, projectId));
+        if (value == null || sourceFingerprint == null) {
+            return null;
+        }
+        int separator = value.lastIndexOf(SEPARATOR);
+        if (separator < 0 || !sourceFingerprint.equals(value.substring(0, separator))) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            log.trace("Ignoring invalid scanned sources record of project " + projectId + ": " + value);
+            return null;
+        }
+    }
+
+    /**
+     * @return the number of incremental scans of the project since its last full scan
+     */
+    public static int getNumOfConsecutiveIncrementalScans(String server, long projectId) {
+        String value = loadHistory().getProperty(getKey(server, projectId) + INCREMENTAL_SCANS_KEY_SUFFIX);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.trace("Ignoring invalid number of incremental scans of project " + projectId + ": " + value);
+            return 0;
+        }
+    }
+
+    /**
+     * @return whether the type of a scan of the project was recorded, so the number of incremental scans since its last full scan is known
+     */
+    public static boolean isScanTypeRecorded(String server, long projectId) {
+        return loadHistory().getProperty(getKey(server, projectId) + INCREMENTAL_SCANS_KEY_SUFFIX) != null;
+    }
+
+    /**
+     * Records the type of a created scan, also of an asynchronous scan whose end is not awaited
+     */
+    public static synchronized void recordScanType(String server, long projectId, boolean isIncrementalScan) {
+        updateHistory(server, history -> {
+            String incrementalScansKey = getKey(server, projectId) + INCREMENTAL_SCANS_KEY_SUFFIX;
+            history.setProperty(incrementalScansKey, String.valueOf(isIncrementalScan ? getNumOfConsecutiveIncrementalScans(server, projectId) + 1 : 0));
+        });
+    }
+
+    /**
+     * Records a finished scan, so its results can be used instead of scanning the same sources again
+     */
+    public static synchronized void recordSourceFingerprint(String server, long projectId, String sourceFingerprint, long scanId) {
+        if (sourceFingerprint == null) {
+            return;
+        }
+        updateHistory(server, history -> history.setProperty(getKey(server, projectId), sourceFingerprint + SEPARATOR + scanId));
+    }
+
+    private static void updateHistory(String server, Consumer<Properties> update) {
+        if (server == null) {
+            return;
+        }
+        File historyFile = getHistoryFile();
+        try {
+            //Other CLI processes record their scans in the same file, it is read and replaced while holding the lock
+            CacheFileLock.runLocked(new File(historyFile.getParentFile(), LOCK_FILE_NAME), () -> {
+                Properties history = loadHistory();
+                update.accept(history);
+                storeHistory(history, historyFile);
+            });
+        } catch (IOException e) {
+            log.warn("Cannot save scanned sources history: " + e.getMessage());
+        }
+    }
+
+    private static void storeHistory(Properties history, File historyFile) throws IOException {
+        File tempFile = File.createTempFile(HISTORY_FILE_NAME, ".tmp", historyFile.getParentFile());
+        try {
+            try (OutputStream out = new FileOutputStream(tempFile)) {
+                history.store(out, "Source fingerprint and scan id of the last scan of every project, and the number of incremental scans since its last full scan");
+            }
+            Files.move(tempFile.toPath(), historyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    /**
+     * @return the manifest of the sources of the last scan of the project, or null if it was not kept
+     */
+    public static SourceManifest loadManifest(String server, long projectId) {
+        File manifestFile = getManifestFile(server, projectId);
+        try {
+            return SourceManifest.load(manifestFile);
+        } catch (IOException e) {
+            log.warn("Cannot read manifest of the last scanned sources: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static synchronized void saveManifest(String server, long projectId, SourceManifest sourceManifest) {
+        if (server == null || sourceManifest == null) {
+            return;
+        }
+        File manifestFile = getManifestFile(server, projectId);
+        File manifestsFolder = manifestFile.getParentFile();
+        if (!manifestsFolder.exists() && !manifestsFolder.mkdirs()) {
+            log.warn("Cannot create folder " + manifestsFolder);
+            return;
+        }
+        try {
+            sourceManifest.save(manifestFile);
+        } catch (IOException e) {
+            log.warn("Cannot save manifest of the scanned sources: " + e.getMessage());
+        }
+    }
+
+    private static File getManifestFile(String server, long projectId) {
+        //The server URL is not a valid file name
+        String name = FileHashCache.toHex(FileHashCache.newSha1().digest(getKey(server, projectId).getBytes(StandardCharsets.UTF_8)));
+        return new File(new File(ConfigMgr.getCfgMgr().getCacheDirectory(), MANIFESTS_FOLDER_NAME), name + ".gz");
+    }
+
+    private static String getKey(String server, long projectId) {
+        return server + "|" + projectId;
+    }
+
+    private static Properties loadHistory() {
+        Properties history = new Properties();
+        File historyFile = getHistoryFile();
+        if (historyFile.isFile()) {
+            try (InputStream in = new FileInputStream(historyFile)) {
+                history.load(in);
+            } catch (IOException e) {
+                log.warn("Cannot read scanned sources history: " + e.getMessage());
+            }
+        }
+        return history;
+    }
+
+    private static File getHistoryFile() {
+        return new File(ConfigMgr.getCfgMgr().getCacheDirectory(), HISTORY_FILE_NAME);
+    }
+}
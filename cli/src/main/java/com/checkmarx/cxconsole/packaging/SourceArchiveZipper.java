@@ -0,0 +1,247 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.components.zipper.ZipListener;
+import com.checkmarx.components.zipper.Zipper;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Zips the files of a prebuilt source archive (.zip, .tar, .tar.gz or .tgz) without extracting it to disk.
+ * The entries of a zip archive are copied as they are, without being decompressed and compressed again.
+ * A tar archive is read in a single streaming pass, and each of its files is compressed straight into the zip.
+ * Both ways, the include/exclude patterns are applied to the entry paths, and only regular files with safe relative paths are kept.
+ */
+public class SourceArchiveZipper {
+
+    private static Logger log = Logger.getLogger(SourceArchiveZipper.class);
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**"};
+    private static final String[] ZIP_EXTENSIONS = {".zip"};
+    private static final String[] TAR_EXTENSIONS = {".tar"};
+    private static final String[] GZIPPED_TAR_EXTENSIONS = {".tar.gz", ".tgz"};
+    //Bigger tar entries are compressed while they are read, and are always deflated
+    private static final long MAX_IN_MEMORY_ENTRY_SIZE = 8L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    //Same compression ratio estimation as the Zipper uses for entries which were not compressed yet
+    private static final int ESTIMATED_COMPRESSION_RATIO = 4;
+    private static final Pattern WINDOWS_DRIVE = Pattern.compile("[A-Za-z]:");
+
+    private final CompressionPolicy compressionPolicy;
+    private int numOfZippedFiles;
+    private int numOfSkippedEntries;
+    private long sourceBytes;
+
+    public SourceArchiveZipper(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
+
+    public static boolean isSupportedArchive(File archive) {
+        return getArchiveFormat(archive) != null;
+    }
+
+    public void zip(File archive, String[] excludePatterns, String[] includePatterns, OutputStream outputStream, long maxZipSize,
+                    ZipListener zipListener) throws IOException {
+        long zipStartTime = System.currentTimeMillis();
+        numOfZippedFiles = 0;
+        numOfSkippedEntries = 0;
+        sourceBytes = 0;
+        ArchiveFormat archiveFormat = getArchiveFormat(archive);
+        if (archiveFormat == null) {
+            throw new IOException("Unsupported source archive [" + archive + "]. Supported formats: zip, tar, tar.gz, tgz");
+        }
+        PathMatcher pathMatcher = new PathMatcher(ExclusionMatcher.compile(includePatterns != null && includePatterns.length > 0 ? includePatterns : INCLUDE_ALL_PATTERNS,
+                excludePatterns));
+
+        CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        try (ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(countingOutputStream)) {
+            if (archiveFormat == ArchiveFormat.ZIP) {
+                copyZipEntries(archive, pathMatcher, zipOutputStream, countingOutputStream, maxZipSize, zipListener);
+            } else {
+                transcodeTarEntries(archive, archiveFormat == ArchiveFormat.GZIPPED_TAR, pathMatcher, zipOutputStream, countingOutputStream, maxZipSize, zipListener);
+            }
+            if (numOfZippedFiles == 0) {
+                log.info("No files to zip");
+                throw new Zipper.NoFilesToZip();
+            }
+        }
+        log.info("Zipping " + numOfZippedFiles + " files from " + archive.getName() + " took " + (System.currentTimeMillis() - zipStartTime) + " ms ("
+                + numOfSkippedEntries + " entries were excluded or skipped)");
+        log.info("Compressed size: " + FileUtils.byteCountToDisplaySize(countingOutputStream.getByteCount()) + " / " + FileUtils.byteCountToDisplaySize(sourceBytes));
+    }
+
+    private void copyZipEntries(File archive, PathMatcher pathMatcher, ZipArchiveOutputStream zipOutputStream, CountingOutputStream countingOutputStream,
+                                long maxZipSize, ZipListener zipListener) throws IOException {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            //The physical order reads the archive sequentially
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (entry.isDirectory() || entry.isUnixSymlink() || !isIncluded(entry.getName(), pathMatcher)) {
+                    numOfSkippedEntries++;
+                    continue;
+                }
+                checkZipSize(countingOutputStream, entry.getCompressedSize(), maxZipSize);
+                zipListener.updateProgress(entry.getName(), entry.getSize());
+                try (InputStream rawInputStream = zipFile.getRawInputStream(entry)) {
+                    zipOutputStream.addRawArchiveEntry(entry, rawInputStream);
+                }
+                numOfZippedFiles++;
+                sourceBytes += entry.getSize();
+            }
+        }
+    }
+
+    private void transcodeTarEntries(File archive, boolean isGzipped, PathMatcher pathMatcher, ZipArchiveOutputStream zipOutputStream,
+                                     CountingOutputStream countingOutputStream, long maxZipSize, ZipListener zipListener) throws IOException {
+        try (InputStream fileInputStream = new BufferedInputStream(new FileInputStream(archive), BUFFER_SIZE);
+             TarArchiveInputStream tarInputStream = new TarArchiveInputStream(isGzipped ? new GzipCompressorInputStream(fileInputStream, true) : fileInputStream)) {
+            for (TarArchiveEntry entry = tarInputStream.getNextTarEntry(); entry != null; entry = tarInputStream.getNextTarEntry()) {
+                String entryName = entry.getName().startsWith("./") ? entry.getName().substring(2) : entry.getName();
+                if (!isRegularFile(entry) || !isIncluded(entryName, pathMatcher)) {
+                    numOfSkippedEntries++;
+                    continue;
+                }
+                checkZipSize(countingOutputStream, entry.getSize() / ESTIMATED_COMPRESSION_RATIO, maxZipSize);
+                zipListener.updateProgress(entryName, entry.getSize());
+                ZipArchiveEntry zipEntry = new ZipArchiveEntry(entryName);
+                zipEntry.setTime(entry.getModTime().getTime());
+                zipEntry.setSize(entry.getSize());
+                if (entry.getSize() > MAX_IN_MEMORY_ENTRY_SIZE) {
+                    zipEntry.setMethod(ZipEntry.DEFLATED);
+                    zipOutputStream.setLevel(compressionPolicy.getLevel());
+                    zipOutputStream.putArchiveEntry(zipEntry);
+                    IOUtils.copy(tarInputStream, zipOutputStream, BUFFER_SIZE);
+                } else {
+                    byte[] content = IOUtils.toByteArray(tarInputStream, entry.getSize());
+                    if (compressionPolicy.isStored(entryName, content, content.length)) {
+                        //The entry is not written to a seekable output, so a stored entry must be described before its content
+                        CRC32 crc = new CRC32();
+                        crc.update(content, 0, content.length);
+                        zipEntry.setMethod(ZipEntry.STORED);
+                        zipEntry.setCompressedSize(content.length);
+                        zipEntry.setCrc(crc.getValue());
+                    } else {
+                        zipEntry.setMethod(ZipEntry.DEFLATED);
+                        zipOutputStream.setLevel(compressionPolicy.getLevel());
+                    }
+                    zipOutputStream.putArchiveEntry(zipEntry);
+                    zipOutputStream.write(content);
+                }
+                zipOutputStream.closeArchiveEntry();
+                numOfZippedFiles++;
+                sourceBytes += entry.getSize();
+            }
+        }
+    }
+
+    /**
+     * Links and special files also count as files of a tar archive, but they have no content of their own
+     */
+    private static boolean isRegularFile(TarArchiveEntry entry) {
+        return entry.isFile() && !entry.isSymbolicLink() && !entry.isLink() && !entry.isCharacterDevice() && !entry.isBlockDevice() && !entry.isFIFO();
+    }
+
+    private static void checkZipSize(CountingOutputStream countingOutputStream, long expectedSize, long maxZipSize) throws Zipper.MaxZipSizeReached {
+        if (countingOutputStream.getByteCount() + expectedSize > maxZipSize) {
+            log.info("Maximum zip file size reached. Zip size: " + countingOutputStream.getByteCount() + " bytes Limit: " + maxZipSize + " bytes");
+            throw new Zipper.MaxZipSizeReached(countingOutputStream.getByteCount(), maxZipSize);
+        }
+    }
+
+    /**
+     * Absolute paths and paths which climb out of the archive root are skipped, so they cannot be extracted outside the scanned sources
+     */
+    private boolean isIncluded(String entryName, PathMatcher pathMatcher) {
+        if (entryName.isEmpty() || entryName.startsWith("/") || entryName.contains("\\") || WINDOWS_DRIVE.matcher(entryName).lookingAt()) {
+            log.debug("Skipping archive entry with an unsafe path: " + entryName);
+            return false;
+        }
+        for (String segment : entryName.split("/")) {
+            if ("..".equals(segment)) {
+                log.debug("Skipping archive entry with an unsafe path: " + entryName);
+                return false;
+            }
+        }
+        return pathMatcher.isIncluded(entryName);
+    }
+
+    private static ArchiveFormat getArchiveFormat(File archive) {
+        String name = archive.getName().toLowerCase(Locale.ENGLISH);
+        if (endsWithAny(name, ZIP_EXTENSIONS)) {
+            return ArchiveFormat.ZIP;
+        }
+        if (endsWithAny(name, GZIPPED_TAR_EXTENSIONS)) {
+            return ArchiveFormat.GZIPPED_TAR;
+        }
+        if (endsWithAny(name, TAR_EXTENSIONS)) {
+            return ArchiveFormat.TAR;
+        }
+        return null;
+    }
+
+    private static boolean endsWithAny(String name, String[] extensions) {
+        for (String extension : extensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private enum ArchiveFormat {
+        ZIP, TAR, GZIPPED_TAR
+    }
+
+    /**
+     * Matches full entry paths, remembering the match state of every folder, since the entries of a folder are usually adjacent
+     */
+    private static class PathMatcher {
+        private final ExclusionMatcher matcher;
+        //A null state marks a folder which is excluded with everything below it
+        private final Map<String, ExclusionMatcher.MatchState> directoryStates = new HashMap<>();
+
+        PathMatcher(ExclusionMatcher matcher) {
+            this.matcher = matcher;
+            directoryStates.put("", matcher.getRootState());
+        }
+
+        boolean isIncluded(String path) {
+            int separator = path.lastIndexOf('/');
+            ExclusionMatcher.MatchState state = getDirectoryState(separator < 0 ? "" : path.substring(0, separator));
+            return state != null && matcher.isFileIncluded(state, path.substring(separator + 1));
+        }
+
+        private ExclusionMatcher.MatchState getDirectoryState(String directoryPath) {
+            if (directoryStates.containsKey(directoryPath)) {
+                return directoryStates.get(directoryPath);
+            }
+            int separator = directoryPath.lastIndexOf('/');
+            ExclusionMatcher.MatchState parentState = getDirectoryState(separator < 0 ? "" : directoryPath.substring(0, separator));
+            ExclusionMatcher.MatchState state = parentState == null ? null : matcher.enterDirectory(parentState, directoryPath.substring(separator + 1));
+            directoryStates.put(directoryPath, state);
+            return state;
+        }
+    }
+}
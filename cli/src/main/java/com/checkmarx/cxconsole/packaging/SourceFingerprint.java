@@ -0,0 +1,89 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.cxconsole.packaging.FileHashCache.FileHash;
+import com.checkmarx.cxconsole.packaging.ParallelFileWalker.SourceFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single hash of a set of source files, made of their paths and content hashes in sorted path order.
+ * Two sets of sources have the same fingerprint only if they hold the same files with the same content.
+ */
+public class SourceFingerprint {
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**"};
+
+    private final MessageDigest digest = FileHashCache.newSha1();
+    private int numOfFiles;
+
+    /**
+     * @param entryName path of the file relative to the sources root, files must be added in sorted path order
+     */
+    public void add(String entryName, FileHash fileHash) {
+        digest.update(entryName.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(fileHash.getSha1());
+        numOfFiles++;
+    }
+
+    public int getNumOfFiles() {
+        return numOfFiles;
+    }
+
+    public String getValue() {
+        return FileHashCache.toHex(digest.digest());
+    }
+
+    /**
+     * Adds a text which affects the scanned sources as well (e.g. exclusion patterns or settings)
+     */
+    public void addSetting(String setting) {
+        digest.update((byte) 1);
+        digest.update(setting.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Fingerprints the files of the folders which would be zipped by the {@link ParallelZipper} with the same patterns and ignore files.
+     * Only the files which changed since they were hashed last are read.
+     *
+     * @param fileHashCache null - every file is read
+     */
+    public static SourceFingerprint ofFolder(SourceRoots sourceRoots, String[] excludePatterns, String[] includePatterns, List<String> ignoreFileNames,
+                                             int numOfWalkerThreads, FileHashCache fileHashCache) throws IOException {
+        SourceFingerprint sourceFingerprint = new SourceFingerprint();
+        ExclusionMatcher matcher = ExclusionMatcher.compile(includePatterns != null && includePatterns.length > 0 ? includePatterns : INCLUDE_ALL_PATTERNS,
+                excludePatterns);
+        sourceFingerprint.addFolder("", sourceRoots, matcher, ignoreFileNames, numOfWalkerThreads, fileHashCache);
+        return sourceFingerprint;
+    }
+
+    /**
+     * Fingerprints all the files below the folders, reading only the files which changed since they were hashed last
+     */
+    public static SourceFingerprint ofFolders(String[] folders, int numOfWalkerThreads, FileHashCache fileHashCache) throws IOException {
+        SourceFingerprint sourceFingerprint = new SourceFingerprint();
+        ExclusionMatcher matcher = ExclusionMatcher.compile(INCLUDE_ALL_PATTERNS, new String[0]);
+        for (int i = 0; i < folders.length; i++) {
+            //Every folder gets its own prefix, so moving a file between the folders changes the fingerprint
+            sourceFingerprint.addFolder(i + "/", SourceRoots.of(new File(folders[i].trim())), matcher, Collections.emptyList(), numOfWalkerThreads, fileHashCache);
+        }
+        return sourceFingerprint;
+    }
+
+    private void addFolder(String prefix, SourceRoots sourceRoots, ExclusionMatcher matcher, List<String> ignoreFileNames, int numOfWalkerThreads,
+                           FileHashCache fileHashCache) throws IOException {
+        try (ParallelFileWalker fileWalker = new ParallelFileWalker(sourceRoots, matcher, ignoreFileNames, numOfWalkerThreads)) {
+            for (SourceFile sourceFile = fileWalker.next(); sourceFile != null; sourceFile = fileWalker.next()) {
+                add(prefix + sourceFile.getEntryName(), fileHashCache != null
+                        ? fileHashCache.getHash(sourceFile.getFile(), sourceFile.getSize(), sourceFile.getLastModified())
+                        : FileHashCache.hash(sourceFile.getFile()));
+            }
+        }
+    }
+}
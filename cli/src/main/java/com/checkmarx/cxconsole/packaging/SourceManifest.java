@@ -0,0 +1,196 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.cxconsole.packaging.ParallelFileWalker.SourceFile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The packed source files with a content hash of each, in sorted path order.
+ * The manifest of the sources of the last scan is compared with the current sources to find the files which changed since.
+ * The hashes of different kinds of manifests are not comparable (e.g. git blob ids and file content hashes).
+ */
+public class SourceManifest {
+
+    public static final String FOLDER_KIND = "folder";
+    public static final String GIT_KIND = "git";
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**"};
+    private static final String HEADER_PREFIX = "cx-source-manifest ";
+
+    private final String kind;
+    private final Map<String, String> hashes = new TreeMap<>();
+
+    public SourceManifest(String kind) {
+        this.kind = kind;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void put(String entryName, String hash) {
+        hashes.put(entryName, hash);
+    }
+
+    public int getNumOfFiles() {
+        return hashes.size();
+    }
+
+    /**
+     * @return the files which were added, modified or deleted since the previous manifest
+     */
+    public Changes diff(SourceManifest previous) {
+        Set<String> changedEntries = new TreeSet<>();
+        int numOfAddedFiles = 0;
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            String previousHash = previous.hashes.get(entry.getKey());
+            if (previousHash == null) {
+                numOfAddedFiles++;
+                changedEntries.add(entry.getKey());
+            } else if (!previousHash.equals(entry.getValue())) {
+                changedEntries.add(entry.getKey());
+            }
+        }
+        List<String> deletedEntries = new ArrayList<>();
+        for (String entryName : previous.hashes.keySet()) {
+            if (!hashes.containsKey(entryName)) {
+                deletedEntries.add(entryName);
+            }
+        }
+        return new Changes(changedEntries, numOfAddedFiles, deletedEntries, Math.max(getNumOfFiles(), previous.getNumOfFiles()));
+    }
+
+    /**
+     * Lists the files of the folders which would be zipped by the {@link ParallelZipper} with the same patterns and ignore files.
+     * Only the files which changed since they were hashed last are read.
+     *
+     * @param fileHashCache null - every file is read
+     */
+    public static SourceManifest ofFolder(SourceRoots sourceRoots, String[] excludePatterns, String[] includePatterns, List<String> ignoreFileNames,
+                                          int numOfWalkerThreads, FileHashCache fileHashCache) throws IOException {
+        SourceManifest sourceManifest = new SourceManifest(FOLDER_KIND);
+        ExclusionMatcher matcher = ExclusionMatcher.compile(includePatterns != null && includePatterns.length > 0 ? includePatterns : INCLUDE_ALL_PATTERNS,
+                excludePatterns);
+        try (ParallelFileWalker fileWalker = new ParallelFileWalker(sourceRoots, matcher, ignoreFileNames, numOfWalkerThreads)) {
+            for (SourceFile sourceFile = fileWalker.next(); sourceFile != null; sourceFile = fileWalker.next()) {
+                FileHashCache.FileHash fileHash = fileHashCache != null
+                        ? fileHashCache.getHash(sourceFile.getFile(), sourceFile.getSize(), sourceFile.getLastModified())
+                        : FileHashCache.hash(sourceFile.getFile());
+                sourceManifest.put(sourceFile.getEntryName(), fileHash.getSha1Hex());
+            }
+        }
+        return sourceManifest;
+    }
+
+    /**
+     * @return the manifest kept in the file, or null if it does not exist
+     */
+    public static SourceManifest load(File manifestFile) throws IOException {
+        if (!manifestFile.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(manifestFile)), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(HEADER_PREFIX)) {
+                throw new IOException("Invalid source manifest " + manifestFile);
+            }
+            SourceManifest sourceManifest = new SourceManifest(header.substring(HEADER_PREFIX.length()));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                int separator = line.indexOf(' ');
+                if (separator < 0) {
+                    throw new IOException("Invalid source manifest " + manifestFile);
+                }
+                sourceManifest.put(line.substring(separator + 1), line.substring(0, separator));
+            }
+            return sourceManifest;
+        }
+    }
+
+    /**
+     * Replaces the file atomically, so a concurrent reader sees either the previous manifest or this one
+     */
+    public void save(File manifestFile) throws IOException {
+        File tempFile = File.createTempFile(manifestFile.getName(), ".tmp", manifestFile.getParentFile());
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(tempFile)), StandardCharsets.UTF_8))) {
+                writer.write(HEADER_PREFIX + kind + "\n");
+                for (Map.Entry<String, String> entry : hashes.entrySet()) {
+                    //A path with a line break could not be read back, such a file is reported as changed every time
+                    if (entry.getKey().indexOf('\n') < 0) {
+                        writer.write(entry.getValue() + " " + entry.getKey() + "\n");
+                    }
+                }
+            }
+            Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    /**
+     * Files which changed between two manifests
+     */
+    public static class Changes {
+        private final Set<String> changedEntries;
+        private final int numOfAddedFiles;
+        private final List<String> deletedEntries;
+        private final int numOfFiles;
+
+        Changes(Set<String> changedEntries, int numOfAddedFiles, List<String> deletedEntries, int numOfFiles) {
+            this.changedEntries = Collections.unmodifiableSet(changedEntries);
+            this.numOfAddedFiles = numOfAddedFiles;
+            this.deletedEntries = Collections.unmodifiableList(deletedEntries);
+            this.numOfFiles = numOfFiles;
+        }
+
+        /**
+         * @return true if the file was added or modified
+         */
+        public boolean isChanged(String entryName) {
+            return changedEntries.contains(entryName);
+        }
+
+        public int getNumOfAddedFiles() {
+            return numOfAddedFiles;
+        }
+
+        public int getNumOfModifiedFiles() {
+            return changedEntries.size() - numOfAddedFiles;
+        }
+
+        public List<String> getDeletedEntries() {
+            return deletedEntries;
+        }
+
+        public boolean isEmpty() {
+            return changedEntries.isEmpty() && deletedEntries.isEmpty();
+        }
+
+        /**
+         * @return the percentage of added, modified and deleted files, out of the files of the larger manifest
+         */
+        public double getChangedPercent() {
+            return numOfFiles == 0 ? 0 : (changedEntries.size() + deletedEntries.size()) * 100.0 / numOfFiles;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.checkmarx.cxconsole.packaging;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The local folders whose files are packed together into one archive.
+ * The files of a single folder are packed relative to it. When there are several folders (e.g. sibling checkouts), the files of every
+ * folder are packed below a prefix named after the folder, so their paths cannot collide. Folders with the same name are told apart
+ * by a numeric suffix (e.g. "core", "core-2").
+ * Exclude patterns and ignore files apply to the paths in the archive, i.e. including the prefix.
+ */
+public class SourceRoots {
+
+    /**
+     * Separates the folders of a location path
+     */
+    public static final String LOCATION_SEPARATOR = ";";
+
+    //Entry name prefix (without the trailing '/', empty for a single folder) -> folder
+    private final Map<String, File> roots = new LinkedHashMap<>();
+
+    private SourceRoots() {
+    }
+
+    public static SourceRoots of(File baseDir) {
+        SourceRoots sourceRoots = new SourceRoots();
+        sourceRoots.roots.put("", baseDir);
+        return sourceRoots;
+    }
+
+    /**
+     * @param location a folder, or several folders separated by {@link #LOCATION_SEPARATOR}
+     */
+    public static SourceRoots parse(String location) {
+        List<File> folders = new ArrayList<>();
+        for (String folder : location.split(LOCATION_SEPARATOR)) {
+            if (!folder.trim().isEmpty()) {
+                folders.add(new File(folder.trim()));
+            }
+        }
+        if (folders.size() <= 1) {
+            return of(folders.isEmpty() ? new File(location) : folders.get(0));
+        }
+
+        SourceRoots sourceRoots = new SourceRoots();
+        Set<String> usedPrefixes = new HashSet<>();
+        for (File folder : folders) {
+            String name = getFolderName(folder);
+            String prefix = name;
+            for (int suffix = 2; !usedPrefixes.add(prefix); suffix++) {
+                prefix = name + "-" + suffix;
+            }
+            sourceRoots.roots.put(prefix, folder);
+        }
+        return sourceRoots;
+    }
+
+    /**
+     * "." or "src/.." have no name of their own, so the name of the folder they point to is used
+     */
+    private static String getFolderName(File folder) {
+        String name = folder.getAbsoluteFile().toPath().normalize().toFile().getName();
+        return name.isEmpty() ? "root" : name;
+    }
+
+    public boolean isMultiple() {
+        return roots.size() > 1;
+    }
+
+    /**
+     * @return entry name prefix (without the trailing '/', empty for a single folder) -> folder, in the order of the location path
+     */
+    public Map<String, File> getRoots() {
+        return Collections.unmodifiableMap(roots);
+    }
+
+    @Override
+    public String toString() {
+        if (!isMultiple()) {
+            return roots.values().iterator().next().getPath();
+        }
+        StringBuilder description = new StringBuilder();
+        for (Map.Entry<String, File> root : roots.entrySet()) {
+            description.append(description.length() == 0 ? "" : ", ").append(root.getValue().getPath()).append(" as ").append(root.getKey()).append('/');
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.cxconsole.utils.ConfigMgr;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Upload throughput to every server, as measured by previous uploads of zipped sources.
+ * Kept in the cache folder, so the compression of the next scan can be chosen before anything is uploaded.
+ * The history is updated under a lock, so concurrent CLI processes do not lose each other's measurements.
+ */
+public class UploadThroughputHistory {
+
+    private static Logger log = Logger.getLogger(UploadThroughputHistory.class);
+
+    private static final String HISTORY_FILE_NAME = "upload_throughput.properties";
+    private static final String LOCK_FILE_NAME = "upload_throughput.lock";
+    //Shorter uploads are dominated by the request latency rather than by the link throughput
+    private static final long MIN_MEASURED_BYTES = 1024L * 1024;
+    //Weight of the latest measurement, older ones are kept to smooth out noisy links
+    private static final double LATEST_MEASUREMENT_WEIGHT = 0.5;
+
+    private UploadThroughputHistory() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @return the upload throughput in bytes per second, or null if it was not measured yet
+     */
+    public static Double getBytesPerSecond(String server) {
+        return getBytesPerSecond(loadHistory(), server);
+    }
+
+    private static Double getBytesPerSecond(Properties history, String server) {
+        String value = history.getProperty(server);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            log.trace("Ignoring invalid upload throughput of " + server + ": " + value);
+            return null;
+        }
+    }
+
+    public static synchronized void record(String server, long uploadedBytes, long uploadMillis) {
+        if (server == null || uploadedBytes < MIN_MEASURED_BYTES || uploadMillis <= 0) {
+            return;
+        }
+        double measuredBytesPerSecond = uploadedBytes * 1000.0 / uploadMillis;
+        log.info("Upload throughput: " + FileUtils.byteCountToDisplaySize((long) measuredBytesPerSecond) + "/s");
+
+        File historyFile = getHistoryFile();
+        try {
+            CacheFileLock.runLocked(new File(historyFile.getParentFile(), LOCK_FILE_NAME), () -> {
+                //Read under the lock, so a measurement saved by another process meanwhile is merged rather than overwritten
+                Properties history = loadHistory();
+                double bytesPerSecond = measuredBytesPerSecond;
+                Double previousBytesPerSecond = getBytesPerSecond(history, server);
+                if (previousBytesPerSecond != null) {
+                    bytesPerSecond = LATEST_MEASUREMENT_WEIGHT * bytesPerSecond + (1 - LATEST_MEASUREMENT_WEIGHT) * previousBytesPerSecond;
+                }
+                history.setProperty(server, String.valueOf((long) bytesPerSecond));
+
+                File tempFile = File.createTempFile(HISTORY_FILE_NAME, ".tmp", historyFile.getParentFile());
+                try (OutputStream out = new FileOutputStream(tempFile)) {
+                    history.store(out, "Measured upload throughput (bytes per second)");
+                }
+                Files.move(tempFile.toPath(), historyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            });
+        } catch (IOException e) {
+            log.warn("Cannot save upload throughput: " + e.getMessage());
+        }
+    }
+
+    private static Properties loadHistory() {
+        Properties history = new Properties();
+        File historyFile = getHistoryFile();
+        if (historyFile.isFile()) {
+            try (InputStream in = new FileInputStream(historyFile)) {
+                history.load(in);
+            } catch (IOException e) {
+                log.warn("Cannot read upload throughput history: " + e.getMessage());
+            }
+        }
+        return history;
+    }
+
+    private static File getHistoryFile() {
+        return new File(ConfigMgr.getCfgMgr().getCacheDirectory(), HISTORY_FILE_NAME);
+    }
+}
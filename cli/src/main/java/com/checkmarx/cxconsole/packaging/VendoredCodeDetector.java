@@ -0,0 +1,244 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.cxconsole.packaging.ParallelFileWalker.SourceFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Finds copies of third party code in a source folder by the content hashes of its files, which are looked up in a signature database.
+ * A file whose hash is in the database is vendored. A folder is vendored if most of its files are, in which case the whole folder is
+ * excluded, including files which were modified or are missing from the database (e.g. a patched configuration file of the library).
+ * <p>
+ * The database is a text file with a SHA-1 hash and a name (e.g. library and file) on every line, and # comments. The output of
+ * sha1sum over the files of a library has this format.
+ */
+public class VendoredCodeDetector {
+
+    private static Logger log = Logger.getLogger(VendoredCodeDetector.class);
+
+    public static final String BUNDLED_SIGNATURES_RESOURCE = "/vendored_signatures.txt";
+
+    //A folder is vendored if at least this percentage of its files are
+    private static final int MIN_VENDORED_FILES_PERCENT = 80;
+    //Fewer matching files are excluded one by one, so a few copied files do not exclude the folder of the project code around them
+    private static final int MIN_VENDORED_FILES_IN_FOLDER = 3;
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**"};
+
+    //SHA-1 hex of a file -> name of the signature
+    private final Map<String, String> signatures = new HashMap<>();
+
+    /**
+     * Loads the signatures which ship with the CLI, followed by the signature files of the user
+     */
+    public static VendoredCodeDetector load(List<File> signatureFiles) throws IOException {
+        VendoredCodeDetector vendoredCodeDetector = new VendoredCodeDetector();
+        try (InputStream bundledSignatures = VendoredCodeDetector.class.getResourceAsStream(BUNDLED_SIGNATURES_RESOURCE)) {
+            if (bundledSignatures != null) {
+                vendoredCodeDetector.addSignatures(bundledSignatures, BUNDLED_SIGNATURES_RESOURCE);
+            }
+        }
+        for (File signatureFile : signatureFiles) {
+            try (InputStream userSignatures = new FileInputStream(signatureFile)) {
+                vendoredCodeDetector.addSignatures(userSignatures, signatureFile.getPath());
+            }
+        }
+        return vendoredCodeDetector;
+    }
+
+    private void addSignatures(InputStream inputStream, String source) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            String signature = line.trim();
+            if (signature.isEmpty() || signature.startsWith("#")) {
+                continue;
+            }
+            String[] hashAndName = signature.split("\\s+", 2);
+            if (hashAndName[0].length() != 40 || !hashAndName[0].matches("[0-9a-fA-F]+")) {
+                log.warn("Ignoring invalid vendored code signature at " + source + ":" + lineNumber);
+                continue;
+            }
+            //sha1sum marks files which were read in binary mode with a leading asterisk
+            String name = hashAndName.length > 1 ? hashAndName[1].replaceFirst("^\\*", "") : "";
+            signatures.put(hashAndName[0].toLowerCase(Locale.ENGLISH), name);
+        }
+    }
+
+    public int getNumOfSignatures() {
+        return signatures.size();
+    }
+
+    /**
+     * @return a hash of the signatures, which changes whenever a signature is added or removed
+     */
+    public String getSignaturesId() {
+        MessageDigest digest = FileHashCache.newSha1();
+        for (String hash : new TreeSet<>(signatures.keySet())) {
+            digest.update(hash.getBytes(StandardCharsets.US_ASCII));
+        }
+        return FileHashCache.toHex(digest.digest());
+    }
+
+    /**
+     * Walks the files which would be zipped with the same patterns and ignore files. Only the files which changed since they were
+     * hashed last are read.
+     *
+     * @param fileHashCache null - every file is read
+     */
+    public Detection detect(SourceRoots sourceRoots, String[] excludePatterns, String[] includePatterns, List<String> ignoreFileNames, int numOfWalkerThreads,
+                            FileHashCache fileHashCache) throws IOException {
+        ExclusionMatcher matcher = ExclusionMatcher.compile(includePatterns != null && includePatterns.length > 0 ? includePatterns : INCLUDE_ALL_PATTERNS,
+                excludePatterns);
+        //Number of files and of vendored files below every folder, sorted by path so a parent folder comes before its sub folders
+        Map<String, int[]> folderCounts = new TreeMap<>();
+        Map<String, String> vendoredFiles = new TreeMap<>();
+        Map<String, Long> fileSizes = new HashMap<>();
+        try (ParallelFileWalker fileWalker = new ParallelFileWalker(sourceRoots, matcher, ignoreFileNames, numOfWalkerThreads)) {
+            for (SourceFile sourceFile = fileWalker.next(); sourceFile != null; sourceFile = fileWalker.next()) {
+                FileHashCache.FileHash fileHash = fileHashCache != null
+                        ? fileHashCache.getHash(sourceFile.getFile(), sourceFile.getSize(), sourceFile.getLastModified())
+                        : FileHashCache.hash(sourceFile.getFile());
+                String signature = signatures.get(fileHash.getSha1Hex());
+                String entryName = sourceFile.getEntryName();
+                if (signature != null) {
+                    vendoredFiles.put(entryName, signature);
+                }
+                fileSizes.put(entryName, sourceFile.getSize());
+                for (int separator = entryName.indexOf('/'); separator >= 0; separator = entryName.indexOf('/', separator + 1)) {
+                    int[] counts = folderCounts.computeIfAbsent(entryName.substring(0, separator), folder -> new int[2]);
+                    counts[0]++;
+                    if (signature != null) {
+                        counts[1]++;
+                    }
+                }
+            }
+        }
+
+        List<String> vendoredFolders = new ArrayList<>();
+        for (Map.Entry<String, int[]> folderCount : folderCounts.entrySet()) {
+            int[] counts = folderCount.getValue();
+            if (counts[1] >= MIN_VENDORED_FILES_IN_FOLDER && counts[1] * 100L >= counts[0] * (long) MIN_VENDORED_FILES_PERCENT
+                    && !isBelowAny(folderCount.getKey(), vendoredFolders)) {
+                vendoredFolders.add(folderCount.getKey());
+            }
+        }
+
+        Detection detection = new Detection();
+        for (Map.Entry<String, Long> fileSize : fileSizes.entrySet()) {
+            String entryName = fileSize.getKey();
+            if (isBelowAny(entryName, vendoredFolders)) {
+                detection.numOfFiles++;
+                detection.bytes += fileSize.getValue();
+            } else if (vendoredFiles.containsKey(entryName) && !hasWildcard(entryName)) {
+                detection.vendoredFiles.put(entryName, vendoredFiles.get(entryName));
+                detection.numOfFiles++;
+                detection.bytes += fileSize.getValue();
+            }
+        }
+        for (String vendoredFolder : vendoredFolders) {
+            if (!hasWildcard(vendoredFolder)) {
+                detection.vendoredFolders.put(vendoredFolder, folderCounts.get(vendoredFolder));
+            }
+        }
+        return detection;
+    }
+
+    private static boolean isBelowAny(String path, List<String> folders) {
+        for (String folder : folders) {
+            if (path.startsWith(folder + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Paths are excluded by patterns, which cannot express a literal wildcard character
+     */
+    private static boolean hasWildcard(String path) {
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0;
+    }
+
+    /**
+     * Vendored folders and files found in a source folder
+     */
+    public static class Detection {
+        //Vendored folder -> number of its files and of its files which match a signature
+        private final Map<String, int[]> vendoredFolders = new TreeMap<>();
+        //Vendored files outside the vendored folders -> signature name
+        private final Map<String, String> vendoredFiles = new TreeMap<>();
+        private int numOfFiles;
+        private long bytes;
+
+        public Set<String> getVendoredFolders() {
+            return vendoredFolders.keySet();
+        }
+
+        public Map<String, String> getVendoredFiles() {
+            return vendoredFiles;
+        }
+
+        /**
+         * @return the number of files in the vendored folders and of the other vendored files
+         */
+        public int getNumOfFiles() {
+            return numOfFiles;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public boolean isEmpty() {
+            return vendoredFolders.isEmpty() && vendoredFiles.isEmpty();
+        }
+
+        /**
+         * @return exclude patterns of the vendored folders and files, relative to the walked folder
+         */
+        public String[] getExcludePatterns() {
+            List<String> excludePatterns = new ArrayList<>();
+            for (String vendoredFolder : vendoredFolders.keySet()) {
+                excludePatterns.add(vendoredFolder + "/**");
+            }
+            excludePatterns.addAll(vendoredFiles.keySet());
+            return excludePatterns.toArray(new String[0]);
+        }
+
+        /**
+         * Logs the excluded folders and files, and how many files and bytes were left out
+         */
+        public void logReport() {
+            if (isEmpty()) {
+                log.info("Vendored code: no vendored folders or files were found");
+                return;
+            }
+            for (Map.Entry<String, int[]> vendoredFolder : vendoredFolders.entrySet()) {
+                log.info("Vendored code: excluded folder " + vendoredFolder.getKey() + " (" + vendoredFolder.getValue()[1] + " of "
+                        + vendoredFolder.getValue()[0] + " files match signatures)");
+            }
+            for (Map.Entry<String, String> vendoredFile : vendoredFiles.entrySet()) {
+                log.info("Vendored code: excluded file " + vendoredFile.getKey() + (vendoredFile.getValue().isEmpty() ? "" : " (" + vendoredFile.getValue() + ")"));
+            }
+            log.info("Vendored code excluded " + numOfFiles + " files, " + FileUtils.byteCountToDisplaySize(bytes) + " saved");
+        }
+    }
+}
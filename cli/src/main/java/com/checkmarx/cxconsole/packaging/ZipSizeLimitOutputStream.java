@@ -0,0 +1,34 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.components.zipper.Zipper;
+import org.apache.commons.io.output.ProxyOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the zipped bytes while they are written, and aborts zipping as soon as the size limit is exceeded,
+ * instead of building the whole archive before its size is validated.
+ */
+public class ZipSizeLimitOutputStream extends ProxyOutputStream {
+
+    private final long maxZipSize;
+    private long byteCount = 0;
+
+    public ZipSizeLimitOutputStream(OutputStream out, long maxZipSize) {
+        super(out);
+        this.maxZipSize = maxZipSize;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    protected void beforeWrite(int n) throws IOException {
+        if (byteCount + n > maxZipSize) {
+            throw new Zipper.MaxZipSizeReached(byteCount + n, maxZipSize);
+        }
+        byteCount += n;
+    }
+}
@@ -21,6 +21,7 @@ public class CLISASTParameters extends AbstractCLIScanParameters {
 
     private static final String DEFAULT_PRESET_NAME = "Checkmarx Default";
     private static final String DEFAULT_ENGINE_CONFIGURATION_NAME = "Default Configuration";
+    private static final String AUTO_INCREMENTAL_MODE = "auto";
 
     /**
      * Definition of command line parameters to be used by Apache CLI parser
@@ -33,7 +34,11 @@ public class CLISASTParameters extends AbstractCLIScanParameters {
     private PresetDTO presetDTO;
     private EngineConfigurationDTO configuration;
     private boolean isIncrementalScan = false;
+    private boolean isAutoIncrementalScan = false;
     private boolean forceScan = true;
+    private boolean hasForceScanParam = false;
+    private boolean isDryRun = false;
+    private boolean isMonorepo = false;
 
     //Mapping a Map<reportType, reportPath> / (e.g. PDF) to its file path
     private Map<ReportType, String> reports = new HashMap<>();
@@ -74,7 +79,7 @@ public class CLISASTParameters extends AbstractCLIScanParameters {
     private static final Option PARAM_LOCATION_PORT = Option.builder("locationport").argName("url").hasArg(true)
             .desc("Source control system port. Default 8080/80/1666 (TFS/SVN/Perforce). Optional.").build();
     private static final Option PARAM_LOCATION_BRANCH = Option.builder("locationbranch").argName("branch").hasArg(true)
-            .desc("Sources GIT branch. Required if -LocationType is GIT. Optional.").build();
+            .desc("Sources GIT branch. Required if -LocationType is GIT. For -LocationType gitlocal, the branch, tag or commit to scan (default HEAD). Optional.").build();
     private static final Option PARAM_LOCATION_PRIVATE_KEY = Option.builder("locationprivatekey").argName("file").hasArg(true)
             .desc("GIT/SVN private key location. Required  if -LocationType is GIT/SVN in SSH mode.").build();
     private static final Option PARAM_PRESET = Option.builder("preset").argName("preset").hasArg(true)
@@ -82,7 +87,16 @@ public class CLISASTParameters extends AbstractCLIScanParameters {
     private static final Option PARAM_CONFIGURATION = Option.builder("configuration").argName("configuration").hasArg(true)
             .desc("If configuration is not set, \"Default Configuration\" will be used for a new project. Possible values: [ \"Default Configuration\" | \"Japanese (Shift-JIS)\" ] Optional.").build();
     private static final Option PARAM_INCREMENTAL = Option.builder("incremental").hasArg(false).desc("Run incremental scan instead of full scan. Optional.").build();
-    private static final Option PARAM_FORCE_SCAN = Option.builder("forcescan").hasArg(false).desc("Force scan on source code, which has not been changed since the last scan of the same project. Optional.").build();
+    private static final Option PARAM_INCREMENTAL_MODE = Option.builder("incrementalmode").argName("mode").hasArg(true)
+            .desc("With \"auto\", incremental or full scan is chosen by the fraction of files which changed since the last scan, "
+                    + "and a full scan runs after a configured number of consecutive incremental scans. Possible values: [ \"auto\" ] Optional.").build();
+    private static final Option PARAM_FORCE_SCAN = Option.builder("forcescan").hasArg(false).desc("Force scan on source code, which has not been changed since the last scan of the same project. Without it, unchanged local sources are not uploaded and the results of the last scan are used when scan.skip.unchanged.sources is enabled. Optional.").build();
+    private static final Option PARAM_DRY_RUN = Option.builder("dryrun").hasArg(false)
+            .desc("Estimate the packed sources (number of files, size and largest files and folders) without uploading or scanning them. Requires -LocationType folder. Optional.").build();
+    private static final Option PARAM_MONOREPO = Option.builder("monorepo").hasArg(false)
+            .desc("Split the location folder into its modules (folders with pom.xml, build.gradle, package.json, go.mod or .csproj files) and scan every module "
+                    + "as a project of its own, named <project name>-<module folder>, in parallel. Files outside the modules are scanned in the project itself. "
+                    + "Requires -LocationType folder. Optional.").build();
     private static final Option PARAM_WORKSPACE = Option.builder("workspacemode").hasArg(true).desc("Use location path to specify Perforce workspace name. Optional.").build();
     private static final Option PARAM_ENABLE_OSA = Option.builder("enableosa").hasArg(false).desc("Enable Open Source Analysis (OSA). It requires the -LocationType to be folder/shared.  Optional.)").build();
 
@@ -114,8 +128,11 @@ public class CLISASTParameters extends AbstractCLIScanParameters {
                 new EngineConfigurationDTO(configurationName);
 
         checkPolicyViolations = parsedCommandLineArguments.hasOption(PARAM_RUN_POLICY_VIOLATIONS.getOpt());
-        isIncrementalScan = parsedCommandLineArguments.hasOption(PARAM_INCREMENTAL.getOpt());
+        initIncrementalScanParam(parsedCommandLineArguments);
         forceScan = !parsedCommandLineArguments.hasOption(PARAM_FORCE_SCAN.getOpt());
+        hasForceScanParam = parsedCommandLineArguments.hasOption(PARAM_FORCE_SCAN.getOpt());
+        isDryRun = parsedCommandLineArguments.hasOption(PARAM_DRY_RUN.getOpt());
+        isMonorepo = parsedCommandLineArguments.hasOption(PARAM_MONOREPO.getOpt());
         isOsaEnabled = parsedCommandLineArguments.hasOption(PARAM_ENABLE_OSA.getOpt());
         this.locationType = locationType;
 
@@ -156,6 +173,18 @@ public class CLISASTParameters extends AbstractCLIScanParameters {
         }
     }
 
+    private void initIncrementalScanParam(CommandLine parsedCommandLineArguments) throws CLIParameterParsingException {
+        isIncrementalScan = parsedCommandLineArguments.hasOption(PARAM_INCREMENTAL.getOpt());
+        String incrementalMode = parsedCommandLineArguments.getOptionValue(PARAM_INCREMENTAL_MODE.getOpt());
+        if (incrementalMode != null) {
+            if (!AUTO_INCREMENTAL_MODE.equalsIgnoreCase(incrementalMode.trim())) {
+                throw new CLIParameterParsingException("Invalid incremental scan mode [" + incrementalMode + "]. Possible value: " + AUTO_INCREMENTAL_MODE);
+            }
+            isIncrementalScan = true;
+            isAutoIncrementalScan = true;
+        }
+    }
+
     private void initLocationPort(CommandLine parsedCommandLineArguments) {
         if (parsedCommandLineArguments.hasOption(PARAM_LOCATION_PORT.getOpt())) {
             String portStr = parsedCommandLineArguments.getOptionValue(PARAM_LOCATION_PORT.getOpt());
@@ -230,10 +259,29 @@ public class CLISASTParameters extends AbstractCLIScanParameters {
         return isIncrementalScan;
     }
 
+    /**
+     * @return true if the scan type is chosen by the changes since the last scan, in which case {@link #isIncrementalScan()} is true as well
+     */
+    public boolean isAutoIncrementalScan() {
+        return isAutoIncrementalScan;
+    }
+
     public boolean isForceScan() {
         return forceScan;
     }
 
+    public boolean isHasForceScanParam() {
+        return hasForceScanParam;
+    }
+
+    public boolean isDryRun() {
+        return isDryRun;
+    }
+
+    public boolean isMonorepo() {
+        return isMonorepo;
+    }
+
     public boolean isOsaEnabled() {
         return isOsaEnabled;
     }
@@ -318,7 +366,10 @@ public class CLISASTParameters extends AbstractCLIScanParameters {
         commandLineOptions.addOption(PARAM_PRESET);
         commandLineOptions.addOption(PARAM_CONFIGURATION);
         commandLineOptions.addOption(PARAM_INCREMENTAL);
+        commandLineOptions.addOption(PARAM_INCREMENTAL_MODE);
         commandLineOptions.addOption(PARAM_FORCE_SCAN);
+        commandLineOptions.addOption(PARAM_DRY_RUN);
+        commandLineOptions.addOption(PARAM_MONOREPO);
         commandLineOptions.addOption(PARAM_WORKSPACE);
         commandLineOptions.addOption(PARAM_ENABLE_OSA);
         commandLineOptions.addOption(PARAM_SAST_LOW_THRESHOLD);
@@ -25,12 +25,16 @@ public class CLISharedParameters extends AbstractCLIScanParameters {
     private boolean isSsoLoginUsed = false;
     private boolean isVisibleOthers = true;
     private boolean trustAllCertificates = true;
+    private boolean isNoCache = false;
 
     private LocationType locationType;
     private String locationPath;
     private String spFolderName;
 
     private static final Option PARAM_TRUSTED_CERT = Option.builder("trustedcertificates").desc("Only accept trusted certificates").build();
+    private static final Option PARAM_NO_CACHE = Option.builder("nocache")
+            .desc("Server metadata (teams, presets, engine configurations, projects and the server protocol) is requested from the server rather than from the local cache. Optional.")
+            .build();
     private static final Option PARAM_VERBOSE = Option.builder("v").desc("Turns on verbose mode. All messages and events will be sent to the console/log file.  Optional.")
             .longOpt("verbose").hasArg(false).build();
     private static final Option PARAM_LOG_FILE_PATH = Option.builder("log").hasArg().argName("file").desc("Log file path. Optional.").build();
@@ -40,9 +44,9 @@ public class CLISharedParameters extends AbstractCLIScanParameters {
             .hasArg().build();
     private static final Option PARAM_CONFIG_FILE_PATH = Option.builder("config").hasArg().argName("file").desc("Config file path. Optional.").build();
     private static final Option PARAM_LOCATION_TYPE = Option.builder("locationtype").argName(LocationType.stringOfValues()).hasArg()
-            .desc("Source location type: folder, shared, SVN, TFS, GIT, Perforce").build();
+            .desc("Source location type: folder, shared, SVN, TFS, GIT, gitlocal, archive, Perforce").build();
     private static final Option PARAM_LOCATION_PATH = Option.builder("locationpath").argName("path").hasArg()
-            .desc("Local or shared path to sources or source repository branch. Required if -LocationType is folder/shared.").build();
+            .desc("Local or shared path to sources or source repository branch. Required if -LocationType is folder/shared. For folder, several local folders separated by ';' are packed into one archive, every folder below its own name. For gitlocal, a local git repository (bare or not) whose committed sources are scanned without a checkout. For archive, a .zip, .tar, .tar.gz or .tgz file of the sources.").build();
 
 
     CLISharedParameters() throws CLIParameterParsingException {
@@ -56,6 +60,7 @@ public class CLISharedParameters extends AbstractCLIScanParameters {
         isSsoLoginUsed = parsedCommandLineArguments.hasOption(PARAM_USE_SSO.getOpt());
         isVisibleOthers = !parsedCommandLineArguments.hasOption(PARAM_PRIVATE.getOpt());
         trustAllCertificates = !parsedCommandLineArguments.hasOption(PARAM_TRUSTED_CERT.getOpt());
+        isNoCache = parsedCommandLineArguments.hasOption(PARAM_NO_CACHE.getOpt());
 
         if (parsedCommandLineArguments.hasOption(PARAM_LOCATION_TYPE.getOpt())) {
             locationType = LocationType.byName(parsedCommandLineArguments.getOptionValue(PARAM_LOCATION_TYPE.getOpt()));
@@ -63,14 +68,26 @@ public class CLISharedParameters extends AbstractCLIScanParameters {
 
         locationPath = parsedCommandLineArguments.getOptionValue(PARAM_LOCATION_PATH.getOpt());
         if (locationType == LocationType.FOLDER && locationPath != null) {
-            File resultFile = new File(locationPath);
-            if (!resultFile.isAbsolute()) {
-                String path = System.getProperty("user.dir");
-                locationPath = path + File.separator + locationPath;
+            //Several folders are separated by ';', every one of them may be relative
+            String[] folders = locationPath.split(";");
+            for (int i = 0; i < folders.length; i++) {
+                if (folders.length == 1 || !folders[i].trim().isEmpty()) {
+                    folders[i] = toAbsolutePath(folders[i].trim());
+                }
             }
+            locationPath = String.join(";", folders);
+        } else if ((locationType == LocationType.GITLOCAL || locationType == LocationType.ARCHIVE) && locationPath != null) {
+            locationPath = toAbsolutePath(locationPath);
         }
     }
 
+    private static String toAbsolutePath(String path) {
+        if (new File(path).isAbsolute()) {
+            return path;
+        }
+        return System.getProperty("user.dir") + File.separator + path;
+    }
+
     public String getLogFilePath() {
         return logFilePath;
     }
@@ -139,6 +156,7 @@ public class CLISharedParameters extends AbstractCLIScanParameters {
         commandLineOptions.addOption(PARAM_SCAN_COMMENT);
         commandLineOptions.addOption(PARAM_USE_SSO);
         commandLineOptions.addOption(PARAM_TRUSTED_CERT);
+        commandLineOptions.addOption(PARAM_NO_CACHE);
     }
 
     OptionGroup getSharedParamsOptionGroup() {
@@ -159,4 +177,8 @@ public class CLISharedParameters extends AbstractCLIScanParameters {
         return trustAllCertificates;
     }
 
+    public boolean isNoCache() {
+        return isNoCache;
+    }
+
 }
\ No newline at end of file
@@ -35,11 +35,42 @@ public class ConfigMgr {
     public static final String KEY_OSA_EXTRACTABLE_INCLUDE_FILES = "scan.osa.extractable.include.files";
     public static final String KEY_OSA_SCAN_DEPTH = "scan.osa.extractable.depth";
     public static final String KEY_MAX_ZIP_SIZE = "scan.zip.max_size";
+    public static final String KEY_ZIP_UPLOAD_MODE = "scan.zip.upload.mode";
+    public static final String KEY_UPLOAD_PROGRESS_INTERVAL = "scan.upload.progress.interval";
+    public static final String KEY_UPLOAD_MAX_MBPS = "scan.upload.max_mbps";
+    public static final String KEY_UPLOAD_MIN_TIMEOUT = "scan.upload.min.timeout";
+    public static final String KEY_HTTP_MAX_CONNECTIONS = "scan.http.max.connections";
+    public static final String KEY_HTTP_MAX_CONNECTIONS_PER_ROUTE = "scan.http.max.connections.per.route";
+    public static final String KEY_ZIP_THREADS = "scan.zip.threads";
+    public static final String KEY_ZIP_WALKER_THREADS = "scan.zip.walker.threads";
+    public static final String KEY_ZIP_IGNORE_FILES = "scan.zip.ignore.files";
+    public static final String KEY_ZIP_COMPRESSION_POLICY = "scan.zip.compression.policy";
+    public static final String KEY_ZIP_STORED_EXTENSIONS = "scan.zip.stored.extensions";
+    public static final String KEY_ZIP_CONTENT_FILTER = "scan.zip.content.filter";
+    public static final String KEY_ZIP_REUSE_ENTRIES = "scan.zip.reuse.entries";
+    public static final String KEY_ZIP_REUSE_MAX_SIZE = "scan.zip.reuse.max_size";
+    public static final String KEY_ZIP_DETERMINISTIC = "scan.zip.deterministic";
+    public static final String KEY_ZIP_VENDORED_DETECTION = "scan.zip.vendored.detection";
+    public static final String KEY_ZIP_VENDORED_SIGNATURES = "scan.zip.vendored.signatures";
+    public static final String KEY_MONOREPO_THREADS = "scan.monorepo.threads";
+    public static final String KEY_CACHE_DIR = "scan.cache.dir";
+    public static final String KEY_DRY_RUN_LARGEST_ENTRIES = "scan.dryrun.largest.entries";
+    public static final String KEY_FILE_HASH_CACHE = "scan.cache.file.hashes";
+    public static final String KEY_FILE_HASH_CACHE_MAX_ENTRIES = "scan.cache.file.hashes.max.entries";
+    public static final String KEY_METADATA_CACHE_TTL = "scan.cache.metadata.ttl";
+    public static final String KEY_SKIP_UNCHANGED_SOURCES = "scan.skip.unchanged.sources";
+    public static final String KEY_INCREMENTAL_CHANGED_FILES_ONLY = "scan.incremental.changed.files.only";
+    public static final String KEY_INCREMENTAL_MAX_CHANGED_PERCENT = "scan.incremental.max.changed.percent";
+    public static final String KEY_INCREMENTAL_AUTO_MAX_CHANGED_PERCENT = "scan.incremental.auto.max.changed.percent";
+    public static final String KEY_INCREMENTAL_AUTO_MAX_CONSECUTIVE_SCANS = "scan.incremental.auto.max.consecutive.scans";
     public static final String KEY_DEF_PROJECT_NAME = "scan.default.projectname";
     public static final String KEY_VERSION = "cxconsole.version";
     public static final String KEY_USE_KERBEROS_AUTH = "use_kerberos_authentication";
     public static final String KEY_KERBEROS_USERNAME = "kerberos.username";
 
+    private static final String DEFAULT_STORED_EXTENSIONS = "woff, woff2, eot, ico, jpeg, webp, svgz, pdf, docx, xlsx, pptx, odt, apk, aar, war, ear, whl, nupkg, bz2, xz, lz, zst, tgz, mp3, ogg, webm, mkv";
+    private static final String DEFAULT_CACHE_DIR_NAME = ".cxconsole";
+
     private String separator = FileSystems.getDefault().getSeparator();
     private String userDir = System.getProperty("user.dir");
 
@@ -109,6 +140,34 @@ public class ConfigMgr {
         applicationProperties.put(EXCLUDED_FOLDERS_TO_PACK, "_cvs, .svn, .hg, .git, .bzr, bin, obj, backup");
         applicationProperties.put(EXCLUDED_FILES_TO_PACK, "*.DS_Store, *.ipr, *.iws, *.bak, *.tmp, *.aac, *.aif, *.iff, *.m3u, *.mid, *.mp3, *.mpa, *.ra, *.wav, *.wma, *.3g2, *.3gp, *.asf, *.asx, *.avi, *.flv, *.mov, *.mp4, *.mpg, *.rm, *.swf, *.vob, *.wmv, *.bmp, *.gif, *.jpg, *.png, *.psd, *.tif, *.jar, *.zip, *.rar, *.exe, *.dll, *.pdb, *.7z, *.gz, *.tar.gz, *.tar, *.ahtm, *.ahtml, *.fhtml, *.hdm, *.hdml, *.hsql, *.ht, *.hta, *.htc, *.htd, *.htmls, *.ihtml, *.mht, *.mhtm, *.mhtml, *.ssi, *.stm, *.stml, *.ttml, *.txn, *.xhtm, *.xhtml, *.class, *.iml");
         applicationProperties.put(KEY_MAX_ZIP_SIZE, "200");
+        applicationProperties.put(KEY_ZIP_UPLOAD_MODE, "memory");
+        applicationProperties.put(KEY_UPLOAD_PROGRESS_INTERVAL, "10");
+        applicationProperties.put(KEY_UPLOAD_MAX_MBPS, "0");
+        applicationProperties.put(KEY_UPLOAD_MIN_TIMEOUT, "300");
+        applicationProperties.put(KEY_HTTP_MAX_CONNECTIONS, "20");
+        applicationProperties.put(KEY_HTTP_MAX_CONNECTIONS_PER_ROUTE, "10");
+        applicationProperties.put(KEY_ZIP_THREADS, "0");
+        applicationProperties.put(KEY_ZIP_WALKER_THREADS, "0");
+        applicationProperties.put(KEY_ZIP_IGNORE_FILES, "");
+        applicationProperties.put(KEY_ZIP_COMPRESSION_POLICY, "default");
+        applicationProperties.put(KEY_ZIP_STORED_EXTENSIONS, DEFAULT_STORED_EXTENSIONS);
+        applicationProperties.put(KEY_ZIP_CONTENT_FILTER, "off");
+        applicationProperties.put(KEY_ZIP_REUSE_ENTRIES, "false");
+        applicationProperties.put(KEY_ZIP_REUSE_MAX_SIZE, "1024");
+        applicationProperties.put(KEY_ZIP_DETERMINISTIC, "false");
+        applicationProperties.put(KEY_ZIP_VENDORED_DETECTION, "false");
+        applicationProperties.put(KEY_ZIP_VENDORED_SIGNATURES, "");
+        applicationProperties.put(KEY_MONOREPO_THREADS, "4");
+        applicationProperties.put(KEY_CACHE_DIR, "");
+        applicationProperties.put(KEY_DRY_RUN_LARGEST_ENTRIES, "10");
+        applicationProperties.put(KEY_FILE_HASH_CACHE, "true");
+        applicationProperties.put(KEY_FILE_HASH_CACHE_MAX_ENTRIES, "200000");
+        applicationProperties.put(KEY_METADATA_CACHE_TTL, "3600");
+        applicationProperties.put(KEY_SKIP_UNCHANGED_SOURCES, "false");
+        applicationProperties.put(KEY_INCREMENTAL_CHANGED_FILES_ONLY, "false");
+        applicationProperties.put(KEY_INCREMENTAL_MAX_CHANGED_PERCENT, "30");
+        applicationProperties.put(KEY_INCREMENTAL_AUTO_MAX_CHANGED_PERCENT, "10");
+        applicationProperties.put(KEY_INCREMENTAL_AUTO_MAX_CONSECUTIVE_SCANS, "10");
         applicationProperties.put(KEY_DEF_PROJECT_NAME, "console.project");
         applicationProperties.put(KEY_VERSION, ConsoleUtils.getBuildVersion());
         applicationProperties.put(KEY_USE_KERBEROS_AUTH, "false");
@@ -160,6 +219,19 @@ public class ConfigMgr {
         return longValue;
     }
 
+    /**
+     * @return the folder which holds data kept between runs (e.g. measured upload throughput), created if missing
+     */
+    public File getCacheDirectory() {
+        String cacheDir = getProperty(KEY_CACHE_DIR);
+        File cacheDirectory = cacheDir == null || cacheDir.trim().isEmpty()
+                ? new File(System.getProperty("user.home"), DEFAULT_CACHE_DIR_NAME) : new File(cacheDir.trim());
+        if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+            log.warn("Cannot create cache directory: " + cacheDirectory);
+        }
+        return cacheDirectory;
+    }
+
     public static ConfigMgr getCfgMgr() {
         return mgr;
     }
@@ -0,0 +1,206 @@
+package com.checkmarx.cxconsole.packaging;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The files found with an {@link ExclusionMatcher} must be the files the Ant DirectoryScanner of the Zipper component includes,
+ * with the same patterns and settings (case insensitive, symbolic links are not followed)
+ */
+public class ExclusionMatcherTest {
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**/*"};
+
+    //The default exclusions of cx_console.properties, formatted as FilesUtils formats them
+    private static final String[] DEFAULT_EXCLUDE_PATTERNS = {
+            "**/_cvs/**/*", "**/.svn/**/*", "**/.hg/**/*", "**/.git/**/*", "**/.bzr/**/*", "**/bin/**/*", "**/obj/**/*", "**/backup/**/*",
+            "**/node_modules/**/*", "**/*.DS_Store", "**/*.ipr", "**/*.iws", "**/*.bak", "**/*.tmp", "**/*.jar", "**/*.zip", "**/*.class",
+            "**/*.iml", "**/*.tar.gz", "Checkmarx/Reports/*.*"};
+
+    private static final String[] FIXED_PATHS = {
+            "Main.java", "README", "build.gradle", ".gitignore", "a.tar.gz", "lib/a.jar", "lib/b.JAR", "lib/c.jarx",
+            "src/main/java/App.java", "src/main/java/app.class", "src/test/java/AppTest.java", "src/main/resources/x.DS_Store",
+            "bin/run.sh", "src/bin/tool", "binary/keep.txt", "Bin/Upper.txt", "obj/o.c", "node_modules/x/index.js", "web/node_modules/y/z/index.js",
+            "web/node_modules.js", ".git/config", ".git/objects/ab/cdef", "sub/.git/HEAD", "Checkmarx/Reports/r.pdf", "Checkmarx/Reports/noext",
+            "Checkmarx/Reports/deep/r.pdf", "x/Checkmarx/Reports/r.pdf", "gen/a/b/c/Gen.java", "gen/Gen.java", "test1/a.txt", "testing/b/c.txt",
+            "a/xb/f.txt", "a/xyb/f.txt", "a/b/f.txt", "docs/a.md", "docs/sub/b.md", "Docs/C.MD", "backup.txt", "x.bak/inner.txt"};
+
+    private static final String[][] EXCLUDE_PATTERN_SETS = {
+            {},
+            DEFAULT_EXCLUDE_PATTERNS,
+            {"*.java"},
+            {"src/**"},
+            {"src/"},
+            {"**/test*/**"},
+            {"a/?b/*.txt"},
+            {"**/*.JS"},
+            {"**\\gen\\**"},
+            {"gen/*"},
+            {"**/docs/*.md"},
+            {"**"},
+            {"**/*"},
+            {"*"},
+            {"**/*.*"},
+            {"**/b/**/*", "**/*.md"},
+            {"**/x*/**"},
+            {"Checkmarx/**/*.pdf", "lib/*.jar"}};
+
+    private static final String[][] INCLUDE_PATTERN_SETS = {
+            INCLUDE_ALL_PATTERNS,
+            {"**"},
+            {"**/*.java"},
+            {"src/**/*", "*.gradle"},
+            {"**/docs/**"},
+            {"*"}};
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static File fixedTree;
+    private static File randomTree;
+
+    @BeforeClass
+    public static void createTrees() throws IOException {
+        fixedTree = temporaryFolder.newFolder("fixed");
+        for (String path : FIXED_PATHS) {
+            createFile(fixedTree, path);
+        }
+        randomTree = temporaryFolder.newFolder("random");
+        for (String path : generatePaths(new Random(17), 3000)) {
+            createFile(randomTree, path);
+        }
+    }
+
+    @Test
+    public void defaultExclusionsMatchDirectoryScanner() throws IOException {
+        assertSameFiles(fixedTree, INCLUDE_ALL_PATTERNS, DEFAULT_EXCLUDE_PATTERNS);
+        assertSameFiles(randomTree, INCLUDE_ALL_PATTERNS, DEFAULT_EXCLUDE_PATTERNS);
+    }
+
+    @Test
+    public void excludePatternsMatchDirectoryScanner() throws IOException {
+        for (String[] excludePatterns : EXCLUDE_PATTERN_SETS) {
+            assertSameFiles(fixedTree, INCLUDE_ALL_PATTERNS, excludePatterns);
+            assertSameFiles(randomTree, INCLUDE_ALL_PATTERNS, excludePatterns);
+        }
+    }
+
+    @Test
+    public void includePatternsMatchDirectoryScanner() throws IOException {
+        for (String[] includePatterns : INCLUDE_PATTERN_SETS) {
+            for (String[] excludePatterns : EXCLUDE_PATTERN_SETS) {
+                assertSameFiles(fixedTree, includePatterns, excludePatterns);
+            }
+            assertSameFiles(randomTree, includePatterns, DEFAULT_EXCLUDE_PATTERNS);
+        }
+    }
+
+    @Test
+    public void excludedSubtreeIsPruned() {
+        ExclusionMatcher matcher = ExclusionMatcher.compile(INCLUDE_ALL_PATTERNS, DEFAULT_EXCLUDE_PATTERNS);
+        assertNull(matcher.enterDirectory(matcher.getRootState(), "node_modules"));
+        assertNull(matcher.enterDirectory(matcher.getRootState(), "BIN"));
+
+        ExclusionMatcher.MatchState web = matcher.enterDirectory(matcher.getRootState(), "web");
+        assertNull(matcher.enterDirectory(web, "node_modules"));
+        assertTrue(matcher.isFileIncluded(web, "node_modules.js"));
+    }
+
+    @Test
+    public void partlyExcludedDirectoryIsEntered() {
+        ExclusionMatcher matcher = ExclusionMatcher.compile(INCLUDE_ALL_PATTERNS, new String[]{"**/docs/*.md"});
+        ExclusionMatcher.MatchState docs = matcher.enterDirectory(matcher.getRootState(), "docs");
+        assertFalse(matcher.isFileIncluded(docs, "a.md"));
+        assertTrue(matcher.isFileIncluded(docs, "a.txt"));
+        assertTrue(matcher.isFileIncluded(matcher.enterDirectory(docs, "sub"), "b.md"));
+    }
+
+    @Test
+    public void directoryWithoutIncludedFilesIsPruned() {
+        ExclusionMatcher matcher = ExclusionMatcher.compile(new String[]{"src/**/*"}, new String[0]);
+        assertNull(matcher.enterDirectory(matcher.getRootState(), "docs"));
+        assertTrue(matcher.isFileIncluded(matcher.enterDirectory(matcher.getRootState(), "SRC"), "a.java"));
+    }
+
+    private static void assertSameFiles(File baseDir, String[] includePatterns, String[] excludePatterns) throws IOException {
+        String message = "includes " + Arrays.toString(includePatterns) + ", excludes " + Arrays.toString(excludePatterns);
+        assertEquals(message, scanWithDirectoryScanner(baseDir, includePatterns, excludePatterns), walk(baseDir, includePatterns, excludePatterns));
+    }
+
+    /**
+     * Scans like the Zipper component does
+     */
+    private static TreeSet<String> scanWithDirectoryScanner(File baseDir, String[] includePatterns, String[] excludePatterns) {
+        DirectoryScanner directoryScanner = new DirectoryScanner();
+        directoryScanner.setBasedir(baseDir);
+        directoryScanner.setCaseSensitive(false);
+        directoryScanner.setFollowSymlinks(false);
+        directoryScanner.setErrorOnMissingDir(false);
+        directoryScanner.setIncludes(includePatterns);
+        directoryScanner.setExcludes(excludePatterns);
+        directoryScanner.scan();
+        TreeSet<String> files = new TreeSet<>();
+        for (String includedFile : directoryScanner.getIncludedFiles()) {
+            files.add(includedFile.replace(File.separatorChar, '/'));
+        }
+        return files;
+    }
+
+    private static TreeSet<String> walk(File baseDir, String[] includePatterns, String[] excludePatterns) throws IOException {
+        TreeSet<String> files = new TreeSet<>();
+        try (ParallelFileWalker fileWalker = new ParallelFileWalker(baseDir, ExclusionMatcher.compile(includePatterns, excludePatterns),
+                Collections.emptyList(), 2)) {
+            for (ParallelFileWalker.SourceFile sourceFile = fileWalker.next(); sourceFile != null; sourceFile = fileWalker.next()) {
+                files.add(sourceFile.getEntryName());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return paths of a source tree, whose names are drawn from the names the patterns refer to
+     */
+    private static List<String> generatePaths(Random random, int numOfFiles) {
+        String[] directoryNames = {"src", "SRC", "main", "test", "tests", "bin", "Bin", "obj", "gen", "docs", "node_modules", ".git", ".svn",
+                "backup", "lib", "b", "xb", "a", "Checkmarx", "Reports", "x.bak"};
+        String[] fileNames = {"A.java", "b.JAVA", "c.class", "d.jar", "e.md", "f.MD", "g.js", "h.min.js", "i.tar.gz", "j.tmp", "k", ".hidden",
+                "l.DS_Store", "m.iml", "n.txt", "o.bak", "p.pdf"};
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < numOfFiles; i++) {
+            StringBuilder path = new StringBuilder();
+            int depth = random.nextInt(5);
+            for (int j = 0; j < depth; j++) {
+                path.append(directoryNames[random.nextInt(directoryNames.length)]).append('/');
+            }
+            paths.add(path.append(i).append('_').append(fileNames[random.nextInt(fileNames.length)]).toString());
+        }
+        return paths;
+    }
+
+    private static void createFile(File baseDir, String path) throws IOException {
+        File file = new File(baseDir, path);
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Cannot create folder " + file.getParentFile());
+        }
+        if (!file.isFile() && !file.createNewFile()) {
+            throw new IOException("Cannot create file " + file);
+        }
+    }
+}
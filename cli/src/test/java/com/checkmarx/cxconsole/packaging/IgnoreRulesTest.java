@@ -0,0 +1,154 @@
+package com.checkmarx.cxconsole.packaging;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The {@link IgnoreRules} follow the .gitignore semantics, alone and as the {@link ParallelFileWalker} applies them to a tree
+ */
+public class IgnoreRulesTest {
+
+    private static final String IGNORE_FILE_NAME = ".gitignore";
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**/*"};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void negatedPatternReIncludes() throws IOException {
+        IgnoreRules ignoreRules = load(IgnoreRules.empty(), "", "*.log", "!keep.log");
+        assertTrue(ignoreRules.isIgnored("a.log", false));
+        assertTrue(ignoreRules.isIgnored("src/b.log", false));
+        assertFalse(ignoreRules.isIgnored("keep.log", false));
+        assertFalse(ignoreRules.isIgnored("src/keep.log", false));
+    }
+
+    @Test
+    public void lastMatchingLineWins() throws IOException {
+        assertTrue(load(IgnoreRules.empty(), "", "!a.txt", "a.txt").isIgnored("a.txt", false));
+        assertFalse(load(IgnoreRules.empty(), "", "a.txt", "!a.txt").isIgnored("a.txt", false));
+        assertTrue(load(IgnoreRules.empty(), "", "*.txt", "!a.txt", "a*").isIgnored("a.txt", false));
+    }
+
+    @Test
+    public void deeperFileOverridesParent() throws IOException {
+        IgnoreRules parentRules = load(IgnoreRules.empty(), "", "*.txt", "!b.txt");
+        IgnoreRules childRules = load(parentRules, "sub/", "!a.txt", "b.txt");
+        assertTrue(parentRules.isIgnored("sub/a.txt", false));
+        assertFalse(parentRules.isIgnored("sub/b.txt", false));
+        assertFalse(childRules.isIgnored("sub/a.txt", false));
+        assertTrue(childRules.isIgnored("sub/b.txt", false));
+        //Not matched by the deeper file, so the parent rules apply
+        assertTrue(childRules.isIgnored("sub/c.txt", false));
+    }
+
+    @Test
+    public void patternWithSlashIsAnchored() throws IOException {
+        IgnoreRules ignoreRules = load(IgnoreRules.empty(), "", "/root.txt", "any.txt", "doc/anchored.txt");
+        assertTrue(ignoreRules.isIgnored("root.txt", false));
+        assertFalse(ignoreRules.isIgnored("src/root.txt", false));
+        assertTrue(ignoreRules.isIgnored("any.txt", false));
+        assertTrue(ignoreRules.isIgnored("src/deep/any.txt", false));
+        assertTrue(ignoreRules.isIgnored("doc/anchored.txt", false));
+        assertFalse(ignoreRules.isIgnored("src/doc/anchored.txt", false));
+    }
+
+    @Test
+    public void anchoredPatternIsRelativeToItsIgnoreFile() throws IOException {
+        IgnoreRules ignoreRules = load(IgnoreRules.empty(), "sub/", "/a.txt", "gen/b.txt");
+        assertTrue(ignoreRules.isIgnored("sub/a.txt", false));
+        assertFalse(ignoreRules.isIgnored("sub/x/a.txt", false));
+        assertTrue(ignoreRules.isIgnored("sub/gen/b.txt", false));
+        assertFalse(ignoreRules.isIgnored("gen/b.txt", false));
+    }
+
+    @Test
+    public void doubleAsteriskForms() throws IOException {
+        IgnoreRules leading = load(IgnoreRules.empty(), "", "**/logs");
+        assertTrue(leading.isIgnored("logs", true));
+        assertTrue(leading.isIgnored("a/b/logs", true));
+        assertFalse(leading.isIgnored("a/logs2", true));
+
+        IgnoreRules trailing = load(IgnoreRules.empty(), "", "out/**");
+        assertTrue(trailing.isIgnored("out/a.txt", false));
+        assertTrue(trailing.isIgnored("out/a/b.txt", false));
+        assertFalse(trailing.isIgnored("out", true));
+        assertFalse(trailing.isIgnored("src/out/a.txt", false));
+
+        IgnoreRules middle = load(IgnoreRules.empty(), "", "a/**/b");
+        assertTrue(middle.isIgnored("a/b", false));
+        assertTrue(middle.isIgnored("a/x/b", false));
+        assertTrue(middle.isIgnored("a/x/y/b", false));
+        assertFalse(middle.isIgnored("a/xb", false));
+
+        IgnoreRules single = load(IgnoreRules.empty(), "", "src/*.java");
+        assertTrue(single.isIgnored("src/A.java", false));
+        assertFalse(single.isIgnored("src/main/A.java", false));
+    }
+
+    @Test
+    public void trailingSlashMatchesDirectoriesOnly() throws IOException {
+        IgnoreRules ignoreRules = load(IgnoreRules.empty(), "", "build/");
+        assertTrue(ignoreRules.isIgnored("build", true));
+        assertTrue(ignoreRules.isIgnored("src/build", true));
+        assertFalse(ignoreRules.isIgnored("build", false));
+        assertFalse(ignoreRules.isIgnored("src/build", false));
+    }
+
+    @Test
+    public void walkAppliesNestedIgnoreFiles() throws IOException {
+        File baseDir = temporaryFolder.newFolder("tree");
+        writeFile(baseDir, IGNORE_FILE_NAME, "*.txt\nbuild/\n!build/keep.txt\n");
+        writeFile(baseDir, "a.txt", "");
+        writeFile(baseDir, "A.java", "");
+        writeFile(baseDir, "sub/" + IGNORE_FILE_NAME, "!b.txt\n");
+        writeFile(baseDir, "sub/b.txt", "");
+        writeFile(baseDir, "sub/c.txt", "");
+        writeFile(baseDir, "build/keep.txt", "");
+        writeFile(baseDir, "build/" + IGNORE_FILE_NAME, "!*\n");
+        writeFile(baseDir, "build/B.java", "");
+        writeFile(baseDir, "src/build", "");
+
+        //A file cannot be re-included once its directory is ignored, neither by the parent nor by an ignore file of its own
+        assertEquals(new TreeSet<>(Arrays.asList(IGNORE_FILE_NAME, "A.java", "sub/" + IGNORE_FILE_NAME, "sub/b.txt", "src/build")), walk(baseDir));
+    }
+
+    private IgnoreRules load(IgnoreRules ignoreRules, String basePath, String... lines) throws IOException {
+        File ignoreFile = temporaryFolder.newFile();
+        Files.write(ignoreFile.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return ignoreRules.load(ignoreFile.toPath(), basePath);
+    }
+
+    private static Set<String> walk(File baseDir) throws IOException {
+        Set<String> files = new TreeSet<>();
+        try (ParallelFileWalker fileWalker = new ParallelFileWalker(baseDir, ExclusionMatcher.compile(INCLUDE_ALL_PATTERNS, null),
+                Collections.singletonList(IGNORE_FILE_NAME), 2)) {
+            for (ParallelFileWalker.SourceFile sourceFile = fileWalker.next(); sourceFile != null; sourceFile = fileWalker.next()) {
+                files.add(sourceFile.getEntryName());
+            }
+        }
+        return files;
+    }
+
+    private static void writeFile(File baseDir, String path, String content) throws IOException {
+        File file = new File(baseDir, path);
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Cannot create folder " + file.getParentFile());
+        }
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
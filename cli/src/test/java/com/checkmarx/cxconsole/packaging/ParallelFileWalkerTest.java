@@ -0,0 +1,148 @@
+package com.checkmarx.cxconsole.packaging;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * The walk hands over the files of a tree with more directories than are listed ahead in sorted order, a closed walk leaves no thread behind,
+ * and the files which were handed over are not kept
+ */
+public class ParallelFileWalkerTest {
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**/*"};
+    private static final String EMITTER_THREAD_NAME = "cx-walk-emitter";
+    private static final String MAX_HEAP = "-Xmx32m";
+    private static final long TIMEOUT_MINUTES = 5;
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static File baseDir;
+    private static List<String> expectedFiles = new ArrayList<>();
+
+    @BeforeClass
+    public static void createTree() throws IOException {
+        baseDir = temporaryFolder.newFolder("tree");
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 60; j++) {
+                String path = "d" + i + "/e" + j + "/f.txt";
+                File file = new File(baseDir, path);
+                if (!file.getParentFile().mkdirs() || !file.createNewFile()) {
+                    throw new IOException("Cannot create file " + file);
+                }
+                expectedFiles.add(path);
+            }
+        }
+        Collections.sort(expectedFiles);
+    }
+
+    @Test
+    public void filesAreHandedOverInSortedOrder() throws IOException {
+        List<String> files = new ArrayList<>();
+        try (ParallelFileWalker fileWalker = newFileWalker()) {
+            for (ParallelFileWalker.SourceFile sourceFile = fileWalker.next(); sourceFile != null; sourceFile = fileWalker.next()) {
+                files.add(sourceFile.getEntryName());
+            }
+        }
+        assertEquals(expectedFiles, files);
+    }
+
+    @Test
+    public void closedWalkEndsItsThreads() throws IOException, InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            try (ParallelFileWalker fileWalker = newFileWalker()) {
+                assertNotNull(fileWalker.next());
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (isEmitterThreadAlive() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse("The emitting thread of a closed walk is still alive", isEmitterThreadAlive());
+    }
+
+    /**
+     * The paths of the deep tree take more memory than the heap has
+     */
+    @Test
+    public void deepTreeIsWalkedInSmallHeap() throws IOException, InterruptedException {
+        File deepDir = temporaryFolder.newFolder("deep");
+        String directoryName = String.format("%040d", 0);
+        String fileName = String.format("%060d", 0);
+        int numOfFiles = 0;
+        for (int i = 0; i < 20; i++) {
+            File dir = new File(deepDir, "branch" + i);
+            for (int depth = 0; depth < 15; depth++) {
+                dir = new File(dir, directoryName);
+                if (!dir.mkdirs()) {
+                    throw new IOException("Cannot create folder " + dir);
+                }
+                for (int j = 0; j < 100; j++) {
+                    if (!new File(dir, fileName + j).createNewFile()) {
+                        throw new IOException("Cannot create file in " + dir);
+                    }
+                    numOfFiles++;
+                }
+            }
+        }
+
+        File outputFile = new File(temporaryFolder.getRoot(), "walker.log");
+        String javaPath = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        Process process = new ProcessBuilder(javaPath, MAX_HEAP, "-cp", System.getProperty("java.class.path"), SmallHeapWalker.class.getName(),
+                deepDir.getPath(), String.valueOf(numOfFiles))
+                .redirectErrorStream(true).redirectOutput(outputFile).start();
+        if (!process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new AssertionError("Walking did not end within " + TIMEOUT_MINUTES + " minutes");
+        }
+        String output = new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8);
+        assertEquals("Walking with " + MAX_HEAP + " failed:\n" + output, 0, process.exitValue());
+    }
+
+    private static ParallelFileWalker newFileWalker() {
+        return new ParallelFileWalker(baseDir, ExclusionMatcher.compile(INCLUDE_ALL_PATTERNS, null), Collections.emptyList(), 4);
+    }
+
+    private static boolean isEmitterThreadAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(EMITTER_THREAD_NAME) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walks a folder in the JVM which the test starts with a small heap, and fails if the number of files is not the expected one
+     */
+    public static class SmallHeapWalker {
+
+        public static void main(String[] args) throws IOException {
+            int numOfFiles = 0;
+            try (ParallelFileWalker fileWalker = new ParallelFileWalker(new File(args[0]), ExclusionMatcher.compile(INCLUDE_ALL_PATTERNS, null),
+                    Collections.emptyList(), 4)) {
+                for (ParallelFileWalker.SourceFile sourceFile = fileWalker.next(); sourceFile != null; sourceFile = fileWalker.next()) {
+                    numOfFiles++;
+                }
+            }
+            if (numOfFiles != Integer.parseInt(args[1])) {
+                throw new IllegalStateException(numOfFiles + " files were walked, rather than " + args[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.components.zipper.Zipper;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Sources of 4.5 GB, more than an array can hold, are zipped by a JVM with a 64 MB heap.
+ * The large file is sparse, so the tree takes little disk space, and its extension is stored without compression, so the archive takes
+ * more than 4 GB and the entries after it have ZIP64 offsets.
+ */
+public class ParallelZipperLargeSourcesTest {
+
+    private static final long LARGE_FILE_SIZE = 4608L * 1024 * 1024;
+    private static final String STORED_EXTENSION = "bin";
+    private static final int NUM_OF_SMALL_FILES = 20000;
+    private static final String MAX_HEAP = "-Xmx64m";
+    private static final long TIMEOUT_MINUTES = 10;
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static File baseDir;
+
+    @BeforeClass
+    public static void createTree() throws IOException {
+        baseDir = temporaryFolder.newFolder("large");
+        try (RandomAccessFile largeFile = new RandomAccessFile(new File(baseDir, "large." + STORED_EXTENSION), "rw")) {
+            largeFile.setLength(LARGE_FILE_SIZE);
+        }
+        for (int i = 0; i < NUM_OF_SMALL_FILES; i++) {
+            File file = new File(baseDir, "src/d" + (i % 100) + "/F" + i + ".java");
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                throw new IOException("Cannot create folder " + file.getParentFile());
+            }
+            Files.write(file.toPath(), ("class F" + i + " {}\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void largeSourcesAreZippedInSmallHeap() throws IOException, InterruptedException {
+        File zipFile = new File(temporaryFolder.getRoot(), "large.zip");
+        File outputFile = new File(temporaryFolder.getRoot(), "zipper.log");
+        String javaPath = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        Process process = new ProcessBuilder(javaPath, MAX_HEAP, "-cp", System.getProperty("java.class.path"), SmallHeapZipper.class.getName(),
+                baseDir.getPath(), zipFile.getPath())
+                .redirectErrorStream(true).redirectOutput(outputFile).start();
+        if (!process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new AssertionError("Zipping did not end within " + TIMEOUT_MINUTES + " minutes");
+        }
+        String output = new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8);
+        assertEquals("Zipping with " + MAX_HEAP + " failed:\n" + output, 0, process.exitValue());
+
+        assertTrue(zipFile.length() > LARGE_FILE_SIZE);
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            assertEquals(NUM_OF_SMALL_FILES + 1, zip.size());
+            ZipEntry largeEntry = zip.getEntry("large." + STORED_EXTENSION);
+            assertNotNull(largeEntry);
+            assertEquals(ZipEntry.STORED, largeEntry.getMethod());
+            assertEquals(LARGE_FILE_SIZE, largeEntry.getSize());
+            assertEquals(LARGE_FILE_SIZE, largeEntry.getCompressedSize());
+            //Written after the large entry, beyond 4 GB of the archive
+            ZipEntry smallEntry = zip.getEntry("src/d99/F19999.java");
+            assertNotNull(smallEntry);
+            try (InputStream inputStream = zip.getInputStream(smallEntry)) {
+                assertEquals("class F19999 {}\n", IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void maxZipSizeBeyondIntRangeIsEnforced() throws IOException {
+        long maxZipSize = LARGE_FILE_SIZE + 1024;
+        try {
+            newZipper().zip(SourceRoots.of(baseDir), new String[0], new String[]{"**/*"}, new NullOutputStream(), maxZipSize,
+                    (fileName, size) -> {
+                    });
+            fail("The archive should exceed " + maxZipSize + " bytes");
+        } catch (Zipper.MaxZipSizeReached e) {
+            //The exception keeps only the limit, in its message
+            assertTrue(e.getMessage(), e.getMessage().contains(" " + maxZipSize + " "));
+        }
+    }
+
+    private static ParallelZipper newZipper() {
+        CompressionPolicy compressionPolicy = CompressionPolicy.adaptivePolicy(null, 2, Collections.singleton(STORED_EXTENSION));
+        return new ParallelZipper(2, 2, compressionPolicy, Collections.emptyList(), null, null, null, false);
+    }
+
+    /**
+     * Zips a folder into a file, in the JVM which the test starts with a small heap
+     */
+    public static class SmallHeapZipper {
+
+        public static void main(String[] args) throws IOException {
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(args[1]))) {
+                newZipper().zip(SourceRoots.of(new File(args[0])), new String[0], new String[]{"**/*"}, outputStream, Long.MAX_VALUE,
+                        (fileName, size) -> {
+                        });
+            }
+        }
+    }
+}
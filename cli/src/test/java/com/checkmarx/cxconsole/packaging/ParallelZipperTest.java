@@ -0,0 +1,166 @@
+package com.checkmarx.cxconsole.packaging;
+
+import com.checkmarx.components.zipper.Zipper;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * The archives of the {@link ParallelZipper} hold the same entries as the archives of the {@link Zipper}, with the current content of the
+ * files and checksums which match it, and deterministic archives of the same content are identical
+ */
+public class ParallelZipperTest {
+
+    private static final String[] INCLUDE_ALL_PATTERNS = {"**/*"};
+    private static final String[] EXCLUDE_PATTERNS = {"**/target/**", "**/*.log"};
+    private static final int LARGE_FILE_SIZE = 3 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void changedFileWithSameSizeAndTimeIsZippedWithItsChecksum() throws IOException {
+        File baseDir = temporaryFolder.newFolder("sources");
+        long lastModified = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+        Random random = new Random(1);
+        byte[] smallContent = "class A {}\n".getBytes("UTF-8");
+        byte[] largeContent = new byte[LARGE_FILE_SIZE];
+        random.nextBytes(largeContent);
+        File smallFile = writeFile(baseDir, "A.java", smallContent, lastModified);
+        File largeFile = writeFile(baseDir, "large.bin", largeContent, lastModified);
+        FileHashCache fileHashCache = FileHashCache.open(temporaryFolder.newFolder("cache"), 100);
+        zip(baseDir, newZipper(fileHashCache));
+
+        //Edits which keep the size and modification time, like a copy which preserves the times
+        byte[] newSmallContent = "class B {}\n".getBytes("UTF-8");
+        byte[] newLargeContent = new byte[LARGE_FILE_SIZE];
+        random.nextBytes(newLargeContent);
+        writeFile(baseDir, "A.java", newSmallContent, smallFile.lastModified());
+        writeFile(baseDir, "large.bin", newLargeContent, largeFile.lastModified());
+
+        Map<String, byte[]> entries = unzip(zip(baseDir, newZipper(fileHashCache)));
+        assertArrayEquals(newSmallContent, entries.get("A.java"));
+        assertArrayEquals(newLargeContent, entries.get("large.bin"));
+    }
+
+    @Test
+    public void zipsSameEntriesAsZipper() throws IOException {
+        File baseDir = temporaryFolder.newFolder("tree");
+        long lastModified = System.currentTimeMillis();
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int line = 0; line < i; line++) {
+                content.append("int f").append(line).append(" = ").append(random.nextInt()).append(";\n");
+            }
+            writeFile(baseDir, "src/p" + (i % 7) + "/q" + (i % 3) + "/C" + i + ".java", content.toString().getBytes("UTF-8"), lastModified);
+        }
+        byte[] binaryContent = new byte[LARGE_FILE_SIZE];
+        random.nextBytes(binaryContent);
+        writeFile(baseDir, "lib/large.bin", binaryContent, lastModified);
+        writeFile(baseDir, "Empty.java", new byte[0], lastModified);
+        writeFile(baseDir, "build.log", "excluded\n".getBytes("UTF-8"), lastModified);
+        writeFile(baseDir, "module/target/Generated.java", "excluded\n".getBytes("UTF-8"), lastModified);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new Zipper().zip(baseDir, EXCLUDE_PATTERNS, INCLUDE_ALL_PATTERNS, outputStream, Long.MAX_VALUE, (fileName, size) -> {
+        });
+        Map<String, byte[]> expectedEntries = unzip(outputStream.toByteArray());
+        Map<String, byte[]> entries = unzip(zip(baseDir, newZipper(null)));
+
+        assertEquals(expectedEntries.keySet(), entries.keySet());
+        for (Map.Entry<String, byte[]> expectedEntry : expectedEntries.entrySet()) {
+            assertArrayEquals(expectedEntry.getKey(), expectedEntry.getValue(), entries.get(expectedEntry.getKey()));
+        }
+        assertEquals(202, entries.size());
+    }
+
+    @Test
+    public void deterministicArchivesOfSameContentAreIdentical() throws IOException {
+        File baseDir = temporaryFolder.newFolder("deterministic");
+        long lastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+        Random random = new Random(3);
+        byte[] largeContent = new byte[LARGE_FILE_SIZE];
+        random.nextBytes(largeContent);
+        writeFile(baseDir, "lib/large.bin", largeContent, lastModified);
+        for (int i = 0; i < 100; i++) {
+            writeFile(baseDir, "src/p" + (i % 5) + "/C" + i + ".java", ("class C" + i + " {}\n").getBytes("UTF-8"), lastModified);
+        }
+        ParallelZipper parallelZipper = new ParallelZipper(1, 1, CompressionPolicy.defaultPolicy(), Collections.emptyList(), null, null, null, true);
+        byte[] archive = zip(baseDir, parallelZipper);
+        String archiveDigest = parallelZipper.getArchiveDigest();
+
+        //The same content, touched later, zipped by more threads
+        for (File file : FileUtils.listFiles(baseDir, null, true)) {
+            writeFile(baseDir, baseDir.toPath().relativize(file.toPath()).toString(), Files.readAllBytes(file.toPath()),
+                    lastModified + TimeUnit.HOURS.toMillis(1));
+        }
+        ParallelZipper otherParallelZipper = new ParallelZipper(4, 3, CompressionPolicy.defaultPolicy(), Collections.emptyList(), null, null, null,
+                true);
+        byte[] otherArchive = zip(baseDir, otherParallelZipper);
+
+        assertArrayEquals(archive, otherArchive);
+        assertNotNull(archiveDigest);
+        assertEquals(archiveDigest, otherParallelZipper.getArchiveDigest());
+    }
+
+    private static ParallelZipper newZipper(FileHashCache fileHashCache) {
+        return new ParallelZipper(2, 2, CompressionPolicy.defaultPolicy(), Collections.emptyList(), fileHashCache, null, null, false);
+    }
+
+    private static byte[] zip(File baseDir, ParallelZipper parallelZipper) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        parallelZipper.zip(SourceRoots.of(baseDir), EXCLUDE_PATTERNS, INCLUDE_ALL_PATTERNS, outputStream, Long.MAX_VALUE, (fileName, size) -> {
+        });
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Reading an entry fails if its checksum does not match its content
+     */
+    private static Map<String, byte[]> unzip(byte[] archive) throws IOException {
+        Map<String, byte[]> entries = new TreeMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            for (ZipEntry zipEntry = zipInputStream.getNextEntry(); zipEntry != null; zipEntry = zipInputStream.getNextEntry()) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int length = zipInputStream.read(buffer); length >= 0; length = zipInputStream.read(buffer)) {
+                    content.write(buffer, 0, length);
+                }
+                entries.put(zipEntry.getName(), content.toByteArray());
+            }
+        }
+        return entries;
+    }
+
+    private static File writeFile(File baseDir, String path, byte[] content, long lastModified) throws IOException {
+        File file = new File(baseDir, path);
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Cannot create folder " + file.getParentFile());
+        }
+        Files.write(file.toPath(), content);
+        if (!file.setLastModified(lastModified)) {
+            throw new IOException("Cannot set the modification time of " + file);
+        }
+        assertEquals(lastModified / 1000, file.lastModified() / 1000);
+        return file;
+    }
+}